@@ -0,0 +1,211 @@
+package com.ucs.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ucs.UcsApplication;
+import com.ucs.dto.IngestStatsDTO;
+import com.ucs.dto.UavTelemetryBatchDTO;
+import com.ucs.service.ITelemetryIngestService;
+import com.ucs.telemetry.TelemetryFrame;
+import com.ucs.telemetry.TelemetryFrameCodec;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process ingest load generator
+ *
+ * Starts the backend on H2 with a random port and simulates N UAVs split across G gateways.
+ * Every gateway posts one batch per tick at M Hz to /api/v1/telemetry/batch (or /batch/binary)
+ * on an open-loop schedule; latency is measured from the intended send time so a slow server
+ * is not hidden by a stalled client. Reports ack latency percentiles, 429 rejections and the
+ * sustained samples/s actually processed by the ingest workers.
+ *
+ * Arguments (key=value): uavs=100 rate=10 duration=30 warmup=5 gateways=1 format=json|binary.
+ * Arguments starting with -- go to Spring, e.g. --telemetry.ingest.mode=sync measures full
+ * processing latency instead of the async queue ack.
+ */
+public final class IngestLoadGenerator {
+
+    private final int uavs;
+    private final int rate;
+    private final int durationSeconds;
+    private final int warmupSeconds;
+    private final int gateways;
+    private final boolean binary;
+
+    private final ConcurrentLinkedQueue<Long> latenciesNanos = new ConcurrentLinkedQueue<>();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder ok = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    private volatile boolean measuring;
+
+    private IngestLoadGenerator(Map<String, String> options) {
+        this.uavs = Integer.parseInt(options.getOrDefault("uavs", "100"));
+        this.rate = Integer.parseInt(options.getOrDefault("rate", "10"));
+        this.durationSeconds = Integer.parseInt(options.getOrDefault("duration", "30"));
+        this.warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        this.gateways = Integer.parseInt(options.getOrDefault("gateways", "1"));
+        this.binary = "binary".equalsIgnoreCase(options.getOrDefault("format", "json"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> springArgs = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.com.ucs=WARN"));
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                springArgs.add(arg);
+            } else if (arg.contains("=")) {
+                options.put(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+
+        ConfigurableApplicationContext context = SpringApplication.run(UcsApplication.class,
+                springArgs.toArray(new String[0]));
+        try {
+            new IngestLoadGenerator(options).run(context);
+        } finally {
+            context.close();
+        }
+        System.exit(0);
+    }
+
+    private void run(ConfigurableApplicationContext context) throws Exception {
+        String port = context.getEnvironment().getProperty("local.server.port");
+        URI endpoint = URI.create("http://localhost:" + port + "/api/v1/telemetry/batch" + (binary ? "/binary" : ""));
+        ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+        ITelemetryIngestService ingestService = context.getBean(ITelemetryIngestService.class);
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+        System.out.printf("Ingest load: %d UAVs, %d Hz, %d gateway(s), %s, %ds warmup + %ds measured -> %s%n",
+                uavs, rate, gateways, binary ? "binary" : "json", warmupSeconds, durationSeconds, endpoint);
+
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long startNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        Instant startTime = Instant.now();
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(gateways);
+        int perGateway = (uavs + gateways - 1) / gateways;
+        for (int g = 0; g < gateways; g++) {
+            int firstUavId = 1 + g * perGateway;
+            int count = Math.min(perGateway, uavs - g * perGateway);
+            if (count <= 0) {
+                break;
+            }
+            String gatewayId = "loadgen-" + g;
+            AtomicLong tick = new AtomicLong();
+            scheduler.scheduleAtFixedRate(() -> {
+                long n = tick.getAndIncrement();
+                long intendedNanos = startNanos + n * periodNanos;
+                Instant sampleTime = startTime.plusNanos(n * periodNanos);
+                send(client, objectMapper, endpoint, gatewayId,
+                        TelemetryFixtures.batch(firstUavId, count, n + 1, sampleTime), intendedNanos);
+            }, startNanos - System.nanoTime(), periodNanos, TimeUnit.NANOSECONDS);
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(warmupSeconds) + 100);
+        IngestStatsDTO before = ingestService.getStats();
+        long measureStart = System.nanoTime();
+        measuring = true;
+        Thread.sleep(TimeUnit.SECONDS.toMillis(durationSeconds));
+        measuring = false;
+        scheduler.shutdownNow();
+
+        // Let the ingest workers finish what was acknowledged during the run
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (ingestService.getQueueDepth() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        long measureEnd = System.nanoTime();
+        IngestStatsDTO after = ingestService.getStats();
+
+        report(before, after, (measureEnd - measureStart) / 1e9, perGateway);
+    }
+
+    private void send(HttpClient client, ObjectMapper objectMapper, URI endpoint, String gatewayId,
+                      UavTelemetryBatchDTO batch, long intendedNanos) {
+        byte[] body;
+        try {
+            body = binary
+                    ? TelemetryFrameCodec.encode(TelemetryFrame.fromBatch(batch))
+                    : objectMapper.writeValueAsBytes(batch);
+        } catch (Exception e) {
+            errors.increment();
+            return;
+        }
+        HttpRequest request = HttpRequest.newBuilder(endpoint)
+                .header("Content-Type", binary ? "application/octet-stream" : "application/json")
+                .header("X-Gateway-Id", gatewayId)
+                .timeout(Duration.ofSeconds(10))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        boolean counted = measuring;
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            if (!counted) {
+                return;
+            }
+            sent.increment();
+            if (error != null) {
+                errors.increment();
+            } else if (response.statusCode() == 429) {
+                rejected.increment();
+            } else if (response.statusCode() == 200) {
+                ok.increment();
+                latenciesNanos.add(System.nanoTime() - intendedNanos);
+            } else {
+                errors.increment();
+            }
+        });
+    }
+
+    private void report(IngestStatsDTO before, IngestStatsDTO after, double seconds, int uavsPerBatch) {
+        long[] latencies = latenciesNanos.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(latencies);
+        long processedFrames = after.getProcessed() - before.getProcessed();
+        long offeredSamples = (long) uavs * rate;
+
+        System.out.println();
+        System.out.printf("Requests:     %d sent, %d ok, %d rejected (429), %d errors%n",
+                sent.sum(), ok.sum(), rejected.sum(), errors.sum());
+        System.out.printf("Ack latency:  p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms%n",
+                percentileMs(latencies, 50), percentileMs(latencies, 90), percentileMs(latencies, 99),
+                percentileMs(latencies, 99.9), latencies.length > 0 ? latencies[latencies.length - 1] / 1e6 : 0.0);
+        System.out.printf("Throughput:   %.0f samples/s processed (%.0f frames/s), offered %d samples/s%n",
+                processedFrames * uavsPerBatch / seconds, processedFrames / seconds, offeredSamples);
+        System.out.printf("History rows: %d kept, %d dropped by decimation%n",
+                after.getHistoryRowsKept() - before.getHistoryRowsKept(),
+                after.getHistoryRowsDropped() - before.getHistoryRowsDropped());
+        System.out.printf("Ingest:       %d failed, queue depth %d/%d at end%n",
+                after.getFailed() - before.getFailed(), after.getQueueDepth(), after.getQueueCapacity());
+    }
+
+    private static double percentileMs(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+}
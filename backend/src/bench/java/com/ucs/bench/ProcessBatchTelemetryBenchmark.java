@@ -0,0 +1,86 @@
+package com.ucs.bench;
+
+import com.ucs.UcsApplication;
+import com.ucs.dto.UavTelemetryBatchDTO;
+import com.ucs.service.ITelemetryService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end synchronous processing of one gateway batch on H2:
+ * history write, latest state update and /topic/telemetry broadcast
+ *
+ * Each invocation advances the batch by one second so every sample passes history decimation
+ * (worst case for the database). History rows are cleared after every iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProcessBatchTelemetryBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int uavs;
+
+    private ConfigurableApplicationContext context;
+    private ITelemetryService telemetryService;
+    private JdbcTemplate jdbcTemplate;
+    private UavTelemetryBatchDTO[] batches;
+    private long tick;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = SpringApplication.run(UcsApplication.class,
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.com.ucs=WARN");
+        telemetryService = context.getBean(ITelemetryService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        // Pre-built batches so the benchmark does not measure fixture construction
+        batches = new UavTelemetryBatchDTO[64];
+        for (int i = 0; i < batches.length; i++) {
+            batches[i] = TelemetryFixtures.batch(1, uavs, i + 1, Instant.EPOCH.plusSeconds(i));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearHistory() {
+        jdbcTemplate.update("DELETE FROM uav_telemetry");
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public void processBatchTelemetry() {
+        UavTelemetryBatchDTO batch = batches[(int) (tick % batches.length)];
+        Instant time = Instant.parse("2026-01-01T00:00:00Z").plusSeconds(tick++);
+        batch.setTimestamp(time);
+        batch.getUavs().forEach(uav -> uav.setTimestamp(time));
+        telemetryService.processBatchTelemetry(batch);
+    }
+}
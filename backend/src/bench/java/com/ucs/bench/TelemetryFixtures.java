@@ -0,0 +1,62 @@
+package com.ucs.bench;
+
+import com.ucs.dto.UavTelemetryBatchDTO;
+import com.ucs.dto.UavTelemetryDTO;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synthetic gateway batches: UAVs flying circles around a home point
+ */
+final class TelemetryFixtures {
+
+    static final double HOME_LAT = 39.9042;
+    static final double HOME_LON = 116.4074;
+    static final double HOME_ALT = 50.0;
+
+    private TelemetryFixtures() {
+    }
+
+    /**
+     * Batch for UAV ids [firstUavId, firstUavId + uavCount) at the given tick
+     */
+    static UavTelemetryBatchDTO batch(int firstUavId, int uavCount, long seq, Instant time) {
+        UavTelemetryBatchDTO batch = new UavTelemetryBatchDTO();
+        batch.setTimestamp(time);
+        batch.setMsgSeqNumber(seq);
+        batch.setHomeLat(HOME_LAT);
+        batch.setHomeLon(HOME_LON);
+        batch.setHomeAlt(HOME_ALT);
+        batch.setNumUavsTotal(uavCount);
+        batch.setNumUavsActive(uavCount);
+        List<UavTelemetryDTO> uavs = new ArrayList<>(uavCount);
+        double t = time.toEpochMilli() / 1000.0;
+        for (int i = 0; i < uavCount; i++) {
+            int uavId = firstUavId + i;
+            double angle = t / 60.0 + uavId;
+            UavTelemetryDTO uav = new UavTelemetryDTO();
+            uav.setUavId(uavId);
+            uav.setTimestamp(time);
+            uav.setLat(HOME_LAT + 0.01 * Math.sin(angle));
+            uav.setLon(HOME_LON + 0.01 * Math.cos(angle));
+            uav.setAlt(100.0 + uavId % 50);
+            uav.setHeading(Math.toDegrees(angle) % 360.0);
+            uav.setGroundSpeed(10.0);
+            uav.setVerticalSpeed(0.0);
+            uav.setNedX(1000.0 * Math.sin(angle));
+            uav.setNedY(1000.0 * Math.cos(angle));
+            uav.setNedZ(-50.0);
+            uav.setVx(10.0 * Math.cos(angle));
+            uav.setVy(-10.0 * Math.sin(angle));
+            uav.setVz(0.0);
+            uav.setDataAge(0.1);
+            uav.setMsgCount(seq);
+            uav.setIsActive(true);
+            uavs.add(uav);
+        }
+        batch.setUavs(uavs);
+        return batch;
+    }
+}
@@ -0,0 +1,80 @@
+package com.ucs.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.ucs.dto.UavTelemetryBatchDTO;
+import com.ucs.telemetry.TelemetryFrame;
+import com.ucs.telemetry.TelemetryFrameCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-batch decode and mapping cost on the ingest path, without the database
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TelemetryMappingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int uavs;
+
+    private ObjectMapper objectMapper;
+    private byte[] json;
+    private byte[] binary;
+    private UavTelemetryBatchDTO batch;
+    private TelemetryFrame frame;
+
+    @Setup
+    public void setup() throws Exception {
+        // Same modules and defaults as the Spring Boot auto-configured mapper
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        batch = TelemetryFixtures.batch(1, uavs, 1, Instant.parse("2026-01-01T00:00:00Z"));
+        json = objectMapper.writeValueAsBytes(batch);
+        frame = TelemetryFrame.fromBatch(batch);
+        binary = TelemetryFrameCodec.encode(frame);
+    }
+
+    /** Jackson binding of the JSON request body (POST /batch) */
+    @Benchmark
+    public UavTelemetryBatchDTO bindJson() throws Exception {
+        return objectMapper.readValue(json, UavTelemetryBatchDTO.class);
+    }
+
+    /** DTO to columnar frame mapping done by the controller */
+    @Benchmark
+    public TelemetryFrame mapBatchToFrame() {
+        return TelemetryFrame.fromBatch(batch);
+    }
+
+    /** Binary frame decoding (POST /batch/binary and /ws-ingest) */
+    @Benchmark
+    public TelemetryFrame decodeBinary() {
+        return TelemetryFrameCodec.decode(ByteBuffer.wrap(binary));
+    }
+
+    /** JSON serialization of the /topic/telemetry broadcast */
+    @Benchmark
+    public byte[] serializeBroadcast() throws Exception {
+        return objectMapper.writeValueAsBytes(frame);
+    }
+}
@@ -39,8 +39,10 @@ public class SecurityConfig {
                 .requestMatchers("/api/v1/auth/**").permitAll()
                 .requestMatchers("/api/v1/public/**").permitAll()
                 .requestMatchers("/api/v1/map/**").permitAll()
+                .requestMatchers("/api/v1/telemetry/export").hasAnyRole("OBSERVER", "COMMANDER")
                 .requestMatchers("/api/v1/telemetry/**").permitAll() // Allow ROS 2 gateway access
                 .requestMatchers("/ws/**").permitAll()
+                .requestMatchers("/ws-ingest").permitAll() // Gateways authenticate with a gateway token
                 .requestMatchers("/h2-console/**").permitAll()
                 .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
                 .requestMatchers("/api/v1/screen/**").hasRole("OBSERVER")
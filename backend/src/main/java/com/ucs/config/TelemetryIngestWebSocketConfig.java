@@ -0,0 +1,52 @@
+package com.ucs.config;
+
+import com.ucs.websocket.GatewayHandshakeInterceptor;
+import com.ucs.websocket.TelemetryIngestWebSocketHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+/**
+ * Raw WebSocket endpoint for streaming gateway telemetry, next to the STOMP endpoint in WebSocketConfig
+ */
+@Configuration
+@EnableWebSocket
+public class TelemetryIngestWebSocketConfig implements WebSocketConfigurer {
+    
+    private final TelemetryIngestWebSocketHandler telemetryIngestWebSocketHandler;
+    private final GatewayHandshakeInterceptor gatewayHandshakeInterceptor;
+    
+    @Value("${telemetry.ingest.ws.path:/ws-ingest}")
+    private String path;
+    
+    @Value("${telemetry.ingest.ws.max-message-bytes:1048576}")
+    private int maxMessageBytes;
+    
+    public TelemetryIngestWebSocketConfig(TelemetryIngestWebSocketHandler telemetryIngestWebSocketHandler,
+                                          GatewayHandshakeInterceptor gatewayHandshakeInterceptor) {
+        this.telemetryIngestWebSocketHandler = telemetryIngestWebSocketHandler;
+        this.gatewayHandshakeInterceptor = gatewayHandshakeInterceptor;
+    }
+    
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(telemetryIngestWebSocketHandler, path)
+                .addInterceptors(gatewayHandshakeInterceptor)
+                .setAllowedOrigins("*");
+    }
+    
+    /**
+     * Whole frames are buffered before dispatch; the container default (8 KB) only fits ~100 UAVs
+     */
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer() {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxBinaryMessageBufferSize(maxMessageBytes);
+        container.setMaxTextMessageBufferSize(maxMessageBytes);
+        return container;
+    }
+}
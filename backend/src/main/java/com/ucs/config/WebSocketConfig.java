@@ -1,20 +1,46 @@
 package com.ucs.config;
 
+import com.ucs.websocket.SharedPayloadBroadcaster;
+import com.ucs.websocket.StompAuthChannelInterceptor;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     
+    private final StompAuthChannelInterceptor stompAuthChannelInterceptor;
+    private final SharedPayloadBroadcaster sharedPayloadBroadcaster;
+    
+    public WebSocketConfig(StompAuthChannelInterceptor stompAuthChannelInterceptor,
+                           SharedPayloadBroadcaster sharedPayloadBroadcaster) {
+        this.stompAuthChannelInterceptor = stompAuthChannelInterceptor;
+        this.sharedPayloadBroadcaster = sharedPayloadBroadcaster;
+    }
+    
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Shared session decorators let high-rate topics be written once-encoded to every subscriber
+        registration.addDecoratorFactory(sharedPayloadBroadcaster::decorate);
+    }
+    
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(stompAuthChannelInterceptor);
+    }
+    
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.enableSimpleBroker("/topic", "/queue");
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
+        // Incremental updates (viewport, /topic/drones deltas) reach each client in the order produced
+        config.setPreservePublishOrder(true);
     }
     
     @Override
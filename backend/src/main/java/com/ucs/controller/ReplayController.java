@@ -0,0 +1,90 @@
+package com.ucs.controller;
+
+import com.ucs.dto.ApiResponse;
+import com.ucs.dto.CreateReplayRequest;
+import com.ucs.dto.ReplaySessionDTO;
+import com.ucs.service.IReplayService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+
+/**
+ * Controller for time-synchronized multi-UAV replay
+ * Clients create a session and subscribe to its destination (/topic/replay/{sessionId});
+ * status changes are published to /topic/replay/{sessionId}/status
+ */
+@RestController
+@RequestMapping("/api/v1/replay")
+public class ReplayController {
+    
+    private final IReplayService replayService;
+    
+    public ReplayController(IReplayService replayService) {
+        this.replayService = replayService;
+    }
+    
+    @PostMapping("/sessions")
+    public ApiResponse<ReplaySessionDTO> createSession(@RequestBody CreateReplayRequest request) {
+        try {
+            return ApiResponse.success(replayService.createSession(request));
+        } catch (Exception e) {
+            return ApiResponse.error(-1, e.getMessage());
+        }
+    }
+    
+    @GetMapping("/sessions/{sessionId}")
+    public ApiResponse<ReplaySessionDTO> getSession(@PathVariable String sessionId) {
+        try {
+            return ApiResponse.success(replayService.getSession(sessionId));
+        } catch (Exception e) {
+            return ApiResponse.error(-1, e.getMessage());
+        }
+    }
+    
+    @PostMapping("/sessions/{sessionId}/pause")
+    public ApiResponse<ReplaySessionDTO> pause(@PathVariable String sessionId) {
+        try {
+            return ApiResponse.success(replayService.pause(sessionId));
+        } catch (Exception e) {
+            return ApiResponse.error(-1, e.getMessage());
+        }
+    }
+    
+    @PostMapping("/sessions/{sessionId}/resume")
+    public ApiResponse<ReplaySessionDTO> resume(@PathVariable String sessionId) {
+        try {
+            return ApiResponse.success(replayService.resume(sessionId));
+        } catch (Exception e) {
+            return ApiResponse.error(-1, e.getMessage());
+        }
+    }
+    
+    @PostMapping("/sessions/{sessionId}/seek")
+    public ApiResponse<ReplaySessionDTO> seek(
+            @PathVariable String sessionId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant time) {
+        try {
+            return ApiResponse.success(replayService.seek(sessionId, time));
+        } catch (Exception e) {
+            return ApiResponse.error(-1, e.getMessage());
+        }
+    }
+    
+    @PostMapping("/sessions/{sessionId}/speed")
+    public ApiResponse<ReplaySessionDTO> setSpeed(
+            @PathVariable String sessionId,
+            @RequestParam double value) {
+        try {
+            return ApiResponse.success(replayService.setSpeed(sessionId, value));
+        } catch (Exception e) {
+            return ApiResponse.error(-1, e.getMessage());
+        }
+    }
+    
+    @DeleteMapping("/sessions/{sessionId}")
+    public ApiResponse<Object> stop(@PathVariable String sessionId) {
+        replayService.stop(sessionId);
+        return ApiResponse.success("stopped", null);
+    }
+}
@@ -1,20 +1,48 @@
 package com.ucs.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ucs.dto.ApiResponse;
+import com.ucs.dto.AreaPassDTO;
+import com.ucs.dto.IngestStatsDTO;
+import com.ucs.dto.RetentionRunDTO;
+import com.ucs.dto.TelemetryRollupSeriesDTO;
 import com.ucs.dto.UavTelemetryBatchDTO;
+import com.ucs.dto.UavTrailDTO;
+import com.ucs.entity.UavFlight;
+import com.ucs.entity.UavFlightStats;
 import com.ucs.entity.UavLatestState;
 import com.ucs.entity.UavTelemetry;
+import com.ucs.service.IRetentionService;
+import com.ucs.service.ITelemetryExportService;
+import com.ucs.service.ITelemetryIngestService;
 import com.ucs.service.ITelemetryService;
+import com.ucs.telemetry.TelemetryFrame;
+import com.ucs.telemetry.HistoryCursor;
+import com.ucs.telemetry.TelemetryExportFormat;
+import com.ucs.telemetry.TelemetryFrameCodec;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * REST API controller for UAV telemetry data
@@ -27,24 +55,83 @@ import java.util.List;
 @Tag(name = "Telemetry", description = "UAV Telemetry API")
 public class TelemetryController {
     
+    /** Header identifying the sending gateway; falls back to the remote address */
+    public static final String GATEWAY_ID_HEADER = "X-Gateway-Id";
+    
+    public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    
+    /** Single byte range: first-[last] or -suffixLength */
+    private static final Pattern BYTE_RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+    
+    /** Longest /trails window; longer spans belong to the history endpoints */
+    private static final long MAX_TRAIL_SECONDS = 24 * 3600;
+    
     private final ITelemetryService telemetryService;
+    private final ITelemetryIngestService telemetryIngestService;
+    private final IRetentionService retentionService;
+    private final ITelemetryExportService telemetryExportService;
+    private final ObjectMapper objectMapper;
     
     /**
      * Receive batch telemetry data from ROS 2 gateway
      * This endpoint is called by the ROS 2 gateway node
+     * In async mode the batch is acknowledged once queued; a full queue answers 429 with Retry-After.
+     * Retries of an already ingested msgSeqNumber are acknowledged without being processed again.
      */
     @PostMapping("/batch")
     @Operation(summary = "Receive batch telemetry from ROS 2 gateway")
     public ResponseEntity<ApiResponse<Void>> receiveBatchTelemetry(
-            @RequestBody UavTelemetryBatchDTO batch) {
-        try {
-            telemetryService.processBatchTelemetry(batch);
+            @RequestBody UavTelemetryBatchDTO batch, HttpServletRequest request) {
+        if (batch == null || batch.getUavs() == null || batch.getUavs().isEmpty()) {
+            log.warn("Received empty telemetry batch");
             return ResponseEntity.ok(ApiResponse.success(null));
-        } catch (Exception e) {
-            log.error("Failed to process telemetry batch", e);
-            return ResponseEntity.internalServerError()
-                    .body(ApiResponse.error("Failed to process telemetry: " + e.getMessage()));
         }
+        TelemetryFrame frame;
+        try {
+            frame = TelemetryFrame.fromBatch(batch);
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected malformed telemetry batch: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
+        }
+        return ingest(frame, request);
+    }
+    
+    /**
+     * Receive a binary telemetry frame from ROS 2 gateway
+     * Compact fixed-layout encoding (see TelemetryFrameCodec) decoded straight into a columnar frame
+     */
+    @PostMapping(value = "/batch/binary", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @Operation(summary = "Receive binary telemetry frame from ROS 2 gateway")
+    public ResponseEntity<ApiResponse<Void>> receiveBinaryTelemetry(
+            @RequestBody byte[] body, HttpServletRequest request) {
+        TelemetryFrame frame;
+        try {
+            frame = TelemetryFrameCodec.decode(ByteBuffer.wrap(body));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected malformed binary telemetry frame: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
+        }
+        return ingest(frame, request);
+    }
+    
+    /**
+     * Ingest queue, duplicate and per-gateway sequence gap counters
+     */
+    @GetMapping("/ingest/stats")
+    @Operation(summary = "Get telemetry ingest statistics")
+    public ResponseEntity<ApiResponse<IngestStatsDTO>> getIngestStats() {
+        return ResponseEntity.ok(ApiResponse.success(telemetryIngestService.getStats()));
+    }
+    
+    /**
+     * Result of the last scheduled retention pass (null data before the first one)
+     */
+    @GetMapping("/retention")
+    @Operation(summary = "Get the result of the last retention run")
+    public ResponseEntity<ApiResponse<RetentionRunDTO>> getRetentionRun() {
+        return ResponseEntity.ok(ApiResponse.success(retentionService.getLastRun()));
     }
     
     /**
@@ -71,16 +158,361 @@ public class TelemetryController {
         return ResponseEntity.ok(ApiResponse.success(state));
     }
     
+    /**
+     * Get the flight statistics of every UAV for a day (default today, live); also pushed on /topic/flight-stats
+     */
+    @GetMapping("/stats")
+    @Operation(summary = "Get daily flight statistics of the fleet")
+    public ResponseEntity<ApiResponse<List<UavFlightStats>>> getFleetFlightStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(ApiResponse.success(telemetryService.getFleetFlightStats(date)));
+    }
+    
+    /**
+     * Get the flight statistics of one UAV for a day (default today, live)
+     */
+    @GetMapping("/stats/{uavId}")
+    @Operation(summary = "Get daily flight statistics of a UAV")
+    public ResponseEntity<ApiResponse<UavFlightStats>> getFlightStats(
+            @PathVariable Integer uavId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        UavFlightStats stats = telemetryService.getFlightStats(uavId, date);
+        if (stats == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(ApiResponse.success(stats));
+    }
+    
+    /**
+     * Find the UAVs that passed through a lat/lon box between startTime and endTime, one entry per pass
+     * Times are at grid-cell granularity (cells partly inside the box count) unless exact=true,
+     * which refines the candidate UAVs against their stored history.
+     */
+    @GetMapping("/area")
+    @Operation(summary = "Find UAVs that passed through an area in a time range")
+    public ResponseEntity<ApiResponse<List<AreaPassDTO>>> findAreaPasses(
+            @RequestParam double minLat,
+            @RequestParam double minLon,
+            @RequestParam double maxLat,
+            @RequestParam double maxLon,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant startTime,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant endTime,
+            @RequestParam(defaultValue = "false") boolean exact) {
+        if (minLat > maxLat || minLon > maxLon || minLat < -90 || maxLat > 90 || minLon < -180 || maxLon > 180
+                || endTime.isBefore(startTime)) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(HttpStatus.BAD_REQUEST.value(),
+                    "Invalid area or time range"));
+        }
+        try {
+            return ResponseEntity.ok(ApiResponse.success(telemetryService.findAreaPasses(
+                    minLat, minLon, maxLat, maxLon, startTime, endTime, exact)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
+        }
+    }
+    
+    /**
+     * Get detected flights (takeoff to landing) overlapping a time range, newest first
+     */
+    @GetMapping("/flights")
+    @Operation(summary = "List detected flights")
+    public ResponseEntity<ApiResponse<List<UavFlight>>> getFlights(
+            @RequestParam(required = false) Integer uavId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant startTime,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant endTime,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || endTime.isBefore(startTime)) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(HttpStatus.BAD_REQUEST.value(),
+                    "limit must be at least 1 and endTime not before startTime"));
+        }
+        return ResponseEntity.ok(ApiResponse.success(telemetryService.getFlights(uavId, startTime, endTime, limit)));
+    }
+    
+    /**
+     * Get the most recent flight of a UAV
+     */
+    @GetMapping("/flights/latest")
+    @Operation(summary = "Get the last flight of a UAV")
+    public ResponseEntity<ApiResponse<UavFlight>> getLastFlight(@RequestParam Integer uavId) {
+        UavFlight flight = telemetryService.getLastFlight(uavId);
+        if (flight == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(ApiResponse.success(flight));
+    }
+    
+    /**
+     * Get a flight by id
+     */
+    @GetMapping("/flights/{flightId}")
+    @Operation(summary = "Get a flight")
+    public ResponseEntity<ApiResponse<UavFlight>> getFlight(@PathVariable Long flightId) {
+        UavFlight flight = telemetryService.getFlight(flightId);
+        if (flight == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(ApiResponse.success(flight));
+    }
+    
+    /**
+     * Get the telemetry history of a flight, optionally simplified like /history/{uavId}
+     */
+    @GetMapping("/flights/{flightId}/history")
+    @Operation(summary = "Get telemetry history of a flight")
+    public ResponseEntity<ApiResponse<List<UavTelemetry>>> getFlightHistory(
+            @PathVariable Long flightId,
+            @RequestParam(required = false) Integer maxPoints,
+            @RequestParam(required = false) Double tolerance) {
+        UavFlight flight = telemetryService.getFlight(flightId);
+        if (flight == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return getTelemetryHistory(flight.getUavId(), flight.getStartTime(), flight.getEndTime(), maxPoints, tolerance);
+    }
+    
     /**
      * Get telemetry history for path replay
+     * With maxPoints (time-bucket min/max/last) or tolerance (Douglas-Peucker, metres) the trajectory
+     * is simplified on the server while streaming over the history cursor.
      */
     @GetMapping("/history/{uavId}")
     @Operation(summary = "Get telemetry history for path replay")
     public ResponseEntity<ApiResponse<List<UavTelemetry>>> getTelemetryHistory(
             @PathVariable Integer uavId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant startTime,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant endTime) {
-        List<UavTelemetry> history = telemetryService.getTelemetryHistory(uavId, startTime, endTime);
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant endTime,
+            @RequestParam(required = false) Integer maxPoints,
+            @RequestParam(required = false) Double tolerance) {
+        if ((maxPoints != null && maxPoints < 2) || (tolerance != null && !(tolerance > 0))) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(HttpStatus.BAD_REQUEST.value(),
+                    "maxPoints must be at least 2 and tolerance greater than 0"));
+        }
+        List<UavTelemetry> history = maxPoints != null || tolerance != null
+                ? telemetryService.getSimplifiedTelemetryHistory(uavId, startTime, endTime, maxPoints, tolerance)
+                : telemetryService.getTelemetryHistory(uavId, startTime, endTime);
         return ResponseEntity.ok(ApiResponse.success(history));
     }
+    
+    /**
+     * Get the trail of every UAV (or of uavIds) over the last seconds, answered from the in-memory
+     * recent history buffer; only parts older than the buffer are read from the database
+     */
+    @GetMapping("/trails")
+    @Operation(summary = "Get recent trails of the fleet")
+    public ResponseEntity<ApiResponse<List<UavTrailDTO>>> getTrails(
+            @RequestParam(defaultValue = "300") long seconds,
+            @RequestParam(required = false) List<Integer> uavIds) {
+        if (seconds <= 0 || seconds > MAX_TRAIL_SECONDS) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(HttpStatus.BAD_REQUEST.value(),
+                    "seconds must be between 1 and " + MAX_TRAIL_SECONDS));
+        }
+        return ResponseEntity.ok(ApiResponse.success(
+                telemetryService.getTrails(uavIds, Instant.now().minusSeconds(seconds))));
+    }
+    
+    /**
+     * Get telemetry rollups (first/last/min/max/avg of position, altitude and ground speed) of one UAV
+     * The coarsest stored resolution that still yields maxPoints buckets is picked automatically.
+     */
+    @GetMapping("/history/{uavId}/rollup")
+    @Operation(summary = "Get telemetry rollups of one UAV for trend charts")
+    public ResponseEntity<ApiResponse<TelemetryRollupSeriesDTO>> getTelemetryRollups(
+            @PathVariable Integer uavId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant startTime,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant endTime,
+            @RequestParam(defaultValue = "500") int maxPoints) {
+        return rollups(uavId, startTime, endTime, maxPoints);
+    }
+    
+    /**
+     * Get telemetry rollups of the whole fleet, at most maxPoints buckets per UAV
+     */
+    @GetMapping("/history/rollup")
+    @Operation(summary = "Get telemetry rollups of all UAVs for fleet trend charts")
+    public ResponseEntity<ApiResponse<TelemetryRollupSeriesDTO>> getFleetTelemetryRollups(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant startTime,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant endTime,
+            @RequestParam(defaultValue = "500") int maxPoints) {
+        return rollups(null, startTime, endTime, maxPoints);
+    }
+    
+    /**
+     * Stream telemetry history as NDJSON (one UavTelemetry per line) straight from a database cursor
+     * At most limit rows are returned; if more remain, the last line is {"nextCursor": "..."} and the
+     * same request with cursor=<token> continues after the last row.
+     */
+    @GetMapping("/history/{uavId}/stream")
+    @Operation(summary = "Stream telemetry history as NDJSON with keyset continuation")
+    public ResponseEntity<StreamingResponseBody> streamTelemetryHistory(
+            @PathVariable Integer uavId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant startTime,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant endTime,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100000") int limit) {
+        if (cursor != null) {
+            try {
+                HistoryCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                return streamingError(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+        }
+        int rowLimit = Math.max(1, limit);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                String nextCursor = telemetryService.streamTelemetryHistory(uavId, startTime, endTime, cursor, rowLimit,
+                        row -> writeLine(generator, row));
+                if (nextCursor != null) {
+                    generator.writeStartObject();
+                    generator.writeStringField("nextCursor", nextCursor);
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+    
+    /**
+     * Export the history of all UAVs (or of uavIds) as a gzip file: CSV or columnar binary (format=columnar)
+     * With flightId the UAV and time range of that flight are exported instead.
+     * Rows are streamed from a database cursor in (timestamp, id) order. For ranges that have settled,
+     * Range: bytes=... resumes an interrupted download (206, honouring If-Range against the ETag).
+     * At most telemetry.export.max-concurrent exports run at once; further requests get 429.
+     */
+    @GetMapping("/export")
+    @Operation(summary = "Bulk export telemetry history as gzip CSV or columnar binary")
+    public ResponseEntity<StreamingResponseBody> exportTelemetry(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant startTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant endTime,
+            @RequestParam(required = false) List<Integer> uavIds,
+            @RequestParam(required = false) Long flightId,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange) throws IOException {
+        TelemetryExportFormat exportFormat;
+        try {
+            exportFormat = TelemetryExportFormat.parse(format);
+        } catch (IllegalArgumentException e) {
+            return streamingError(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (flightId != null) {
+            UavFlight flight = telemetryService.getFlight(flightId);
+            if (flight == null) {
+                return streamingError(HttpStatus.NOT_FOUND, "Flight not found: " + flightId);
+            }
+            uavIds = List.of(flight.getUavId());
+            startTime = flight.getStartTime();
+            endTime = flight.getEndTime().plusMillis(1);
+        }
+        if (startTime == null || endTime == null || !endTime.isAfter(startTime)) {
+            return streamingError(HttpStatus.BAD_REQUEST, "flightId or startTime and endTime required, endTime after startTime");
+        }
+        ITelemetryExportService.Export export = telemetryExportService.open(exportFormat, uavIds, startTime, endTime);
+        if (export == null) {
+            return streamingError(HttpStatus.TOO_MANY_REQUESTS, "Too many exports running, retry later");
+        }
+        
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.parseMediaType("application/gzip"));
+            headers.setContentDisposition(ContentDisposition.attachment().filename(export.getFileName()).build());
+            long from = 0;
+            long to = Long.MAX_VALUE;
+            HttpStatus status = HttpStatus.OK;
+            if (export.isRangeable()) {
+                headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+                headers.setETag(export.getETag());
+                Matcher matcher = range != null ? BYTE_RANGE.matcher(range.trim()) : null;
+                if (matcher != null && matcher.matches() && !(matcher.group(1).isEmpty() && matcher.group(2).isEmpty())
+                        && (ifRange == null || ifRange.equals(export.getETag()))) {
+                    long length = export.measureLength();
+                    try {
+                        if (matcher.group(1).isEmpty()) {
+                            from = Math.max(0, length - Long.parseLong(matcher.group(2)));
+                            to = length;
+                        } else {
+                            from = Long.parseLong(matcher.group(1));
+                            to = matcher.group(2).isEmpty() ? length : Math.min(length, Long.parseLong(matcher.group(2)) + 1);
+                        }
+                    } catch (NumberFormatException e) {
+                        // Positions that do not fit a long are past any export
+                        from = to;
+                    }
+                    if (from >= to) {
+                        export.close();
+                        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length).build();
+                    }
+                    status = HttpStatus.PARTIAL_CONTENT;
+                    headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + from + "-" + (to - 1) + "/" + length);
+                }
+                long length = export.getKnownLength();
+                if (length >= 0) {
+                    headers.setContentLength(Math.min(to, length) - from);
+                }
+            }
+            long start = from;
+            long end = to;
+            StreamingResponseBody body = out -> {
+                try (export) {
+                    export.writeTo(out, start, end);
+                }
+            };
+            return ResponseEntity.status(status).headers(headers).body(body);
+        } catch (IOException | RuntimeException e) {
+            export.close();
+            throw e;
+        }
+    }
+    
+    private ResponseEntity<ApiResponse<TelemetryRollupSeriesDTO>> rollups(Integer uavId, Instant startTime,
+                                                                         Instant endTime, int maxPoints) {
+        if (maxPoints < 1 || !endTime.isAfter(startTime)) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(HttpStatus.BAD_REQUEST.value(),
+                    "maxPoints must be at least 1 and endTime after startTime"));
+        }
+        return ResponseEntity.ok(ApiResponse.success(
+                telemetryService.getTelemetryRollups(uavId, startTime, endTime, maxPoints)));
+    }
+    
+    private ResponseEntity<ApiResponse<Void>> ingest(TelemetryFrame frame, HttpServletRequest request) {
+        String gatewayId = request.getHeader(GATEWAY_ID_HEADER);
+        frame.sourceId = gatewayId != null && !gatewayId.isBlank() ? gatewayId : request.getRemoteAddr();
+        try {
+            switch (telemetryIngestService.ingest(frame)) {
+                case QUEUE_FULL:
+                    return tooManyRequests();
+                case DUPLICATE:
+                    return ResponseEntity.ok(ApiResponse.success("Duplicate telemetry batch ignored", null));
+                default:
+                    return ResponseEntity.ok(ApiResponse.success(null));
+            }
+        } catch (Exception e) {
+            log.error("Failed to process telemetry batch", e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error("Failed to process telemetry: " + e.getMessage()));
+        }
+    }
+    
+    private ResponseEntity<StreamingResponseBody> streamingError(HttpStatus status, String message) {
+        ApiResponse<Void> error = ApiResponse.error(status.value(), message);
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON)
+                .body(out -> objectMapper.writeValue(out, error));
+    }
+    
+    private static void writeLine(JsonGenerator generator, Object value) {
+        try {
+            generator.writeObject(value);
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private <T> ResponseEntity<ApiResponse<T>> tooManyRequests() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(telemetryIngestService.getRetryAfterSeconds()))
+                .body(ApiResponse.error(HttpStatus.TOO_MANY_REQUESTS.value(), "Telemetry ingest queue is full"));
+    }
 }
@@ -0,0 +1,16 @@
+package com.ucs.dto;
+
+import lombok.Data;
+import java.time.Instant;
+
+/**
+ * One pass of a UAV through a queried area: when it entered and left
+ */
+@Data
+public class AreaPassDTO {
+    private Integer uavId;
+    private Instant entryTime;
+    private Instant exitTime;
+    // Samples of the pass; at grid cell granularity unless the query was exact
+    private Long sampleCount;
+}
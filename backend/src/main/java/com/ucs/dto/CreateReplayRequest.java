@@ -0,0 +1,17 @@
+package com.ucs.dto;
+
+import lombok.Data;
+import java.time.Instant;
+import java.util.List;
+
+@Data
+public class CreateReplayRequest {
+    private Instant startTime;
+    private Instant endTime;
+    // Playback speed, 1x to 50x (default 1x)
+    private Double speed;
+    // UAVs to replay; empty or null replays the whole fleet
+    private List<Integer> uavIds;
+    // Flights to replay; when set, their UAVs and overall time span replace uavIds / startTime / endTime
+    private List<Long> flightIds;
+}
@@ -0,0 +1,27 @@
+package com.ucs.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fleet status message on /topic/drones
+ * snapshot: drones holds the whole fleet as of seq; delta: changed holds, per UAV whose status
+ * changed since seq - 1, its uavId plus only the changed fields (null when a field was cleared),
+ * removed lists UAVs no longer reported. seq increases by one per message within an epoch
+ * (server start); a client that sees another epoch or a gap in seq resubscribes to
+ * /app/drones/snapshot and drops deltas with seq at or below the snapshot's.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FleetUpdateDTO {
+    private String type;
+    private long epoch;
+    private long seq;
+    private long timestamp;
+    private List<DroneStatusDTO> drones;
+    private List<Map<String, Object>> changed;
+    private List<String> removed;
+}
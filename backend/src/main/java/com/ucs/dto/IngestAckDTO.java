@@ -0,0 +1,39 @@
+package com.ucs.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Control message sent to a gateway on the streaming ingest connection
+ * ack: every frame up to seq was handled; nack: frame seq was not queued or failed to process,
+ * resend after retryAfterMs; error: a message could not be decoded
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class IngestAckDTO {
+    private String type;
+    private Long seq;
+    private Long frames;
+    private Long retryAfterMs;
+    private String message;
+    
+    public static IngestAckDTO ack(long seq, long frames) {
+        return new IngestAckDTO("ack", seq, frames, null, null);
+    }
+    
+    public static IngestAckDTO nack(long seq, long retryAfterMs) {
+        return nack(seq, retryAfterMs, "Telemetry ingest queue is full");
+    }
+    
+    public static IngestAckDTO nack(long seq, long retryAfterMs, String message) {
+        return new IngestAckDTO("nack", seq, null, retryAfterMs, message);
+    }
+    
+    public static IngestAckDTO error(String message) {
+        return new IngestAckDTO("error", null, null, null, message);
+    }
+}
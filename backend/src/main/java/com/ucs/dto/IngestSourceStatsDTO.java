@@ -0,0 +1,27 @@
+package com.ucs.dto;
+
+import lombok.Data;
+import java.time.Instant;
+
+/**
+ * Sequence tracking counters for one gateway source
+ */
+@Data
+public class IngestSourceStatsDTO {
+    private String sourceId;
+    private Long lastSeq;
+    private Long received;
+    private Long accepted;
+    
+    // Retried frames that were already ingested
+    private Long duplicates;
+    // Frames older than the tracking window
+    private Long stale;
+    
+    // Link loss: number of sequence jumps and frames still missing
+    private Long gaps;
+    private Long missing;
+    private Long reordered;
+    private Long resets;
+    private Instant lastSeen;
+}
@@ -0,0 +1,30 @@
+package com.ucs.dto;
+
+import lombok.Data;
+import java.util.List;
+
+/**
+ * Telemetry ingest pipeline statistics
+ */
+@Data
+public class IngestStatsDTO {
+    private String mode;
+    private Integer queueDepth;
+    private Integer queueCapacity;
+    
+    // Frame counters
+    private Long accepted;
+    private Long duplicates;
+    private Long stale;
+    private Long rejected;
+    private Long processed;
+    private Long failed;
+    private Long unsequenced;
+    
+    // History decimation: samples written to uav_telemetry vs. skipped
+    private Long historyRowsKept;
+    private Long historyRowsDropped;
+    
+    // Per gateway source sequence tracking
+    private List<IngestSourceStatsDTO> sources;
+}
@@ -0,0 +1,21 @@
+package com.ucs.dto;
+
+import lombok.Data;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Replay session state; fleet frames are published to destination
+ */
+@Data
+public class ReplaySessionDTO {
+    private String sessionId;
+    private String destination;
+    // PLAYING, PAUSED or ENDED
+    private String state;
+    private Instant startTime;
+    private Instant endTime;
+    private Instant position;
+    private Double speed;
+    private List<Integer> uavIds;
+}
@@ -0,0 +1,22 @@
+package com.ucs.dto;
+
+import lombok.Data;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Result of one retention run
+ */
+@Data
+public class RetentionRunDTO {
+    private Instant startedAt;
+    private Instant finishedAt;
+    // false when the run hit its time budget before every data class was purged
+    private Boolean complete;
+    // Rows deleted per data class (raw, rollup-1s, rollup-1m, rollup-1h, events, command-logs)
+    private Map<String, Long> deletedRows = new LinkedHashMap<>();
+    // TimescaleDB chunks dropped per data class
+    private Map<String, Integer> droppedChunks = new LinkedHashMap<>();
+    private String error;
+}
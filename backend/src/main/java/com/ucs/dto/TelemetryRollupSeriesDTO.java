@@ -0,0 +1,17 @@
+package com.ucs.dto;
+
+import com.ucs.entity.UavTelemetryRollup;
+import lombok.Data;
+import java.util.List;
+
+/**
+ * Telemetry rollups answering a trend query
+ * resolution is the stored rollup level that was read (seconds); bucketSeconds the width of the
+ * returned buckets, a multiple of resolution chosen so every UAV has at most maxPoints rows
+ */
+@Data
+public class TelemetryRollupSeriesDTO {
+    private Integer resolution;
+    private Integer bucketSeconds;
+    private List<UavTelemetryRollup> rollups;
+}
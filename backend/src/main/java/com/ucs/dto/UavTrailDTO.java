@@ -0,0 +1,16 @@
+package com.ucs.dto;
+
+import lombok.Data;
+
+/**
+ * Recent positions of one UAV for drawing its trail, in columnar form
+ * timestamps are epoch milliseconds; all arrays have the same length
+ */
+@Data
+public class UavTrailDTO {
+    private Integer uavId;
+    private long[] timestamps;
+    private double[] lat;
+    private double[] lon;
+    private double[] alt;
+}
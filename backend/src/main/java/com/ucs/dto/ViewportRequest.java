@@ -0,0 +1,16 @@
+package com.ucs.dto;
+
+import lombok.Data;
+
+@Data
+public class ViewportRequest {
+    // Visible map area in degrees
+    private Double minLat;
+    private Double minLon;
+    private Double maxLat;
+    private Double maxLon;
+    // Map zoom level (web map tiles); lower zoom gets fewer updates per second
+    private Integer zoom;
+    // Client counter; inbound messages may be handled out of order, so a lower seq than the last applied is ignored
+    private Long seq;
+}
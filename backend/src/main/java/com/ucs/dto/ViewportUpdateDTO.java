@@ -0,0 +1,21 @@
+package com.ucs.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.ucs.telemetry.TelemetryFrame;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Update on /user/queue/viewport for the session's viewport
+ * telemetry holds the latest sample of each UAV near the viewport that changed or came into view
+ * since the previous update (in the /topic/telemetry shape); left lists UAVs that moved out of it.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ViewportUpdateDTO {
+    private int zoom;
+    private long intervalMs;
+    private TelemetryFrame telemetry;
+    private List<Integer> left;
+}
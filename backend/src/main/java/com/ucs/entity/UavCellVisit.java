@@ -0,0 +1,44 @@
+package com.ucs.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.Instant;
+
+/**
+ * UAV cell visit entity - spatio-temporal index over telemetry
+ * One row per (grid cell, time bucket, UAV) with the first and last sample of the UAV in that
+ * cell during that bucket; answers "which UAVs passed through this area" without scanning history
+ */
+@Data
+@Entity
+@Table(name = "uav_cell_visit", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_uav_cell_visit", columnNames = {"cell_id", "bucket_start", "uav_id"})
+}, indexes = {
+    @Index(name = "idx_uav_cell_visit_bucket", columnList = "bucket_start")
+})
+public class UavCellVisit {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @JsonIgnore
+    private Long id;
+    
+    // Grid cell (SpatialIndexStore.cellOf)
+    @Column(name = "cell_id", nullable = false)
+    private Long cellId;
+    
+    @Column(name = "bucket_start", nullable = false)
+    private Instant bucketStart;
+    
+    @Column(name = "uav_id", nullable = false)
+    private Integer uavId;
+    
+    @Column(name = "first_time", nullable = false)
+    private Instant firstTime;
+    
+    @Column(name = "last_time", nullable = false)
+    private Instant lastTime;
+    
+    @Column(name = "sample_count", nullable = false)
+    private Long sampleCount;
+}
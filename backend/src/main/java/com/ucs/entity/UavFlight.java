@@ -0,0 +1,89 @@
+package com.ucs.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.Instant;
+
+/**
+ * UAV flight entity - one takeoff-to-landing segment of a UAV's telemetry
+ * Detected on the ingest path; the id is the flight id used by history, replay and export
+ */
+@Data
+@Entity
+@Table(name = "uav_flight", indexes = {
+    @Index(name = "idx_uav_flight_uav_start", columnList = "uav_id, start_time"),
+    @Index(name = "idx_uav_flight_start", columnList = "start_time")
+})
+public class UavFlight {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "uav_id", nullable = false)
+    private Integer uavId;
+    
+    // First airborne sample
+    @Column(name = "start_time", nullable = false)
+    private Instant startTime;
+    
+    // Landing time, or the latest sample while in progress
+    @Column(name = "end_time", nullable = false)
+    private Instant endTime;
+    
+    @Column(name = "in_progress", nullable = false)
+    private Boolean inProgress;
+    
+    @Column(name = "takeoff_lat", nullable = false)
+    private Double takeoffLat;
+    
+    @Column(name = "takeoff_lon", nullable = false)
+    private Double takeoffLon;
+    
+    @Column(name = "takeoff_alt", nullable = false)
+    private Double takeoffAlt;
+    
+    // Landing position, or the latest position while in progress
+    @Column(name = "landing_lat", nullable = false)
+    private Double landingLat;
+    
+    @Column(name = "landing_lon", nullable = false)
+    private Double landingLon;
+    
+    @Column(name = "landing_alt", nullable = false)
+    private Double landingAlt;
+    
+    // Bounding box
+    @Column(name = "min_lat", nullable = false)
+    private Double minLat;
+    
+    @Column(name = "max_lat", nullable = false)
+    private Double maxLat;
+    
+    @Column(name = "min_lon", nullable = false)
+    private Double minLon;
+    
+    @Column(name = "max_lon", nullable = false)
+    private Double maxLon;
+    
+    @Column(name = "min_alt", nullable = false)
+    private Double minAlt;
+    
+    @Column(name = "max_alt", nullable = false)
+    private Double maxAlt;
+    
+    // Summary
+    @Column(name = "sample_count", nullable = false)
+    private Long sampleCount;
+    
+    @Column(name = "distance_m", nullable = false)
+    private Double distanceM;
+    
+    @Column(name = "duration_seconds", nullable = false)
+    private Double durationSeconds;
+    
+    @Column(name = "max_ground_speed")
+    private Double maxGroundSpeed;
+    
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
@@ -0,0 +1,90 @@
+package com.ucs.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * UAV flight statistics entity - running totals of one UAV over one day
+ * Accumulated on every ingested sample and flushed periodically, so "how far has UAV 17
+ * flown today" never scans uav_telemetry
+ */
+@Data
+@Entity
+@Table(name = "uav_flight_stats", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_uav_flight_stats", columnNames = {"uav_id", "stats_date"})
+}, indexes = {
+    @Index(name = "idx_uav_flight_stats_date", columnList = "stats_date")
+})
+public class UavFlightStats {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @JsonIgnore
+    private Long id;
+    
+    @Column(name = "uav_id", nullable = false)
+    private Integer uavId;
+    
+    // Day in telemetry.stats.zone
+    @Column(name = "stats_date", nullable = false)
+    private LocalDate statsDate;
+    
+    @Column(name = "sample_count", nullable = false)
+    private Long sampleCount;
+    
+    @Column(name = "first_time", nullable = false)
+    private Instant firstTime;
+    
+    @Column(name = "last_time", nullable = false)
+    private Instant lastTime;
+    
+    // Last position, also where the distance continues from after a restart
+    @Column(name = "last_lat", nullable = false)
+    private Double lastLat;
+    
+    @Column(name = "last_lon", nullable = false)
+    private Double lastLon;
+    
+    @Column(name = "last_alt", nullable = false)
+    private Double lastAlt;
+    
+    @Column(name = "last_active")
+    private Boolean lastActive;
+    
+    // Great-circle distance over successive positions in metres
+    @Column(name = "distance_m", nullable = false)
+    private Double distanceM;
+    
+    // Sum of altitude gains / losses in metres
+    @Column(name = "climb_m", nullable = false)
+    private Double climbM;
+    
+    @Column(name = "descent_m", nullable = false)
+    private Double descentM;
+    
+    @Column(name = "min_alt", nullable = false)
+    private Double minAlt;
+    
+    @Column(name = "max_alt", nullable = false)
+    private Double maxAlt;
+    
+    // Time between successive samples while active, gaps longer than telemetry.stats.max-gap-seconds excluded
+    @Column(name = "active_seconds", nullable = false)
+    private Double activeSeconds;
+    
+    // distanceM / activeSeconds
+    @Column(name = "avg_speed")
+    private Double avgSpeed;
+    
+    // Reported ground speed
+    @Column(name = "speed_count", nullable = false)
+    private Long speedCount;
+    
+    @Column(name = "avg_ground_speed")
+    private Double avgGroundSpeed;
+    
+    @Column(name = "max_ground_speed")
+    private Double maxGroundSpeed;
+}
@@ -12,7 +12,8 @@ import java.time.Instant;
 @Entity
 @Table(name = "uav_telemetry", indexes = {
     @Index(name = "idx_uav_telemetry_uav_id", columnList = "uav_id"),
-    @Index(name = "idx_uav_telemetry_timestamp", columnList = "timestamp")
+    @Index(name = "idx_uav_telemetry_timestamp", columnList = "timestamp"),
+    @Index(name = "idx_uav_telemetry_uav_id_timestamp", columnList = "uav_id, timestamp, id")
 })
 public class UavTelemetry {
     @Id
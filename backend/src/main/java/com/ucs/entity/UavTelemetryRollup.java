@@ -0,0 +1,141 @@
+package com.ucs.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.Instant;
+
+/**
+ * UAV Telemetry rollup entity - per-UAV aggregates of telemetry over fixed time buckets
+ * Maintained incrementally by the ingest path at 1 s, 1 min and 1 h resolution and used
+ * for long-range trend queries instead of scanning uav_telemetry
+ */
+@Data
+@Entity
+@Table(name = "uav_telemetry_rollup", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_uav_telemetry_rollup", columnNames = {"uav_id", "resolution", "bucket_start"})
+}, indexes = {
+    @Index(name = "idx_uav_telemetry_rollup_bucket", columnList = "resolution, bucket_start")
+})
+public class UavTelemetryRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @JsonIgnore
+    private Long id;
+    
+    @Column(name = "uav_id", nullable = false)
+    private Integer uavId;
+    
+    // Bucket width in seconds (1, 60 or 3600)
+    @Column(name = "resolution", nullable = false)
+    private Integer resolution;
+    
+    @Column(name = "bucket_start", nullable = false)
+    private Instant bucketStart;
+    
+    @Column(name = "sample_count", nullable = false)
+    private Long sampleCount;
+    
+    // First and last sample of the bucket
+    @Column(name = "first_time", nullable = false)
+    private Instant firstTime;
+    
+    @Column(name = "first_lat", nullable = false)
+    private Double firstLat;
+    
+    @Column(name = "first_lon", nullable = false)
+    private Double firstLon;
+    
+    @Column(name = "first_alt", nullable = false)
+    private Double firstAlt;
+    
+    @Column(name = "last_time", nullable = false)
+    private Instant lastTime;
+    
+    @Column(name = "last_lat", nullable = false)
+    private Double lastLat;
+    
+    @Column(name = "last_lon", nullable = false)
+    private Double lastLon;
+    
+    @Column(name = "last_alt", nullable = false)
+    private Double lastAlt;
+    
+    // Position envelope and centroid
+    @Column(name = "min_lat", nullable = false)
+    private Double minLat;
+    
+    @Column(name = "max_lat", nullable = false)
+    private Double maxLat;
+    
+    @Column(name = "min_lon", nullable = false)
+    private Double minLon;
+    
+    @Column(name = "max_lon", nullable = false)
+    private Double maxLon;
+    
+    @Column(name = "avg_lat", nullable = false)
+    private Double avgLat;
+    
+    @Column(name = "avg_lon", nullable = false)
+    private Double avgLon;
+    
+    // Altitude
+    @Column(name = "min_alt", nullable = false)
+    private Double minAlt;
+    
+    @Column(name = "max_alt", nullable = false)
+    private Double maxAlt;
+    
+    @Column(name = "avg_alt", nullable = false)
+    private Double avgAlt;
+    
+    // Ground speed, over the samples that reported it
+    @Column(name = "speed_count", nullable = false)
+    private Long speedCount;
+    
+    @Column(name = "min_speed")
+    private Double minSpeed;
+    
+    @Column(name = "max_speed")
+    private Double maxSpeed;
+    
+    @Column(name = "avg_speed")
+    private Double avgSpeed;
+    
+    /**
+     * Fold another aggregate of the same UAV into this one
+     */
+    public void merge(UavTelemetryRollup other) {
+        long count = sampleCount + other.sampleCount;
+        if (other.firstTime.isBefore(firstTime)) {
+            firstTime = other.firstTime;
+            firstLat = other.firstLat;
+            firstLon = other.firstLon;
+            firstAlt = other.firstAlt;
+        }
+        if (!other.lastTime.isBefore(lastTime)) {
+            lastTime = other.lastTime;
+            lastLat = other.lastLat;
+            lastLon = other.lastLon;
+            lastAlt = other.lastAlt;
+        }
+        minLat = Math.min(minLat, other.minLat);
+        maxLat = Math.max(maxLat, other.maxLat);
+        minLon = Math.min(minLon, other.minLon);
+        maxLon = Math.max(maxLon, other.maxLon);
+        avgLat = (avgLat * sampleCount + other.avgLat * other.sampleCount) / count;
+        avgLon = (avgLon * sampleCount + other.avgLon * other.sampleCount) / count;
+        minAlt = Math.min(minAlt, other.minAlt);
+        maxAlt = Math.max(maxAlt, other.maxAlt);
+        avgAlt = (avgAlt * sampleCount + other.avgAlt * other.sampleCount) / count;
+        if (other.speedCount > 0) {
+            long speeds = speedCount + other.speedCount;
+            minSpeed = speedCount > 0 ? Math.min(minSpeed, other.minSpeed) : other.minSpeed;
+            maxSpeed = speedCount > 0 ? Math.max(maxSpeed, other.maxSpeed) : other.maxSpeed;
+            avgSpeed = ((speedCount > 0 ? avgSpeed * speedCount : 0) + other.avgSpeed * other.speedCount) / speeds;
+            speedCount = speeds;
+        }
+        sampleCount = count;
+    }
+}
@@ -17,4 +17,7 @@ public interface DroneOwnershipRepository extends JpaRepository<DroneOwnership,
     
     @Query("SELECT do.droneId FROM DroneOwnership do WHERE do.userId = :userId AND do.expiredAt IS NULL")
     List<Long> findDroneIdsByUserId(Long userId);
+    
+    @Query("SELECT do FROM DroneOwnership do WHERE do.expiredAt IS NULL")
+    List<DroneOwnership> findAllActive();
 }
@@ -0,0 +1,95 @@
+package com.ucs.repository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.Temporal;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded deletes for data retention
+ * Rows are removed in chunks of at most limit rows, each chunk in its own short statement and
+ * transaction, so locks and WAL stay small and concurrent inserts are never blocked for long.
+ * On TimescaleDB, hypertables drop whole chunks instead of deleting rows.
+ * Table and column names come from code, never from user input.
+ */
+@Slf4j
+@Repository
+public class RetentionDeleter {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    private final ConcurrentHashMap<String, Boolean> hypertables = new ConcurrentHashMap<>();
+    private boolean postgres;
+
+    public RetentionDeleter(JdbcTemplate jdbcTemplate, DataSource dataSource) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            postgres = "PostgreSQL".equalsIgnoreCase(product);
+        } catch (Exception e) {
+            log.warn("Could not detect database product, retention uses row deletes only: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Whether the table is a TimescaleDB hypertable (checked once per table)
+     */
+    public boolean isHypertable(String table) {
+        if (!postgres) {
+            return false;
+        }
+        return hypertables.computeIfAbsent(table, name -> {
+            try {
+                Integer count = jdbcTemplate.queryForObject(
+                        "SELECT count(*) FROM timescaledb_information.hypertables WHERE hypertable_name = ?",
+                        Integer.class, name);
+                return count != null && count > 0;
+            } catch (DataAccessException e) {
+                // TimescaleDB is not installed
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Drop the hypertable chunks that only hold rows older than cutoff
+     * @return number of chunks dropped
+     */
+    public int dropChunks(String table, Instant cutoff) {
+        Integer dropped = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM drop_chunks(CAST(? AS regclass), older_than => CAST(? AS timestamptz))",
+                Integer.class, table, OffsetDateTime.ofInstant(cutoff, ZoneOffset.UTC));
+        return dropped != null ? dropped : 0;
+    }
+
+    /**
+     * Delete at most limit rows whose timeColumn is before cutoff
+     * @param filterColumn optional extra equality filter (null for none)
+     * @return number of rows deleted; fewer than limit means nothing older is left
+     */
+    public int deleteChunk(String table, String timeColumn, Temporal cutoff,
+                           String filterColumn, Object filterValue, int limit) {
+        String where = timeColumn + " < ?" + (filterColumn != null ? " AND " + filterColumn + " = ?" : "");
+        String sql = "DELETE FROM " + table + " WHERE id IN (SELECT id FROM " + table + " WHERE " + where + " LIMIT ?)";
+        Object time = cutoff instanceof Instant instant ? OffsetDateTime.ofInstant(instant, ZoneOffset.UTC) : cutoff;
+        return filterColumn != null
+                ? jdbcTemplate.update(sql, time, filterValue, limit)
+                : jdbcTemplate.update(sql, time, limit);
+    }
+}
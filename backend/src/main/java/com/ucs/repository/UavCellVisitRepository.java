@@ -0,0 +1,25 @@
+package com.ucs.repository;
+
+import com.ucs.entity.UavCellVisit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for the spatio-temporal cell visit index
+ */
+@Repository
+public interface UavCellVisitRepository extends JpaRepository<UavCellVisit, Long> {
+    
+    /**
+     * Visits of a set of cells within a bucket range (served by uk_uav_cell_visit)
+     */
+    List<UavCellVisit> findByCellIdInAndBucketStartBetween(
+            Collection<Long> cellIds, Instant startBucket, Instant endBucket);
+    
+    Optional<UavCellVisit> findByCellIdAndBucketStartAndUavId(Long cellId, Instant bucketStart, Integer uavId);
+}
@@ -0,0 +1,148 @@
+package com.ucs.repository;
+
+import com.ucs.entity.UavCellVisit;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Bulk merge writer for the uav_cell_visit table
+ * Pending visits are folded into the stored rows (earliest first_time, latest last_time, summed
+ * sample_count) in one statement per chunk: INSERT ... ON CONFLICT on PostgreSQL, MERGE ... USING
+ * on H2, and a JPA read-modify-write for other databases. sample_count is additive, so all chunks of a
+ * call commit together: a failed call can be retried without counting anything twice.
+ */
+@Slf4j
+@Repository
+public class UavCellVisitWriter {
+
+    private static final String COLUMNS = "cell_id, bucket_start, uav_id, first_time, last_time, sample_count";
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    private enum Dialect { POSTGRESQL, H2, OTHER }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final UavCellVisitRepository cellVisitRepository;
+
+    private Dialect dialect = Dialect.OTHER;
+
+    public UavCellVisitWriter(JdbcTemplate jdbcTemplate,
+                              DataSource dataSource,
+                              UavCellVisitRepository cellVisitRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.cellVisitRepository = cellVisitRepository;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            if ("PostgreSQL".equalsIgnoreCase(product)) {
+                dialect = Dialect.POSTGRESQL;
+            } else if ("H2".equalsIgnoreCase(product)) {
+                dialect = Dialect.H2;
+            }
+        } catch (Exception e) {
+            log.warn("Could not detect database product, using JPA for cell visits: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Fold pending visits into the stored rows; each (cellId, bucketStart, uavId) may appear once
+     */
+    @Transactional
+    public void mergeAll(List<UavCellVisit> visits) {
+        if (visits.isEmpty()) {
+            return;
+        }
+        if (dialect == Dialect.OTHER) {
+            for (UavCellVisit visit : visits) {
+                UavCellVisit stored = cellVisitRepository.findByCellIdAndBucketStartAndUavId(
+                        visit.getCellId(), visit.getBucketStart(), visit.getUavId()).orElse(null);
+                if (stored != null) {
+                    if (visit.getFirstTime().isBefore(stored.getFirstTime())) {
+                        stored.setFirstTime(visit.getFirstTime());
+                    }
+                    if (visit.getLastTime().isAfter(stored.getLastTime())) {
+                        stored.setLastTime(visit.getLastTime());
+                    }
+                    stored.setSampleCount(stored.getSampleCount() + visit.getSampleCount());
+                    cellVisitRepository.save(stored);
+                } else {
+                    cellVisitRepository.save(visit);
+                }
+            }
+            return;
+        }
+        for (int from = 0; from < visits.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<UavCellVisit> chunk = visits.subList(from, Math.min(visits.size(), from + MAX_ROWS_PER_STATEMENT));
+            String sql = dialect == Dialect.POSTGRESQL ? postgresMergeSql(chunk.size()) : h2MergeSql(chunk.size());
+            jdbcTemplate.update(sql, ps -> bindRows(ps, chunk));
+        }
+    }
+
+    private static String postgresMergeSql(int rowCount) {
+        return "INSERT INTO uav_cell_visit (" + COLUMNS + ") VALUES "
+                + rows("(?,?,?,?,?,?)", rowCount)
+                + " ON CONFLICT (cell_id, bucket_start, uav_id) DO UPDATE SET "
+                + mergeAssignments("uav_cell_visit", "EXCLUDED");
+    }
+
+    private static String h2MergeSql(int rowCount) {
+        // H2 types untyped VALUES parameters as VARCHAR, which breaks the merge arithmetic
+        String placeholders = "(CAST(? AS BIGINT),CAST(? AS TIMESTAMP WITH TIME ZONE),CAST(? AS INTEGER),"
+                + "CAST(? AS TIMESTAMP WITH TIME ZONE),CAST(? AS TIMESTAMP WITH TIME ZONE),CAST(? AS BIGINT))";
+        return "MERGE INTO uav_cell_visit t USING (VALUES " + rows(placeholders, rowCount) + ") AS s(" + COLUMNS + ")"
+                + " ON t.cell_id = s.cell_id AND t.bucket_start = s.bucket_start AND t.uav_id = s.uav_id"
+                + " WHEN MATCHED THEN UPDATE SET " + mergeAssignments("t", "s")
+                + " WHEN NOT MATCHED THEN INSERT (" + COLUMNS + ") VALUES"
+                + " (s.cell_id, s.bucket_start, s.uav_id, s.first_time, s.last_time, s.sample_count)";
+    }
+
+    private static String mergeAssignments(String t, String s) {
+        return "first_time = LEAST(" + t + ".first_time, " + s + ".first_time), "
+                + "last_time = GREATEST(" + t + ".last_time, " + s + ".last_time), "
+                + "sample_count = " + t + ".sample_count + " + s + ".sample_count";
+    }
+
+    private static String rows(String placeholders, int rowCount) {
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(placeholders);
+        }
+        return sql.toString();
+    }
+
+    private static void bindRows(PreparedStatement ps, List<UavCellVisit> rows) throws SQLException {
+        int i = 1;
+        for (UavCellVisit row : rows) {
+            ps.setLong(i++, row.getCellId());
+            setTime(ps, i++, row.getBucketStart());
+            ps.setInt(i++, row.getUavId());
+            setTime(ps, i++, row.getFirstTime());
+            setTime(ps, i++, row.getLastTime());
+            ps.setLong(i++, row.getSampleCount());
+        }
+    }
+
+    private static void setTime(PreparedStatement ps, int index, Instant value) throws SQLException {
+        ps.setObject(index, OffsetDateTime.ofInstant(value, ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,50 @@
+package com.ucs.repository;
+
+import com.ucs.entity.UavFlight;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for detected UAV flights
+ */
+@Repository
+public interface UavFlightRepository extends JpaRepository<UavFlight, Long> {
+    
+    /**
+     * Most recent flight of a UAV
+     */
+    Optional<UavFlight> findFirstByUavIdOrderByStartTimeDesc(Integer uavId);
+    
+    /**
+     * Flight of a UAV still marked in progress (left open by a shutdown)
+     */
+    Optional<UavFlight> findFirstByUavIdAndInProgressTrueOrderByStartTimeDesc(Integer uavId);
+    
+    List<UavFlight> findByInProgressTrue();
+    
+    /**
+     * Flights overlapping a time range, newest first
+     */
+    @Query("SELECT f FROM UavFlight f WHERE f.startTime <= :endTime AND f.endTime >= :startTime "
+            + "ORDER BY f.startTime DESC")
+    List<UavFlight> findOverlapping(@Param("startTime") Instant startTime,
+                                    @Param("endTime") Instant endTime,
+                                    Pageable pageable);
+    
+    /**
+     * Flights of one UAV overlapping a time range, newest first
+     */
+    @Query("SELECT f FROM UavFlight f WHERE f.uavId = :uavId AND f.startTime <= :endTime "
+            + "AND f.endTime >= :startTime ORDER BY f.startTime DESC")
+    List<UavFlight> findOverlappingByUavId(@Param("uavId") Integer uavId,
+                                           @Param("startTime") Instant startTime,
+                                           @Param("endTime") Instant endTime,
+                                           Pageable pageable);
+}
@@ -0,0 +1,26 @@
+package com.ucs.repository;
+
+import com.ucs.entity.UavFlightStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for UAV daily flight statistics
+ */
+@Repository
+public interface UavFlightStatsRepository extends JpaRepository<UavFlightStats, Long> {
+    
+    Optional<UavFlightStats> findByUavIdAndStatsDate(Integer uavId, LocalDate statsDate);
+    
+    List<UavFlightStats> findByStatsDateOrderByUavIdAsc(LocalDate statsDate);
+    
+    List<UavFlightStats> findByStatsDateAndUavIdIn(LocalDate statsDate, Collection<Integer> uavIds);
+    
+    List<UavFlightStats> findByUavIdAndStatsDateBetweenOrderByStatsDateAsc(
+            Integer uavId, LocalDate startDate, LocalDate endDate);
+}
@@ -0,0 +1,194 @@
+package com.ucs.repository;
+
+import com.ucs.entity.UavLatestState;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk UPSERT writer for the uav_latest_state table
+ * UavLatestState has an assigned id, so saveAll issues a SELECT per UAV before each merge.
+ * This writer stores a whole batch in one statement: INSERT ... ON CONFLICT on PostgreSQL,
+ * MERGE ... USING on H2, and falls back to JPA for other databases.
+ */
+@Slf4j
+@Repository
+public class UavLatestStateUpsertWriter {
+
+    private static final List<String> COLUMNS = Arrays.asList(
+            "uav_id", "last_update", "lat", "lon", "alt", "heading", "ground_speed", "vertical_speed",
+            "ned_x", "ned_y", "ned_z", "vx", "vy", "vz", "data_age", "msg_count", "is_active");
+
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    private enum Dialect { POSTGRESQL, H2, OTHER }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final UavLatestStateRepository latestStateRepository;
+
+    private Dialect dialect = Dialect.OTHER;
+
+    public UavLatestStateUpsertWriter(JdbcTemplate jdbcTemplate,
+                                      DataSource dataSource,
+                                      UavLatestStateRepository latestStateRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.latestStateRepository = latestStateRepository;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            if ("PostgreSQL".equalsIgnoreCase(product)) {
+                dialect = Dialect.POSTGRESQL;
+            } else if ("H2".equalsIgnoreCase(product)) {
+                dialect = Dialect.H2;
+            }
+            log.info("uav_latest_state upsert dialect: {} ({})", dialect, product);
+        } catch (Exception e) {
+            log.warn("Could not detect database product, using JPA saveAll for latest state: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Insert or update the latest state of every UAV in the list
+     * @param onlyIfNewer skip rows whose last_update is older than the stored one,
+     *                    so out-of-order batches cannot move a UAV backwards
+     */
+    public void upsertAll(List<UavLatestState> states, boolean onlyIfNewer) {
+        if (states.isEmpty()) {
+            return;
+        }
+        List<UavLatestState> rows = newestPerUav(states);
+        if (rows.isEmpty()) {
+            return;
+        }
+        if (dialect == Dialect.OTHER) {
+            latestStateRepository.saveAll(rows);
+            return;
+        }
+        for (int from = 0; from < rows.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<UavLatestState> chunk = rows.subList(from, Math.min(rows.size(), from + MAX_ROWS_PER_STATEMENT));
+            String sql = dialect == Dialect.POSTGRESQL
+                    ? postgresUpsertSql(chunk.size(), onlyIfNewer)
+                    : h2MergeSql(chunk.size(), onlyIfNewer);
+            jdbcTemplate.update(sql, ps -> bindRows(ps, chunk));
+        }
+    }
+
+    /**
+     * A single statement may touch each key only once, so keep the newest row per UAV
+     * Rows without a position are dropped: lat, lon and alt are NOT NULL, and one such row would fail the batch.
+     */
+    private static List<UavLatestState> newestPerUav(List<UavLatestState> states) {
+        Map<Integer, UavLatestState> newest = new LinkedHashMap<>();
+        for (UavLatestState state : states) {
+            if (state.getLat() == null || state.getLon() == null || state.getAlt() == null) {
+                continue;
+            }
+            newest.merge(state.getUavId(), state,
+                    (a, b) -> b.getLastUpdate().isBefore(a.getLastUpdate()) ? a : b);
+        }
+        return new ArrayList<>(newest.values());
+    }
+
+    private static String postgresUpsertSql(int rowCount, boolean onlyIfNewer) {
+        StringBuilder sql = new StringBuilder("INSERT INTO uav_latest_state (")
+                .append(String.join(", ", COLUMNS)).append(") VALUES ");
+        appendPlaceholderRows(sql, rowCount);
+        sql.append(" ON CONFLICT (uav_id) DO UPDATE SET ")
+                .append(COLUMNS.stream().skip(1)
+                        .map(c -> c + " = EXCLUDED." + c)
+                        .collect(Collectors.joining(", ")));
+        if (onlyIfNewer) {
+            sql.append(" WHERE uav_latest_state.last_update <= EXCLUDED.last_update");
+        }
+        return sql.toString();
+    }
+
+    private static String h2MergeSql(int rowCount, boolean onlyIfNewer) {
+        StringBuilder sql = new StringBuilder("MERGE INTO uav_latest_state t USING (VALUES ");
+        appendPlaceholderRows(sql, rowCount);
+        sql.append(") AS s(").append(String.join(", ", COLUMNS)).append(") ON t.uav_id = s.uav_id")
+                .append(" WHEN MATCHED");
+        if (onlyIfNewer) {
+            sql.append(" AND t.last_update <= s.last_update");
+        }
+        sql.append(" THEN UPDATE SET ")
+                .append(COLUMNS.stream().skip(1)
+                        .map(c -> c + " = s." + c)
+                        .collect(Collectors.joining(", ")))
+                .append(" WHEN NOT MATCHED THEN INSERT (").append(String.join(", ", COLUMNS))
+                .append(") VALUES (")
+                .append(COLUMNS.stream().map(c -> "s." + c).collect(Collectors.joining(", ")))
+                .append(")");
+        return sql.toString();
+    }
+
+    private static void appendPlaceholderRows(StringBuilder sql, int rowCount) {
+        String placeholders = "(" + "?,".repeat(COLUMNS.size() - 1) + "?)";
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(placeholders);
+        }
+    }
+
+    private static void bindRows(PreparedStatement ps, List<UavLatestState> rows) throws SQLException {
+        int i = 1;
+        for (UavLatestState row : rows) {
+            ps.setInt(i++, row.getUavId());
+            ps.setObject(i++, OffsetDateTime.ofInstant(row.getLastUpdate(), ZoneOffset.UTC));
+            ps.setDouble(i++, row.getLat());
+            ps.setDouble(i++, row.getLon());
+            ps.setDouble(i++, row.getAlt());
+            setDouble(ps, i++, row.getHeading());
+            setDouble(ps, i++, row.getGroundSpeed());
+            setDouble(ps, i++, row.getVerticalSpeed());
+            setDouble(ps, i++, row.getNedX());
+            setDouble(ps, i++, row.getNedY());
+            setDouble(ps, i++, row.getNedZ());
+            setDouble(ps, i++, row.getVx());
+            setDouble(ps, i++, row.getVy());
+            setDouble(ps, i++, row.getVz());
+            setDouble(ps, i++, row.getDataAge());
+            if (row.getMsgCount() != null) {
+                ps.setLong(i++, row.getMsgCount());
+            } else {
+                ps.setNull(i++, Types.BIGINT);
+            }
+            if (row.getIsActive() != null) {
+                ps.setBoolean(i++, row.getIsActive());
+            } else {
+                ps.setNull(i++, Types.BOOLEAN);
+            }
+        }
+    }
+
+    private static void setDouble(PreparedStatement ps, int index, Double value) throws SQLException {
+        if (value != null) {
+            ps.setDouble(index, value);
+        } else {
+            ps.setNull(index, Types.DOUBLE);
+        }
+    }
+}
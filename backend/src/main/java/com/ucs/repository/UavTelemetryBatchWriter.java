@@ -0,0 +1,238 @@
+package com.ucs.repository;
+
+import com.ucs.telemetry.TelemetryFrame;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Bulk writer for the uav_telemetry history table
+ * UavTelemetry uses IDENTITY ids, which disables Hibernate JDBC batching, so history rows
+ * are written here with multi-row INSERTs, or PostgreSQL COPY when
+ * telemetry.history.writer=copy (enabled by the prod profile).
+ */
+@Slf4j
+@Repository
+public class UavTelemetryBatchWriter {
+
+    private static final String COLUMNS = "uav_id, timestamp, lat, lon, alt, heading, ground_speed, vertical_speed, "
+            + "ned_x, ned_y, ned_z, vx, vy, vz, data_age, msg_count, is_active";
+    private static final int COLUMN_COUNT = 17;
+    /** PostgreSQL accepts at most 32767 bind parameters per statement */
+    private static final int MAX_INSERT_CHUNK_SIZE = 32767 / COLUMN_COUNT;
+
+    private static final String COPY_SQL = "COPY uav_telemetry (" + COLUMNS + ") FROM STDIN WITH (FORMAT csv)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    @Value("${telemetry.history.writer:batch}")
+    private String writerMode;
+
+    @Value("${telemetry.history.insert-chunk-size:500}")
+    private int insertChunkSize;
+
+    private volatile boolean copyUnsupported;
+
+    public UavTelemetryBatchWriter(JdbcTemplate jdbcTemplate, DataSource dataSource) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+    }
+
+    @PostConstruct
+    public void init() {
+        int chunkSize = Math.max(1, Math.min(insertChunkSize, MAX_INSERT_CHUNK_SIZE));
+        if (chunkSize != insertChunkSize) {
+            log.warn("telemetry.history.insert-chunk-size={} is outside 1..{}, using {}",
+                    insertChunkSize, MAX_INSERT_CHUNK_SIZE, chunkSize);
+            insertChunkSize = chunkSize;
+        }
+    }
+
+    /**
+     * Append every sample of a frame to history, joining the caller's transaction if there is one
+     * @return number of rows written
+     */
+    public int writeAll(TelemetryFrame frame) {
+        int[] rows = new int[frame.size()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i;
+        }
+        return write(frame, rows);
+    }
+
+    /**
+     * Append the given rows of a frame to history (e.g. the ones kept by HistoryDecimator)
+     * @return number of rows written
+     */
+    public int write(TelemetryFrame frame, int[] rows) {
+        rows = positioned(frame, rows);
+        if (rows.length == 0) {
+            return 0;
+        }
+        if ("copy".equalsIgnoreCase(writerMode) && !copyUnsupported) {
+            return copy(frame, rows);
+        }
+        return insert(frame, rows);
+    }
+
+    /**
+     * The rows that have a position, i.e. the ones write() stores; lat, lon and alt are NOT NULL in uav_telemetry
+     */
+    public static int[] positioned(TelemetryFrame frame, int[] rows) {
+        int count = 0;
+        for (int row : rows) {
+            if (hasPosition(frame, row)) {
+                count++;
+            }
+        }
+        if (count == rows.length) {
+            return rows;
+        }
+        log.debug("Skipping {} history rows without a position", rows.length - count);
+        int[] kept = new int[count];
+        int k = 0;
+        for (int row : rows) {
+            if (hasPosition(frame, row)) {
+                kept[k++] = row;
+            }
+        }
+        return kept;
+    }
+
+    private static boolean hasPosition(TelemetryFrame frame, int i) {
+        return !Double.isNaN(frame.lat[i]) && !Double.isNaN(frame.lon[i]) && !Double.isNaN(frame.alt[i]);
+    }
+
+    private int insert(TelemetryFrame frame, int[] rows) {
+        int written = 0;
+        for (int from = 0; from < rows.length; from += insertChunkSize) {
+            int start = from;
+            int end = Math.min(rows.length, from + insertChunkSize);
+            written += jdbcTemplate.update(multiRowInsertSql(end - start), ps -> bindRows(ps, frame, rows, start, end));
+        }
+        return written;
+    }
+
+    private int copy(TelemetryFrame frame, int[] rows) {
+        StringBuilder csv = new StringBuilder(rows.length * 160);
+        for (int row : rows) {
+            appendCsvRow(csv, frame, row);
+        }
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            if (!connection.isWrapperFor(PGConnection.class)) {
+                log.warn("telemetry.history.writer=copy requires PostgreSQL, falling back to batched INSERT");
+                copyUnsupported = true;
+                return insert(frame, rows);
+            }
+            long copied = connection.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn(COPY_SQL, new StringReader(csv.toString()));
+            return (int) copied;
+        } catch (Exception e) {
+            throw new IllegalStateException("COPY into uav_telemetry failed", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private static String multiRowInsertSql(int rowCount) {
+        StringBuilder sql = new StringBuilder("INSERT INTO uav_telemetry (").append(COLUMNS).append(") VALUES ");
+        String placeholders = "(" + "?,".repeat(COLUMN_COUNT - 1) + "?)";
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(placeholders);
+        }
+        return sql.toString();
+    }
+
+    private static void bindRows(PreparedStatement ps, TelemetryFrame frame, int[] rows, int start, int end)
+            throws SQLException {
+        int p = 1;
+        for (int r = start; r < end; r++) {
+            int i = rows[r];
+            ps.setInt(p++, frame.uavId[i]);
+            ps.setObject(p++, OffsetDateTime.ofInstant(Instant.ofEpochMilli(frame.sampleTime[i]), ZoneOffset.UTC));
+            ps.setDouble(p++, frame.lat[i]);
+            ps.setDouble(p++, frame.lon[i]);
+            ps.setDouble(p++, frame.alt[i]);
+            setDouble(ps, p++, frame.heading[i]);
+            setDouble(ps, p++, frame.groundSpeed[i]);
+            setDouble(ps, p++, frame.verticalSpeed[i]);
+            setDouble(ps, p++, frame.nedX[i]);
+            setDouble(ps, p++, frame.nedY[i]);
+            setDouble(ps, p++, frame.nedZ[i]);
+            setDouble(ps, p++, frame.vx[i]);
+            setDouble(ps, p++, frame.vy[i]);
+            setDouble(ps, p++, frame.vz[i]);
+            setDouble(ps, p++, frame.dataAge[i]);
+            if (frame.msgCount[i] != TelemetryFrame.NO_MSG_COUNT) {
+                ps.setLong(p++, frame.msgCount[i]);
+            } else {
+                ps.setNull(p++, Types.BIGINT);
+            }
+            if (frame.active[i] != TelemetryFrame.ACTIVE_UNKNOWN) {
+                ps.setBoolean(p++, frame.active[i] == 1);
+            } else {
+                ps.setNull(p++, Types.BOOLEAN);
+            }
+        }
+    }
+
+    private static void setDouble(PreparedStatement ps, int index, double value) throws SQLException {
+        if (!Double.isNaN(value)) {
+            ps.setDouble(index, value);
+        } else {
+            ps.setNull(index, Types.DOUBLE);
+        }
+    }
+
+    /**
+     * CSV row for COPY; an empty unquoted field is read as NULL
+     */
+    private static void appendCsvRow(StringBuilder csv, TelemetryFrame frame, int i) {
+        csv.append(frame.uavId[i]).append(',')
+                .append(Instant.ofEpochMilli(frame.sampleTime[i])).append(',')
+                .append(frame.lat[i]).append(',')
+                .append(frame.lon[i]).append(',')
+                .append(frame.alt[i]).append(',');
+        appendNullable(csv, frame.heading[i]).append(',');
+        appendNullable(csv, frame.groundSpeed[i]).append(',');
+        appendNullable(csv, frame.verticalSpeed[i]).append(',');
+        appendNullable(csv, frame.nedX[i]).append(',');
+        appendNullable(csv, frame.nedY[i]).append(',');
+        appendNullable(csv, frame.nedZ[i]).append(',');
+        appendNullable(csv, frame.vx[i]).append(',');
+        appendNullable(csv, frame.vy[i]).append(',');
+        appendNullable(csv, frame.vz[i]).append(',');
+        appendNullable(csv, frame.dataAge[i]).append(',');
+        if (frame.msgCount[i] != TelemetryFrame.NO_MSG_COUNT) {
+            csv.append(frame.msgCount[i]);
+        }
+        csv.append(',');
+        if (frame.active[i] != TelemetryFrame.ACTIVE_UNKNOWN) {
+            csv.append(frame.active[i] == 1);
+        }
+        csv.append('\n');
+    }
+
+    private static StringBuilder appendNullable(StringBuilder csv, double value) {
+        return Double.isNaN(value) ? csv : csv.append(value);
+    }
+}
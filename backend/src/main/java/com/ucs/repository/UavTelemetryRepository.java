@@ -1,13 +1,17 @@
 package com.ucs.repository;
 
 import com.ucs.entity.UavTelemetry;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repository for UAV telemetry data
@@ -21,12 +25,69 @@ public interface UavTelemetryRepository extends JpaRepository<UavTelemetry, Long
     List<UavTelemetry> findByUavIdAndTimestampBetweenOrderByTimestampAsc(
             Integer uavId, Instant startTime, Instant endTime);
     
+    /**
+     * Stream telemetry of a UAV in (timestamp, id) order, starting after a keyset position
+     * Rows are read through a forward-only cursor in fetch-size chunks; the caller must close
+     * the stream inside a transaction and detach rows it has consumed.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT t FROM UavTelemetry t WHERE t.uavId = :uavId AND t.timestamp <= :endTime "
+            + "AND (t.timestamp > :afterTimestamp OR (t.timestamp = :afterTimestamp AND t.id > :afterId)) "
+            + "ORDER BY t.timestamp ASC, t.id ASC")
+    Stream<UavTelemetry> streamHistoryAfter(@Param("uavId") Integer uavId,
+                                            @Param("afterTimestamp") Instant afterTimestamp,
+                                            @Param("afterId") Long afterId,
+                                            @Param("endTime") Instant endTime);
+    
+    /**
+     * Stream telemetry of all UAVs in (timestamp, id) order, starting after a keyset position
+     * Same cursor contract as streamHistoryAfter.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT t FROM UavTelemetry t WHERE t.timestamp <= :endTime "
+            + "AND (t.timestamp > :afterTimestamp OR (t.timestamp = :afterTimestamp AND t.id > :afterId)) "
+            + "ORDER BY t.timestamp ASC, t.id ASC")
+    Stream<UavTelemetry> streamRangeAfter(@Param("afterTimestamp") Instant afterTimestamp,
+                                          @Param("afterId") Long afterId,
+                                          @Param("endTime") Instant endTime);
+    
+    /**
+     * Stream telemetry of a set of UAVs in (timestamp, id) order, starting after a keyset position
+     * Same cursor contract as streamHistoryAfter.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT t FROM UavTelemetry t WHERE t.uavId IN :uavIds AND t.timestamp <= :endTime "
+            + "AND (t.timestamp > :afterTimestamp OR (t.timestamp = :afterTimestamp AND t.id > :afterId)) "
+            + "ORDER BY t.timestamp ASC, t.id ASC")
+    Stream<UavTelemetry> streamUavsRangeAfter(@Param("uavIds") List<Integer> uavIds,
+                                              @Param("afterTimestamp") Instant afterTimestamp,
+                                              @Param("afterId") Long afterId,
+                                              @Param("endTime") Instant endTime);
+    
     /**
      * Find all telemetry data within a time range
      */
     List<UavTelemetry> findByTimestampBetweenOrderByTimestampAsc(
             Instant startTime, Instant endTime);
     
+    /**
+     * Find telemetry data of a set of UAVs within a time range
+     */
+    List<UavTelemetry> findByUavIdInAndTimestampBetweenOrderByTimestampAsc(
+            List<Integer> uavIds, Instant startTime, Instant endTime);
+    
     /**
      * Delete telemetry data older than a specific timestamp (for retention policy)
      */
@@ -0,0 +1,31 @@
+package com.ucs.repository;
+
+import com.ucs.entity.UavTelemetryRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for UAV telemetry rollups
+ */
+@Repository
+public interface UavTelemetryRollupRepository extends JpaRepository<UavTelemetryRollup, Long> {
+    
+    /**
+     * Rollups of one UAV at one resolution within a bucket range
+     */
+    List<UavTelemetryRollup> findByUavIdAndResolutionAndBucketStartBetweenOrderByBucketStartAsc(
+            Integer uavId, Integer resolution, Instant startTime, Instant endTime);
+    
+    /**
+     * Rollups of the whole fleet at one resolution within a bucket range
+     */
+    List<UavTelemetryRollup> findByResolutionAndBucketStartBetweenOrderByUavIdAscBucketStartAsc(
+            Integer resolution, Instant startTime, Instant endTime);
+    
+    Optional<UavTelemetryRollup> findByUavIdAndResolutionAndBucketStart(
+            Integer uavId, Integer resolution, Instant bucketStart);
+}
@@ -0,0 +1,222 @@
+package com.ucs.repository;
+
+import com.ucs.entity.UavTelemetryRollup;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk merge writer for the uav_telemetry_rollup table
+ * The ingest path flushes partial aggregates (deltas) of buckets it touched; each delta is folded
+ * into the stored bucket in one statement per chunk: INSERT ... ON CONFLICT on PostgreSQL,
+ * MERGE ... USING on H2, and a JPA read-modify-write for other databases. The merge is additive, so
+ * all chunks of a call commit together: a failed call can be retried without counting anything twice.
+ */
+@Slf4j
+@Repository
+public class UavTelemetryRollupWriter {
+
+    private static final List<String> COLUMNS = Arrays.asList(
+            "uav_id", "resolution", "bucket_start", "sample_count",
+            "first_time", "first_lat", "first_lon", "first_alt",
+            "last_time", "last_lat", "last_lon", "last_alt",
+            "min_lat", "max_lat", "min_lon", "max_lon", "avg_lat", "avg_lon",
+            "min_alt", "max_alt", "avg_alt",
+            "speed_count", "min_speed", "max_speed", "avg_speed");
+
+    private static final int KEY_COLUMNS = 3;
+    private static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    private enum Dialect { POSTGRESQL, H2, OTHER }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final UavTelemetryRollupRepository rollupRepository;
+
+    private Dialect dialect = Dialect.OTHER;
+
+    public UavTelemetryRollupWriter(JdbcTemplate jdbcTemplate,
+                                    DataSource dataSource,
+                                    UavTelemetryRollupRepository rollupRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.rollupRepository = rollupRepository;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            if ("PostgreSQL".equalsIgnoreCase(product)) {
+                dialect = Dialect.POSTGRESQL;
+            } else if ("H2".equalsIgnoreCase(product)) {
+                dialect = Dialect.H2;
+            }
+        } catch (Exception e) {
+            log.warn("Could not detect database product, using JPA for telemetry rollups: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Fold partial aggregates into the stored buckets; each (uavId, resolution, bucketStart) may appear once
+     */
+    @Transactional
+    public void mergeAll(List<UavTelemetryRollup> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        if (dialect == Dialect.OTHER) {
+            for (UavTelemetryRollup delta : deltas) {
+                UavTelemetryRollup stored = rollupRepository.findByUavIdAndResolutionAndBucketStart(
+                        delta.getUavId(), delta.getResolution(), delta.getBucketStart()).orElse(null);
+                if (stored != null) {
+                    stored.merge(delta);
+                    rollupRepository.save(stored);
+                } else {
+                    rollupRepository.save(delta);
+                }
+            }
+            return;
+        }
+        for (int from = 0; from < deltas.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<UavTelemetryRollup> chunk = deltas.subList(from, Math.min(deltas.size(), from + MAX_ROWS_PER_STATEMENT));
+            String sql = dialect == Dialect.POSTGRESQL ? postgresMergeSql(chunk.size()) : h2MergeSql(chunk.size());
+            jdbcTemplate.update(sql, ps -> bindRows(ps, chunk));
+        }
+    }
+
+    private static String postgresMergeSql(int rowCount) {
+        StringBuilder sql = new StringBuilder("INSERT INTO uav_telemetry_rollup (")
+                .append(String.join(", ", COLUMNS)).append(") VALUES ");
+        appendPlaceholderRows(sql, rowCount);
+        sql.append(" ON CONFLICT (uav_id, resolution, bucket_start) DO UPDATE SET ")
+                .append(mergeAssignments("uav_telemetry_rollup", "EXCLUDED"));
+        return sql.toString();
+    }
+
+    private static String h2MergeSql(int rowCount) {
+        // H2 types untyped VALUES parameters as VARCHAR, which breaks the merge arithmetic
+        String placeholders = COLUMNS.stream()
+                .map(c -> "CAST(? AS " + h2Type(c) + ")")
+                .collect(Collectors.joining(",", "(", ")"));
+        StringBuilder sql = new StringBuilder("MERGE INTO uav_telemetry_rollup t USING (VALUES ");
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(placeholders);
+        }
+        sql.append(") AS s(").append(String.join(", ", COLUMNS)).append(")")
+                .append(" ON t.uav_id = s.uav_id AND t.resolution = s.resolution AND t.bucket_start = s.bucket_start")
+                .append(" WHEN MATCHED THEN UPDATE SET ").append(mergeAssignments("t", "s"))
+                .append(" WHEN NOT MATCHED THEN INSERT (").append(String.join(", ", COLUMNS))
+                .append(") VALUES (")
+                .append(COLUMNS.stream().map(c -> "s." + c).collect(Collectors.joining(", ")))
+                .append(")");
+        return sql.toString();
+    }
+
+    /**
+     * SET clause folding the incoming aggregate s into the stored aggregate t (right-hand sides see the old row)
+     */
+    private static String mergeAssignments(String t, String s) {
+        String count = "(" + t + ".sample_count + " + s + ".sample_count)";
+        String speeds = "(" + t + ".speed_count + " + s + ".speed_count)";
+        return COLUMNS.stream().skip(KEY_COLUMNS).map(c -> c + " = " + switch (c) {
+            case "sample_count", "speed_count" -> t + "." + c + " + " + s + "." + c;
+            case "first_time" -> "LEAST(" + t + "." + c + ", " + s + "." + c + ")";
+            case "last_time" -> "GREATEST(" + t + "." + c + ", " + s + "." + c + ")";
+            case "first_lat", "first_lon", "first_alt" ->
+                    "CASE WHEN " + s + ".first_time < " + t + ".first_time THEN " + s + "." + c + " ELSE " + t + "." + c + " END";
+            case "last_lat", "last_lon", "last_alt" ->
+                    "CASE WHEN " + s + ".last_time >= " + t + ".last_time THEN " + s + "." + c + " ELSE " + t + "." + c + " END";
+            case "min_lat", "min_lon", "min_alt" -> "LEAST(" + t + "." + c + ", " + s + "." + c + ")";
+            case "max_lat", "max_lon", "max_alt" -> "GREATEST(" + t + "." + c + ", " + s + "." + c + ")";
+            case "avg_lat", "avg_lon", "avg_alt" ->
+                    "(" + t + "." + c + " * " + t + ".sample_count + " + s + "." + c + " * " + s + ".sample_count) / " + count;
+            // Speed columns are NULL while no sample of the bucket reported a ground speed
+            case "min_speed" -> "COALESCE(LEAST(" + t + "." + c + ", " + s + "." + c + "), " + t + "." + c + ", " + s + "." + c + ")";
+            case "max_speed" -> "COALESCE(GREATEST(" + t + "." + c + ", " + s + "." + c + "), " + t + "." + c + ", " + s + "." + c + ")";
+            case "avg_speed" -> "CASE WHEN " + speeds + " = 0 THEN NULL ELSE (COALESCE(" + t + ".avg_speed * " + t
+                    + ".speed_count, 0) + COALESCE(" + s + ".avg_speed * " + s + ".speed_count, 0)) / " + speeds + " END";
+            default -> throw new IllegalStateException("Unmapped rollup column " + c);
+        }).collect(Collectors.joining(", "));
+    }
+
+    private static String h2Type(String column) {
+        return switch (column) {
+            case "uav_id", "resolution" -> "INTEGER";
+            case "sample_count", "speed_count" -> "BIGINT";
+            case "bucket_start", "first_time", "last_time" -> "TIMESTAMP WITH TIME ZONE";
+            default -> "DOUBLE PRECISION";
+        };
+    }
+
+    private static void appendPlaceholderRows(StringBuilder sql, int rowCount) {
+        String placeholders = "(" + "?,".repeat(COLUMNS.size() - 1) + "?)";
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(placeholders);
+        }
+    }
+
+    private static void bindRows(PreparedStatement ps, List<UavTelemetryRollup> rows) throws SQLException {
+        int i = 1;
+        for (UavTelemetryRollup row : rows) {
+            ps.setInt(i++, row.getUavId());
+            ps.setInt(i++, row.getResolution());
+            setTime(ps, i++, row.getBucketStart());
+            ps.setLong(i++, row.getSampleCount());
+            setTime(ps, i++, row.getFirstTime());
+            ps.setDouble(i++, row.getFirstLat());
+            ps.setDouble(i++, row.getFirstLon());
+            ps.setDouble(i++, row.getFirstAlt());
+            setTime(ps, i++, row.getLastTime());
+            ps.setDouble(i++, row.getLastLat());
+            ps.setDouble(i++, row.getLastLon());
+            ps.setDouble(i++, row.getLastAlt());
+            ps.setDouble(i++, row.getMinLat());
+            ps.setDouble(i++, row.getMaxLat());
+            ps.setDouble(i++, row.getMinLon());
+            ps.setDouble(i++, row.getMaxLon());
+            ps.setDouble(i++, row.getAvgLat());
+            ps.setDouble(i++, row.getAvgLon());
+            ps.setDouble(i++, row.getMinAlt());
+            ps.setDouble(i++, row.getMaxAlt());
+            ps.setDouble(i++, row.getAvgAlt());
+            ps.setLong(i++, row.getSpeedCount());
+            setDouble(ps, i++, row.getMinSpeed());
+            setDouble(ps, i++, row.getMaxSpeed());
+            setDouble(ps, i++, row.getAvgSpeed());
+        }
+    }
+
+    private static void setTime(PreparedStatement ps, int index, Instant value) throws SQLException {
+        ps.setObject(index, OffsetDateTime.ofInstant(value, ZoneOffset.UTC));
+    }
+
+    private static void setDouble(PreparedStatement ps, int index, Double value) throws SQLException {
+        if (value != null) {
+            ps.setDouble(index, value);
+        } else {
+            ps.setNull(index, Types.DOUBLE);
+        }
+    }
+}
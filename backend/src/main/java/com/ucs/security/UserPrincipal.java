@@ -2,15 +2,28 @@ package com.ucs.security;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import java.security.Principal;
 import java.util.List;
 
 @Data
 @AllArgsConstructor
-public class UserPrincipal {
+public class UserPrincipal implements Principal {
     private Long userId;
     private String username;
     private List<String> roles;
     
+    /**
+     * The user id, so STOMP user destinations (/user/queue/...) are keyed by user id
+     */
+    @Override
+    public String getName() {
+        return String.valueOf(userId);
+    }
+    
+    public boolean isCommander() {
+        return hasRole("COMMANDER") || hasRole("commander");
+    }
+    
     public boolean hasRole(String role) {
         return roles != null && roles.contains(role);
     }
@@ -0,0 +1,34 @@
+package com.ucs.service;
+
+import com.ucs.dto.CreateReplayRequest;
+import com.ucs.dto.ReplaySessionDTO;
+
+import java.time.Instant;
+
+/**
+ * Service interface for time-synchronized multi-UAV replay
+ * A session plays recorded telemetry from a start time at a given speed and publishes
+ * time-aligned fleet frames to /topic/replay/{sessionId}
+ */
+public interface IReplayService {
+    
+    /**
+     * Create a replay session; playback starts immediately
+     */
+    ReplaySessionDTO createSession(CreateReplayRequest request);
+    
+    ReplaySessionDTO getSession(String sessionId);
+    
+    ReplaySessionDTO pause(String sessionId);
+    
+    ReplaySessionDTO resume(String sessionId);
+    
+    /**
+     * Jump to a replay time; the next frame carries the fleet state at that time
+     */
+    ReplaySessionDTO seek(String sessionId, Instant position);
+    
+    ReplaySessionDTO setSpeed(String sessionId, double speed);
+    
+    void stop(String sessionId);
+}
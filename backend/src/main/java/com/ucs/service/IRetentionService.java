@@ -0,0 +1,21 @@
+package com.ucs.service;
+
+import com.ucs.dto.RetentionRunDTO;
+
+/**
+ * Service interface for data retention
+ * Purges raw telemetry history, rollups, event logs and command logs older than their
+ * configured retention, in throttled chunks that yield to live ingest
+ */
+public interface IRetentionService {
+    
+    /**
+     * Run one retention pass on the calling thread; returns the previous result if a pass is already running
+     */
+    RetentionRunDTO runRetention();
+    
+    /**
+     * Result of the last finished retention pass, or null before the first one
+     */
+    RetentionRunDTO getLastRun();
+}
@@ -0,0 +1,60 @@
+package com.ucs.service;
+
+import com.ucs.telemetry.TelemetryExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Service interface for bulk telemetry export
+ * Streams the history of many UAVs from a database cursor as a gzip file, with a bounded
+ * number of concurrent exports so bulk pulls do not crowd out live queries
+ */
+public interface ITelemetryExportService {
+    
+    /**
+     * Reserve an export slot for the given range
+     * @param uavIds UAVs to export, or null / empty for all
+     * @return the export, or null when max-concurrent exports are already running; close it to free the slot
+     */
+    Export open(TelemetryExportFormat format, List<Integer> uavIds, Instant startTime, Instant endTime);
+    
+    /**
+     * One export of a fixed range
+     */
+    interface Export extends AutoCloseable {
+        
+        String getFileName();
+        
+        /**
+         * Whether byte ranges are served: only for ranges that ended at least settle-seconds ago,
+         * whose content no longer changes
+         */
+        boolean isRangeable();
+        
+        /**
+         * Entity tag of the export content (rangeable exports only)
+         */
+        String getETag();
+        
+        /**
+         * Length of the file in bytes, or -1 when no complete export of this range has run yet
+         */
+        long getKnownLength();
+        
+        /**
+         * Length of the file in bytes, generating (without sending) the part not measured before
+         */
+        long measureLength() throws IOException;
+        
+        /**
+         * Write bytes [from, to) of the file; generation restarts at the closest block boundary
+         */
+        void writeTo(OutputStream out, long from, long to) throws IOException;
+        
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,48 @@
+package com.ucs.service;
+
+import com.ucs.dto.IngestStatsDTO;
+import com.ucs.telemetry.TelemetryFrame;
+
+/**
+ * Service interface for telemetry ingest
+ * Decouples the gateway-facing endpoints from persistence and broadcast
+ */
+public interface ITelemetryIngestService {
+
+    /**
+     * Outcome of handing a frame to the ingest pipeline
+     */
+    enum IngestResult {
+        /** Frame queued (async mode) or processed (sync mode) */
+        ACCEPTED,
+        /** Frame already ingested or too old to apply; acknowledged without processing */
+        DUPLICATE,
+        /** Ingest queue full; the gateway should retry after getRetryAfterSeconds() */
+        QUEUE_FULL
+    }
+
+    /**
+     * Whether frames are queued for background processing (telemetry.ingest.mode=async)
+     */
+    boolean isAsyncEnabled();
+
+    /**
+     * Ingest a frame: drop duplicates by msgSeqNumber, then queue or process it
+     */
+    IngestResult ingest(TelemetryFrame frame);
+
+    /**
+     * Seconds a gateway should wait before retrying a rejected batch
+     */
+    int getRetryAfterSeconds();
+
+    /**
+     * Number of batches currently waiting in the ingest queue
+     */
+    int getQueueDepth();
+
+    /**
+     * Queue, throughput and per-source sequence counters
+     */
+    IngestStatsDTO getStats();
+}
@@ -1,12 +1,21 @@
 package com.ucs.service;
 
+import com.ucs.dto.AreaPassDTO;
+import com.ucs.dto.TelemetryRollupSeriesDTO;
 import com.ucs.dto.UavTelemetryBatchDTO;
-import com.ucs.dto.UavTelemetryDTO;
+import com.ucs.dto.UavTrailDTO;
+import com.ucs.entity.UavFlight;
+import com.ucs.entity.UavFlightStats;
 import com.ucs.entity.UavLatestState;
 import com.ucs.entity.UavTelemetry;
+import com.ucs.telemetry.HistoryCursor;
+import com.ucs.telemetry.TelemetryFrame;
 
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Service interface for UAV telemetry data
@@ -21,6 +30,22 @@ public interface ITelemetryService {
      */
     void processBatchTelemetry(UavTelemetryBatchDTO batch);
     
+    /**
+     * Process a columnar telemetry frame (decoded from JSON or the binary ingest format)
+     */
+    void processTelemetryFrame(TelemetryFrame frame);
+    
+    /**
+     * Persist a frame (history, rollups and latest state) without broadcasting it
+     * Used by the sharded ingest workers, which broadcast the whole frame once all shards are done
+     */
+    void persistTelemetryFrame(TelemetryFrame frame);
+    
+    /**
+     * Broadcast a frame to /topic/telemetry subscribers
+     */
+    void broadcastTelemetryFrame(TelemetryFrame frame);
+    
     /**
      * Get all latest UAV states for dashboard
      */
@@ -31,13 +56,97 @@ public interface ITelemetryService {
      */
     UavLatestState getLatestState(Integer uavId);
     
+    /**
+     * Get the flight statistics (distance, climb, altitude range, active time, speeds) of one UAV for a day
+     * @param date day in telemetry.stats.zone, or null for today; live totals while the UAV is still on that day
+     */
+    UavFlightStats getFlightStats(Integer uavId, LocalDate date);
+    
+    /**
+     * Get the flight statistics of every UAV that reported on a day
+     * @param date day in telemetry.stats.zone, or null for today; live totals while the UAV is still on that day
+     */
+    List<UavFlightStats> getFleetFlightStats(LocalDate date);
+    
+    /**
+     * Find the UAVs that passed through a lat/lon box within a time range, with entry and exit times
+     * Answered from the spatio-temporal cell index; exact refines the candidates with their stored history
+     * so boundaries are those of the box instead of its covering grid cells.
+     * @throws IllegalArgumentException if the box covers more grid cells than a query may read
+     */
+    List<AreaPassDTO> findAreaPasses(double minLat, double minLon, double maxLat, double maxLon,
+                                     Instant startTime, Instant endTime, boolean exact);
+    
+    /**
+     * Get detected flights overlapping a time range, newest first
+     * @param uavId UAV to look at, or null for the whole fleet
+     */
+    List<UavFlight> getFlights(Integer uavId, Instant startTime, Instant endTime, int limit);
+    
+    /**
+     * Get a flight by id (live summary while in progress), or null if unknown
+     */
+    UavFlight getFlight(Long flightId);
+    
+    /**
+     * Get the most recent flight of a UAV (the one in progress, if any), or null if it never flew
+     */
+    UavFlight getLastFlight(Integer uavId);
+    
+    /**
+     * Today's flight statistics that changed since the previous call, for /topic/flight-stats
+     */
+    List<UavFlightStats> pollChangedFlightStats();
+    
     /**
      * Get telemetry history for path replay
+     * Recent ranges are answered from the in-memory recent history buffer, older parts from the database
      */
     List<UavTelemetry> getTelemetryHistory(Integer uavId, Instant startTime, Instant endTime);
     
+    /**
+     * Get a simplified trajectory for path replay, computed while streaming over the history cursor
+     * @param maxPoints time-bucket simplification to at most this many rows (ignored when toleranceM is set)
+     * @param toleranceM Douglas-Peucker tolerance in metres on lat/lon/alt
+     */
+    List<UavTelemetry> getSimplifiedTelemetryHistory(Integer uavId, Instant startTime, Instant endTime,
+                                                     Integer maxPoints, Double toleranceM);
+    
+    /**
+     * Stream telemetry history row by row with flat memory use
+     * @param cursor continuation token from a previous call, or null to start at startTime
+     * @param limit maximum number of rows to pass to the consumer
+     * @return continuation token for the next rows, or null when the range is exhausted
+     */
+    String streamTelemetryHistory(Integer uavId, Instant startTime, Instant endTime,
+                                  String cursor, int limit, Consumer<UavTelemetry> consumer);
+    
+    /**
+     * Stream the history of several UAVs in (timestamp, id) order with flat memory use
+     * @param uavIds UAVs to include, or null / empty for all
+     * @param after keyset position to continue after, or null to start at startTime
+     * @param consumer receives each row; returning false stops the stream
+     */
+    void streamTelemetryRange(List<Integer> uavIds, Instant startTime, Instant endTime,
+                              HistoryCursor after, Predicate<UavTelemetry> consumer);
+    
+    /**
+     * Get the trail (positions since sinceTime) of each UAV
+     * @param uavIds UAVs to include, or null for every UAV with a known state
+     */
+    List<UavTrailDTO> getTrails(List<Integer> uavIds, Instant sinceTime);
+    
+    /**
+     * Get telemetry rollups for trend charts
+     * Reads the coarsest rollup resolution (1 s, 1 min, 1 h) whose buckets are no wider than
+     * (endTime - startTime) / maxPoints and merges them into at most maxPoints buckets per UAV.
+     * @param uavId one UAV, or null for the whole fleet
+     */
+    TelemetryRollupSeriesDTO getTelemetryRollups(Integer uavId, Instant startTime, Instant endTime, int maxPoints);
+    
     /**
      * Clean up old telemetry data based on retention policy
+     * Deletes in bounded chunks; scheduled retention of every data class is done by IRetentionService
      */
     void cleanupOldTelemetry(int retentionDays);
 }
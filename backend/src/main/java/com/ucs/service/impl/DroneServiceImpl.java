@@ -5,6 +5,7 @@ import com.ucs.dto.HeatmapPointDTO;
 import com.ucs.entity.*;
 import com.ucs.repository.*;
 import com.ucs.service.IDroneService;
+import com.ucs.telemetry.LatestStateStore;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -29,7 +30,7 @@ public class DroneServiceImpl implements IDroneService {
     private final UserRepository userRepository;
     private final CommandLogRepository commandLogRepository;
     private final EventLogRepository eventLogRepository;
-    private final UavLatestStateRepository uavLatestStateRepository;
+    private final LatestStateStore latestStateStore;
     
     public DroneServiceImpl(DroneRepository droneRepository,
                             DroneStatusRepository droneStatusRepository,
@@ -38,7 +39,7 @@ public class DroneServiceImpl implements IDroneService {
                             UserRepository userRepository,
                             CommandLogRepository commandLogRepository,
                             EventLogRepository eventLogRepository,
-                            UavLatestStateRepository uavLatestStateRepository) {
+                            LatestStateStore latestStateStore) {
         this.droneRepository = droneRepository;
         this.droneStatusRepository = droneStatusRepository;
         this.droneOwnershipRepository = droneOwnershipRepository;
@@ -46,7 +47,7 @@ public class DroneServiceImpl implements IDroneService {
         this.userRepository = userRepository;
         this.commandLogRepository = commandLogRepository;
         this.eventLogRepository = eventLogRepository;
-        this.uavLatestStateRepository = uavLatestStateRepository;
+        this.latestStateStore = latestStateStore;
     }
     
     @Override
@@ -69,7 +70,7 @@ public class DroneServiceImpl implements IDroneService {
     
     @Override
     public List<DroneStatusDTO> getAllDrones() {
-        List<UavLatestState> latestStates = uavLatestStateRepository.findAllByOrderByUavIdAsc();
+        List<UavLatestState> latestStates = latestStateStore.getAll();
         return latestStates.stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
@@ -228,7 +229,7 @@ public class DroneServiceImpl implements IDroneService {
     
     @Override
     public List<HeatmapPointDTO> getHeatmapData() {
-        List<UavLatestState> allLatest = uavLatestStateRepository.findAllByOrderByUavIdAsc();
+        List<UavLatestState> allLatest = latestStateStore.getAll();
         
         return allLatest.stream()
                 .filter(s -> s.getLat() != null && s.getLon() != null)
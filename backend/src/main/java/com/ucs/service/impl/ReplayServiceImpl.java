@@ -0,0 +1,421 @@
+package com.ucs.service.impl;
+
+import com.ucs.dto.CreateReplayRequest;
+import com.ucs.dto.ReplaySessionDTO;
+import com.ucs.entity.UavFlight;
+import com.ucs.entity.UavTelemetry;
+import com.ucs.repository.UavTelemetryRepository;
+import com.ucs.service.IReplayService;
+import com.ucs.service.ITelemetryService;
+import com.ucs.telemetry.TelemetryFrame;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Replay service implementation
+ *
+ * Each session keeps a replay clock that advances by wall time x speed on every tick and publishes
+ * one fleet frame per tick: the latest sample of every UAV recorded since the previous frame, in the
+ * same JSON shape as /topic/telemetry. History is read in chunks of chunk-seconds of replay time and
+ * the next chunk is prefetched in the background, so a fleet of any size is loaded in one query per
+ * chunk instead of one request per UAV. After start or seek the first frame carries the state of
+ * every UAV seen in the preceding snapshot-lookback-seconds.
+ */
+@Slf4j
+@Service
+public class ReplayServiceImpl implements IReplayService {
+
+    public static final String DESTINATION_PREFIX = "/topic/replay/";
+
+    private static final double MIN_SPEED = 1.0;
+    private static final double MAX_SPEED = 50.0;
+
+    private final UavTelemetryRepository telemetryRepository;
+    private final ITelemetryService telemetryService;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @Value("${telemetry.replay.frame-interval-ms:100}")
+    private long frameIntervalMs;
+
+    @Value("${telemetry.replay.chunk-seconds:10}")
+    private long chunkSeconds;
+
+    @Value("${telemetry.replay.snapshot-lookback-seconds:5}")
+    private long snapshotLookbackSeconds;
+
+    @Value("${telemetry.replay.max-sessions:20}")
+    private int maxSessions;
+
+    @Value("${telemetry.replay.idle-timeout-minutes:30}")
+    private long idleTimeoutMinutes;
+
+    @Value("${telemetry.replay.threads:2}")
+    private int threads;
+
+    private final ConcurrentHashMap<String, ReplaySession> sessions = new ConcurrentHashMap<>();
+    private ScheduledExecutorService ticker;
+    private ExecutorService loader;
+
+    public ReplayServiceImpl(UavTelemetryRepository telemetryRepository,
+                             ITelemetryService telemetryService,
+                             SimpMessagingTemplate messagingTemplate) {
+        this.telemetryRepository = telemetryRepository;
+        this.telemetryService = telemetryService;
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger tickers = new AtomicInteger();
+        ticker = Executors.newScheduledThreadPool(threads, runnable -> daemon(runnable, "replay-" + tickers.incrementAndGet()));
+        AtomicInteger loaders = new AtomicInteger();
+        loader = Executors.newFixedThreadPool(threads, runnable -> daemon(runnable, "replay-loader-" + loaders.incrementAndGet()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+        loader.shutdownNow();
+    }
+
+    @Override
+    public ReplaySessionDTO createSession(CreateReplayRequest request) {
+        if (request.getFlightIds() != null && !request.getFlightIds().isEmpty()) {
+            applyFlights(request);
+        }
+        if (request.getStartTime() == null || request.getEndTime() == null
+                || !request.getEndTime().isAfter(request.getStartTime())) {
+            throw new IllegalArgumentException("startTime and endTime are required and endTime must be after startTime");
+        }
+        double speed = request.getSpeed() != null ? request.getSpeed() : MIN_SPEED;
+        checkSpeed(speed);
+        if (sessions.size() >= maxSessions) {
+            throw new IllegalStateException("Too many replay sessions (max " + maxSessions + ")");
+        }
+
+        List<Integer> uavIds = request.getUavIds() != null && !request.getUavIds().isEmpty()
+                ? List.copyOf(request.getUavIds()) : null;
+        ReplaySession session = new ReplaySession(UUID.randomUUID().toString(),
+                request.getStartTime().toEpochMilli(), request.getEndTime().toEpochMilli(), uavIds, speed);
+        session.seek(session.startMillis);
+        sessions.put(session.id, session);
+        session.task = ticker.scheduleAtFixedRate(() -> tick(session), 0, frameIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Replay session {} started: {} - {} at {}x, uavs={}", session.id,
+                request.getStartTime(), request.getEndTime(), speed, uavIds != null ? uavIds : "all");
+        return session.toDTO();
+    }
+
+    /**
+     * Replay the UAVs of the given flights over the span from the first takeoff to the last landing
+     */
+    private void applyFlights(CreateReplayRequest request) {
+        Set<Integer> uavIds = new TreeSet<>();
+        Instant start = null;
+        Instant end = null;
+        for (Long flightId : request.getFlightIds()) {
+            UavFlight flight = telemetryService.getFlight(flightId);
+            if (flight == null) {
+                throw new IllegalArgumentException("Flight not found: " + flightId);
+            }
+            uavIds.add(flight.getUavId());
+            start = start == null || flight.getStartTime().isBefore(start) ? flight.getStartTime() : start;
+            end = end == null || flight.getEndTime().isAfter(end) ? flight.getEndTime() : end;
+        }
+        request.setUavIds(new ArrayList<>(uavIds));
+        request.setStartTime(start);
+        request.setEndTime(end.isAfter(start) ? end : start.plusMillis(1));
+    }
+
+    @Override
+    public ReplaySessionDTO getSession(String sessionId) {
+        return find(sessionId).toDTO();
+    }
+
+    @Override
+    public ReplaySessionDTO pause(String sessionId) {
+        ReplaySession session = find(sessionId);
+        session.setState(ReplayState.PAUSED);
+        return publishStatus(session);
+    }
+
+    @Override
+    public ReplaySessionDTO resume(String sessionId) {
+        ReplaySession session = find(sessionId);
+        session.setState(ReplayState.PLAYING);
+        return publishStatus(session);
+    }
+
+    @Override
+    public ReplaySessionDTO seek(String sessionId, Instant position) {
+        ReplaySession session = find(sessionId);
+        long millis = position.toEpochMilli();
+        if (millis < session.startMillis || millis > session.endMillis) {
+            throw new IllegalArgumentException("Seek position is outside the replay range");
+        }
+        session.seek(millis);
+        return publishStatus(session);
+    }
+
+    @Override
+    public ReplaySessionDTO setSpeed(String sessionId, double speed) {
+        checkSpeed(speed);
+        ReplaySession session = find(sessionId);
+        session.setSpeed(speed);
+        return publishStatus(session);
+    }
+
+    @Override
+    public void stop(String sessionId) {
+        ReplaySession session = sessions.remove(sessionId);
+        if (session != null) {
+            session.task.cancel(false);
+            log.info("Replay session {} stopped", sessionId);
+        }
+    }
+
+    /**
+     * Drop sessions that are not playing and have not been touched for idle-timeout-minutes
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void cleanupIdleSessions() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(idleTimeoutMinutes);
+        for (ReplaySession session : sessions.values()) {
+            if (session.isIdleSince(cutoff)) {
+                stop(session.id);
+            }
+        }
+    }
+
+    private void tick(ReplaySession session) {
+        try {
+            TelemetryFrame frame = session.advance();
+            if (frame != null) {
+                messagingTemplate.convertAndSend(DESTINATION_PREFIX + session.id, frame);
+            }
+            if (session.takeEnded()) {
+                publishStatus(session);
+            }
+        } catch (Exception e) {
+            log.error("Replay session {} tick failed", session.id, e);
+        }
+    }
+
+    private ReplaySessionDTO publishStatus(ReplaySession session) {
+        ReplaySessionDTO dto = session.toDTO();
+        messagingTemplate.convertAndSend(DESTINATION_PREFIX + session.id + "/status", dto);
+        return dto;
+    }
+
+    private ReplaySession find(String sessionId) {
+        ReplaySession session = sessions.get(sessionId);
+        if (session == null) {
+            throw new RuntimeException("Replay session not found");
+        }
+        return session;
+    }
+
+    private static void checkSpeed(double speed) {
+        if (speed < MIN_SPEED || speed > MAX_SPEED) {
+            throw new IllegalArgumentException("Replay speed must be between 1x and 50x");
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Rows in [fromMillis, toMillis) of the session's UAVs, in timestamp order
+     */
+    private List<UavTelemetry> loadChunk(List<Integer> uavIds, long fromMillis, long toMillis) {
+        Instant from = Instant.ofEpochMilli(fromMillis);
+        Instant to = Instant.ofEpochMilli(toMillis).minusNanos(1);
+        return uavIds == null
+                ? telemetryRepository.findByTimestampBetweenOrderByTimestampAsc(from, to)
+                : telemetryRepository.findByUavIdInAndTimestampBetweenOrderByTimestampAsc(uavIds, from, to);
+    }
+
+    private enum ReplayState { PLAYING, PAUSED, ENDED }
+
+    /**
+     * One replay session; ticks and control calls are serialized on the session
+     */
+    private final class ReplaySession {
+
+        private final String id;
+        private final long startMillis;
+        private final long endMillis;
+        private final List<Integer> uavIds;
+        private ScheduledFuture<?> task;
+
+        private ReplayState state = ReplayState.PLAYING;
+        private double speed;
+        private double position;
+        private long emittedUntil;
+        private long lastTickNanos;
+        private long seq;
+        private boolean snapshotPending;
+        private boolean endedPending;
+        private long lastActivity = System.currentTimeMillis();
+
+        private final ArrayDeque<UavTelemetry> buffer = new ArrayDeque<>();
+        private long loadedUntil;
+        private long prefetchFrom = -1;
+        private CompletableFuture<List<UavTelemetry>> prefetch;
+
+        ReplaySession(String id, long startMillis, long endMillis, List<Integer> uavIds, double speed) {
+            this.id = id;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+            this.uavIds = uavIds;
+            this.speed = speed;
+        }
+
+        synchronized void seek(long millis) {
+            if (prefetch != null) {
+                prefetch.cancel(false);
+                prefetch = null;
+            }
+            buffer.clear();
+            position = millis;
+            emittedUntil = millis - TimeUnit.SECONDS.toMillis(snapshotLookbackSeconds);
+            loadedUntil = emittedUntil + 1;
+            snapshotPending = true;
+            if (state == ReplayState.ENDED) {
+                state = ReplayState.PAUSED;
+            }
+            lastTickNanos = System.nanoTime();
+            lastActivity = System.currentTimeMillis();
+        }
+
+        synchronized void setState(ReplayState newState) {
+            if (newState == ReplayState.PLAYING && position >= endMillis) {
+                return;
+            }
+            state = newState;
+            lastTickNanos = System.nanoTime();
+            lastActivity = System.currentTimeMillis();
+        }
+
+        synchronized void setSpeed(double newSpeed) {
+            speed = newSpeed;
+            lastActivity = System.currentTimeMillis();
+        }
+
+        synchronized boolean isIdleSince(long cutoff) {
+            return state != ReplayState.PLAYING && lastActivity < cutoff;
+        }
+
+        synchronized boolean takeEnded() {
+            boolean ended = endedPending;
+            endedPending = false;
+            return ended;
+        }
+
+        /**
+         * Advance the replay clock and collect the fleet frame for this tick, null when there is nothing to send
+         */
+        synchronized TelemetryFrame advance() {
+            long now = System.nanoTime();
+            if (state == ReplayState.PLAYING) {
+                position = Math.min(endMillis, position + (now - lastTickNanos) / 1e6 * speed);
+                lastActivity = System.currentTimeMillis();
+            }
+            lastTickNanos = now;
+            boolean snapshot = snapshotPending;
+            if (state != ReplayState.PLAYING && !snapshot) {
+                return null;
+            }
+            snapshotPending = false;
+
+            long clock = (long) position;
+            ensureLoaded(clock);
+            Map<Integer, UavTelemetry> latest = new LinkedHashMap<>();
+            while (!buffer.isEmpty() && buffer.peekFirst().getTimestamp().toEpochMilli() <= clock) {
+                UavTelemetry row = buffer.pollFirst();
+                if (row.getTimestamp().toEpochMilli() > emittedUntil) {
+                    latest.put(row.getUavId(), row);
+                }
+            }
+            emittedUntil = clock;
+
+            if (state == ReplayState.PLAYING && clock >= endMillis) {
+                state = ReplayState.ENDED;
+                endedPending = true;
+            }
+            // Ticks without new samples are skipped; clients follow the clock via the status topic
+            if (latest.isEmpty() && !snapshot) {
+                return null;
+            }
+            TelemetryFrame frame = TelemetryFrame.fromHistory(new ArrayList<>(latest.values()), clock);
+            frame.seq = ++seq;
+            frame.sourceId = "replay";
+            return frame;
+        }
+
+        /**
+         * Make sure history up to clock is buffered and prefetch the following chunk
+         */
+        private void ensureLoaded(long clock) {
+            long chunkMillis = TimeUnit.SECONDS.toMillis(chunkSeconds);
+            long limit = endMillis + 1;
+            while (loadedUntil <= clock && loadedUntil < limit) {
+                long to = Math.min(limit, Math.max(loadedUntil + chunkMillis, clock + 1));
+                List<UavTelemetry> rows;
+                if (prefetch != null && prefetchFrom == loadedUntil) {
+                    rows = prefetch.join();
+                    to = Math.min(limit, loadedUntil + chunkMillis);
+                } else {
+                    rows = loadChunk(uavIds, loadedUntil, to);
+                }
+                prefetch = null;
+                buffer.addAll(rows);
+                loadedUntil = to;
+            }
+            if (prefetch == null && loadedUntil < limit && loadedUntil - clock < chunkMillis) {
+                long from = loadedUntil;
+                long to = Math.min(limit, from + chunkMillis);
+                prefetchFrom = from;
+                prefetch = CompletableFuture.supplyAsync(() -> loadChunk(uavIds, from, to), loader);
+            }
+        }
+
+        synchronized ReplaySessionDTO toDTO() {
+            ReplaySessionDTO dto = new ReplaySessionDTO();
+            dto.setSessionId(id);
+            dto.setDestination(DESTINATION_PREFIX + id);
+            dto.setState(state.name());
+            dto.setStartTime(Instant.ofEpochMilli(startMillis));
+            dto.setEndTime(Instant.ofEpochMilli(endMillis));
+            dto.setPosition(Instant.ofEpochMilli((long) position));
+            dto.setSpeed(speed);
+            dto.setUavIds(uavIds);
+            return dto;
+        }
+    }
+}
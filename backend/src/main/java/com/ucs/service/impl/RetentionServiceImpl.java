@@ -0,0 +1,233 @@
+package com.ucs.service.impl;
+
+import com.ucs.dto.RetentionRunDTO;
+import com.ucs.repository.RetentionDeleter;
+import com.ucs.service.IRetentionService;
+import com.ucs.service.ITelemetryIngestService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.Temporal;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Retention service implementation
+ *
+ * Runs on its own low-priority thread (the shared scheduler thread also drives the latest-state
+ * and rollup flushes) and deletes at most chunk-size rows per statement, sleeping chunk-pause-ms
+ * between chunks and waiting while the ingest queue is busier than ingest-busy-depth. A pass stops
+ * after max-run-minutes and continues at the next interval. TimescaleDB hypertables drop whole
+ * chunks instead. A retention of 0 days keeps a data class forever.
+ */
+@Slf4j
+@Service
+public class RetentionServiceImpl implements IRetentionService {
+
+    private final RetentionDeleter retentionDeleter;
+    private final ITelemetryIngestService telemetryIngestService;
+
+    @Value("${retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${retention.raw-days:30}")
+    private int rawDays;
+
+    @Value("${retention.rollup-second-days:7}")
+    private int rollupSecondDays;
+
+    @Value("${retention.rollup-minute-days:90}")
+    private int rollupMinuteDays;
+
+    @Value("${retention.rollup-hour-days:730}")
+    private int rollupHourDays;
+
+    @Value("${retention.cell-visits-days:365}")
+    private int cellVisitsDays;
+
+    @Value("${retention.events-days:180}")
+    private int eventsDays;
+
+    @Value("${retention.command-logs-days:365}")
+    private int commandLogsDays;
+
+    @Value("${retention.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${retention.chunk-pause-ms:100}")
+    private long chunkPauseMs;
+
+    @Value("${retention.ingest-busy-depth:50}")
+    private int ingestBusyDepth;
+
+    @Value("${retention.max-run-minutes:10}")
+    private long maxRunMinutes;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile RetentionRunDTO lastRun;
+    private ExecutorService executor;
+
+    public RetentionServiceImpl(RetentionDeleter retentionDeleter,
+                                ITelemetryIngestService telemetryIngestService) {
+        this.retentionDeleter = retentionDeleter;
+        this.telemetryIngestService = telemetryIngestService;
+    }
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "retention");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Hand the pass to the retention thread so it never occupies the shared scheduler
+     */
+    @Scheduled(initialDelayString = "${retention.initial-delay-ms:300000}",
+               fixedDelayString = "${retention.interval-ms:3600000}")
+    public void scheduleRetention() {
+        if (enabled && !running.get()) {
+            executor.execute(this::runRetention);
+        }
+    }
+
+    @Override
+    public RetentionRunDTO runRetention() {
+        if (!running.compareAndSet(false, true)) {
+            return lastRun;
+        }
+        RetentionRunDTO run = new RetentionRunDTO();
+        run.setStartedAt(Instant.now());
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(maxRunMinutes);
+            boolean complete = true;
+            for (Target target : targets()) {
+                if (!purge(target, run, deadline)) {
+                    complete = false;
+                    break;
+                }
+            }
+            run.setComplete(complete);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.setComplete(false);
+        } catch (Exception e) {
+            log.error("Retention run failed", e);
+            run.setComplete(false);
+            run.setError(e.getMessage());
+        } finally {
+            run.setFinishedAt(Instant.now());
+            lastRun = run;
+            running.set(false);
+        }
+        log.info("Retention run finished (complete={}): deleted {}, dropped chunks {}",
+                run.getComplete(), run.getDeletedRows(), run.getDroppedChunks());
+        return run;
+    }
+
+    @Override
+    public RetentionRunDTO getLastRun() {
+        return lastRun;
+    }
+
+    /**
+     * Purge one data class; false when the time budget ran out first
+     */
+    private boolean purge(Target target, RetentionRunDTO run, long deadline) throws InterruptedException {
+        if (target.days <= 0) {
+            return true;
+        }
+        if (target.filterColumn == null && retentionDeleter.isHypertable(target.table)) {
+            Instant cutoff = Instant.now().minus(target.days, ChronoUnit.DAYS);
+            run.getDroppedChunks().put(target.name, retentionDeleter.dropChunks(target.table, cutoff));
+            return true;
+        }
+        Temporal cutoff = target.localTime
+                ? LocalDateTime.now().minusDays(target.days)
+                : Instant.now().minus(target.days, ChronoUnit.DAYS);
+        long deleted = 0;
+        try {
+            while (true) {
+                if (!awaitIngestIdle(deadline)) {
+                    return false;
+                }
+                int rows = retentionDeleter.deleteChunk(target.table, target.timeColumn, cutoff,
+                        target.filterColumn, target.filterValue, chunkSize);
+                deleted += rows;
+                if (rows < chunkSize) {
+                    return true;
+                }
+                Thread.sleep(chunkPauseMs);
+            }
+        } finally {
+            run.getDeletedRows().put(target.name, deleted);
+        }
+    }
+
+    /**
+     * Wait while live ingest has a backlog; false when the deadline passes
+     */
+    private boolean awaitIngestIdle(long deadline) throws InterruptedException {
+        while (System.nanoTime() < deadline) {
+            if (telemetryIngestService.getQueueDepth() < ingestBusyDepth) {
+                return true;
+            }
+            Thread.sleep(Math.max(chunkPauseMs, 100));
+        }
+        return false;
+    }
+
+    private List<Target> targets() {
+        return List.of(
+                new Target("raw", "uav_telemetry", "timestamp", false, null, null, rawDays),
+                new Target("rollup-1s", "uav_telemetry_rollup", "bucket_start", false, "resolution", 1, rollupSecondDays),
+                new Target("rollup-1m", "uav_telemetry_rollup", "bucket_start", false, "resolution", 60, rollupMinuteDays),
+                new Target("rollup-1h", "uav_telemetry_rollup", "bucket_start", false, "resolution", 3600, rollupHourDays),
+                new Target("cell-visits", "uav_cell_visit", "bucket_start", false, null, null, cellVisitsDays),
+                new Target("events", "event_log", "created_at", true, null, null, eventsDays),
+                new Target("command-logs", "command_log", "created_at", true, null, null, commandLogsDays));
+    }
+
+    /**
+     * One data class: table, time column (LocalDateTime columns hold server local time) and optional filter
+     */
+    private static final class Target {
+
+        private final String name;
+        private final String table;
+        private final String timeColumn;
+        private final boolean localTime;
+        private final String filterColumn;
+        private final Object filterValue;
+        private final int days;
+
+        Target(String name, String table, String timeColumn, boolean localTime,
+               String filterColumn, Object filterValue, int days) {
+            this.name = name;
+            this.table = table;
+            this.timeColumn = timeColumn;
+            this.localTime = localTime;
+            this.filterColumn = filterColumn;
+            this.filterValue = filterValue;
+            this.days = days;
+        }
+    }
+}
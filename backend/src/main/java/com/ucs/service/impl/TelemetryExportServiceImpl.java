@@ -0,0 +1,283 @@
+package com.ucs.service.impl;
+
+import com.ucs.service.ITelemetryExportService;
+import com.ucs.service.ITelemetryService;
+import com.ucs.telemetry.HistoryCursor;
+import com.ucs.telemetry.TelemetryExportEncoder;
+import com.ucs.telemetry.TelemetryExportFormat;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Telemetry export service implementation
+ *
+ * The file is generated from the (timestamp, id) keyset cursor in blocks of block-rows rows, each
+ * its own gzip member (TelemetryExportEncoder), so the same range always yields the same bytes.
+ * While generating, the byte offset and cursor position of every block boundary are remembered
+ * per range (up to index-cache-size ranges); a byte-range request restarts the cursor at the last
+ * boundary before the requested offset instead of regenerating the whole file. Memory per export
+ * is one block, whatever the range size.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TelemetryExportServiceImpl implements ITelemetryExportService {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'")
+            .withZone(ZoneOffset.UTC);
+
+    private final ITelemetryService telemetryService;
+
+    @Value("${telemetry.export.max-concurrent:2}")
+    private int maxConcurrent;
+
+    @Value("${telemetry.export.block-rows:8192}")
+    private int blockRows;
+
+    @Value("${telemetry.export.settle-seconds:60}")
+    private long settleSeconds;
+
+    @Value("${telemetry.export.index-cache-size:64}")
+    private int indexCacheSize;
+
+    private Semaphore slots;
+    private Map<String, BlockIndex> indexes;
+
+    @PostConstruct
+    public void init() {
+        slots = new Semaphore(Math.max(1, maxConcurrent));
+        indexes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BlockIndex> eldest) {
+                return size() > indexCacheSize;
+            }
+        };
+    }
+
+    @Override
+    public Export open(TelemetryExportFormat format, List<Integer> uavIds, Instant startTime, Instant endTime) {
+        if (!slots.tryAcquire()) {
+            return null;
+        }
+        List<Integer> ids = uavIds != null ? uavIds.stream().distinct().sorted().toList() : List.of();
+        String key = format + "|" + startTime + "|" + endTime + "|" + ids;
+        boolean rangeable = !endTime.plusSeconds(settleSeconds).isAfter(Instant.now());
+        BlockIndex index;
+        if (rangeable) {
+            synchronized (indexes) {
+                index = indexes.computeIfAbsent(key, k -> new BlockIndex());
+            }
+        } else {
+            index = new BlockIndex();
+        }
+        return new RangeExport(format, ids, startTime, endTime, key, rangeable, index);
+    }
+
+    private final class RangeExport implements Export {
+
+        private final TelemetryExportFormat format;
+        private final List<Integer> uavIds;
+        private final Instant startTime;
+        private final Instant endTime;
+        private final String key;
+        private final boolean rangeable;
+        private final BlockIndex index;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        RangeExport(TelemetryExportFormat format, List<Integer> uavIds, Instant startTime, Instant endTime,
+                    String key, boolean rangeable, BlockIndex index) {
+            this.format = format;
+            this.uavIds = uavIds;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.key = key;
+            this.rangeable = rangeable;
+            this.index = index;
+        }
+
+        @Override
+        public String getFileName() {
+            return "telemetry-" + FILE_TIME.format(startTime) + "-" + FILE_TIME.format(endTime)
+                    + format.getFileExtension();
+        }
+
+        @Override
+        public boolean isRangeable() {
+            return rangeable;
+        }
+
+        @Override
+        public String getETag() {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+                return "\"" + HexFormat.of().formatHex(digest, 0, 12) + "\"";
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public long getKnownLength() {
+            return index.length();
+        }
+
+        @Override
+        public long measureLength() throws IOException {
+            long length = index.length();
+            if (length < 0) {
+                generate(OutputStream.nullOutputStream(), index.lastOffset(), Long.MAX_VALUE);
+                length = index.length();
+            }
+            return length;
+        }
+
+        @Override
+        public void writeTo(OutputStream out, long from, long to) throws IOException {
+            generate(out, from, to);
+        }
+
+        private void generate(OutputStream target, long from, long to) throws IOException {
+            int block = index.floor(from);
+            RangeOutputStream out = new RangeOutputStream(target, index.offset(block), from, to);
+            TelemetryExportEncoder encoder = format.newEncoder(blockRows);
+            if (block == 0) {
+                encoder.writeHeader(out);
+            }
+            int[] current = {block};
+            try {
+                telemetryService.streamTelemetryRange(uavIds, startTime, endTime, index.cursor(block), row -> {
+                    try {
+                        if (encoder.writeRow(out, row)) {
+                            index.record(++current[0], out.position, new HistoryCursor(row.getTimestamp(), row.getId()));
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return !out.isDone();
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (!out.isDone()) {
+                encoder.finish(out);
+                index.complete(out.position);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                slots.release();
+            }
+        }
+    }
+
+    /**
+     * Byte offsets and cursor positions of the block boundaries of one export
+     * Boundary 0 is the start of the file (header, no cursor); boundary k follows the k-th full block.
+     */
+    private static final class BlockIndex {
+
+        private final List<Long> offsets = new ArrayList<>(List.of(0L));
+        private final List<HistoryCursor> cursors = new ArrayList<>(Collections.singletonList(null));
+        private long length = -1;
+
+        synchronized int floor(long position) {
+            int block = 0;
+            while (block + 1 < offsets.size() && offsets.get(block + 1) <= position) {
+                block++;
+            }
+            return block;
+        }
+
+        synchronized long offset(int block) {
+            return offsets.get(block);
+        }
+
+        synchronized HistoryCursor cursor(int block) {
+            return cursors.get(block);
+        }
+
+        synchronized long lastOffset() {
+            return offsets.get(offsets.size() - 1);
+        }
+
+        synchronized void record(int block, long offset, HistoryCursor cursor) {
+            if (block == offsets.size()) {
+                offsets.add(offset);
+                cursors.add(cursor);
+            }
+        }
+
+        synchronized void complete(long length) {
+            this.length = length;
+        }
+
+        synchronized long length() {
+            return length;
+        }
+    }
+
+    /**
+     * Passes on only the bytes in [from, to) of the generated file, starting at file offset position
+     */
+    private static final class RangeOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private final long from;
+        private final long to;
+        private long position;
+
+        RangeOutputStream(OutputStream out, long position, long from, long to) {
+            this.out = out;
+            this.position = position;
+            this.from = from;
+            this.to = to;
+        }
+
+        boolean isDone() {
+            return position >= to;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            long start = Math.max(position, from);
+            long end = Math.min(position + length, to);
+            if (start < end) {
+                out.write(bytes, offset + (int) (start - position), (int) (end - start));
+            }
+            position += length;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
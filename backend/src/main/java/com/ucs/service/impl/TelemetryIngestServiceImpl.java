@@ -0,0 +1,280 @@
+package com.ucs.service.impl;
+
+import com.ucs.dto.IngestStatsDTO;
+import com.ucs.service.ITelemetryIngestService;
+import com.ucs.service.ITelemetryService;
+import com.ucs.telemetry.HistoryDecimator;
+import com.ucs.telemetry.SequenceTracker;
+import com.ucs.telemetry.TelemetryFrame;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Telemetry ingest implementation
+ * Retried frames are dropped by msgSeqNumber before queueing. In async mode frames are
+ * acknowledged once admitted (at most queue-capacity frames in flight) and processed by a fixed
+ * set of single-threaded shard workers. Each frame is split by uavId so every UAV has exactly
+ * one writer: per-UAV order is kept and shards never contend on the same latest state row.
+ * The whole frame is broadcast once its last shard has been persisted, by a single broadcast
+ * thread in the order frames were admitted, so a frame whose shards finish early never
+ * overtakes the one before it on the WebSocket topics.
+ */
+@Slf4j
+@Service
+public class TelemetryIngestServiceImpl implements ITelemetryIngestService {
+
+    private final ITelemetryService telemetryService;
+    private final SequenceTracker sequenceTracker;
+    private final HistoryDecimator historyDecimator;
+
+    @Value("${telemetry.ingest.mode:async}")
+    private String mode;
+
+    @Value("${telemetry.ingest.workers:2}")
+    private int workers;
+
+    @Value("${telemetry.ingest.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${telemetry.ingest.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+
+    @Value("${telemetry.ingest.shutdown-timeout-seconds:10}")
+    private int shutdownTimeoutSeconds;
+
+    private ThreadPoolExecutor[] shards;
+    private ThreadPoolExecutor broadcastStage;
+    /** Admitted frames not yet broadcast, in admission order; only the broadcast thread removes them */
+    private final ConcurrentLinkedQueue<PendingFrame> broadcastOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public TelemetryIngestServiceImpl(ITelemetryService telemetryService,
+                                      SequenceTracker sequenceTracker,
+                                      HistoryDecimator historyDecimator) {
+        this.telemetryService = telemetryService;
+        this.sequenceTracker = sequenceTracker;
+        this.historyDecimator = historyDecimator;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!isAsyncEnabled()) {
+            log.info("Telemetry ingest running in synchronous mode");
+            return;
+        }
+        shards = new ThreadPoolExecutor[workers];
+        for (int i = 0; i < workers; i++) {
+            shards[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+            shards[i].setThreadFactory(namedThreadFactory("telemetry-ingest-" + i));
+            shards[i].prestartAllCoreThreads();
+        }
+        broadcastStage = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        broadcastStage.setThreadFactory(namedThreadFactory("telemetry-broadcast"));
+        log.info("Telemetry ingest running in async mode: shards={}, queueCapacity={}",
+                workers, queueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (shards == null) {
+            return;
+        }
+        for (ThreadPoolExecutor shard : shards) {
+            shard.shutdown();
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(shutdownTimeoutSeconds);
+        try {
+            for (ThreadPoolExecutor shard : shards) {
+                long remaining = deadline - System.nanoTime();
+                if (!shard.awaitTermination(Math.max(remaining, 0), TimeUnit.NANOSECONDS)) {
+                    log.warn("Telemetry ingest shard did not drain within {}s, {} frame parts dropped",
+                            shutdownTimeoutSeconds, shard.shutdownNow().size());
+                }
+            }
+            broadcastStage.shutdown();
+            if (!broadcastStage.awaitTermination(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS)) {
+                broadcastStage.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            for (ThreadPoolExecutor shard : shards) {
+                shard.shutdownNow();
+            }
+            broadcastStage.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isAsyncEnabled() {
+        return "async".equalsIgnoreCase(mode);
+    }
+
+    @Override
+    public IngestResult ingest(TelemetryFrame frame) {
+        if (frame.isEmpty()) {
+            return IngestResult.ACCEPTED;
+        }
+        SequenceTracker.Verdict verdict = sequenceTracker.track(frame.sourceId, frame.seq);
+        if (verdict == SequenceTracker.Verdict.DUPLICATE || verdict == SequenceTracker.Verdict.STALE) {
+            (verdict == SequenceTracker.Verdict.DUPLICATE ? duplicates : stale).increment();
+            log.debug("Dropped {} telemetry frame source={} seq={}", verdict, frame.sourceId, frame.seq);
+            return IngestResult.DUPLICATE;
+        }
+        if (!isAsyncEnabled()) {
+            accepted.increment();
+            try {
+                process(frame);
+            } catch (RuntimeException e) {
+                // Not handled, so a retry of the same seq must not be dropped as a duplicate
+                sequenceTracker.forget(frame.sourceId, frame.seq);
+                throw e;
+            }
+            return IngestResult.ACCEPTED;
+        }
+        if (inFlight.incrementAndGet() > queueCapacity) {
+            inFlight.decrementAndGet();
+            rejected.increment();
+            sequenceTracker.forget(frame.sourceId, frame.seq);
+            log.warn("Telemetry ingest queue full ({} batches), rejecting source={} seq={}",
+                    queueCapacity, frame.sourceId, frame.seq);
+            return IngestResult.QUEUE_FULL;
+        }
+        accepted.increment();
+        TelemetryFrame[] parts = frame.partition(shards.length);
+        int partCount = 0;
+        for (TelemetryFrame part : parts) {
+            if (part != null) {
+                partCount++;
+            }
+        }
+        PendingFrame pending = new PendingFrame(frame, partCount);
+        // Queued for broadcast in the same order its parts reach the shards
+        synchronized (broadcastOrder) {
+            broadcastOrder.add(pending);
+            for (int i = 0; i < parts.length; i++) {
+                TelemetryFrame part = parts[i];
+                if (part != null) {
+                    shards[i].execute(() -> processShard(pending, part));
+                }
+            }
+        }
+        return IngestResult.ACCEPTED;
+    }
+
+    @Override
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return inFlight.get();
+    }
+
+    @Override
+    public IngestStatsDTO getStats() {
+        IngestStatsDTO stats = new IngestStatsDTO();
+        stats.setMode(isAsyncEnabled() ? "async" : "sync");
+        stats.setQueueDepth(getQueueDepth());
+        stats.setQueueCapacity(isAsyncEnabled() ? queueCapacity : 0);
+        stats.setAccepted(accepted.sum());
+        stats.setDuplicates(duplicates.sum());
+        stats.setStale(stale.sum());
+        stats.setRejected(rejected.sum());
+        stats.setProcessed(processed.sum());
+        stats.setFailed(failed.sum());
+        stats.setUnsequenced(sequenceTracker.getUnsequencedCount());
+        stats.setHistoryRowsKept(historyDecimator.getKeptCount());
+        stats.setHistoryRowsDropped(historyDecimator.getDroppedCount());
+        stats.setSources(sequenceTracker.getSourceStats());
+        return stats;
+    }
+
+    private void process(TelemetryFrame frame) {
+        try {
+            telemetryService.processTelemetryFrame(frame);
+            processed.increment();
+        } catch (RuntimeException e) {
+            failed.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Persist one shard of a frame; the last shard to finish hands the frame to the broadcast stage
+     */
+    private void processShard(PendingFrame pending, TelemetryFrame part) {
+        try {
+            telemetryService.persistTelemetryFrame(part);
+        } catch (Exception e) {
+            pending.failed = true;
+            log.error("Failed to persist telemetry shard source={} seq={}", part.sourceId, part.seq, e);
+        }
+        if (pending.remaining.decrementAndGet() > 0) {
+            return;
+        }
+        pending.persisted = true;
+        broadcastStage.execute(this::broadcastPersisted);
+    }
+
+    /**
+     * Broadcast the persisted frames at the head of the admission order (broadcast thread only)
+     */
+    private void broadcastPersisted() {
+        PendingFrame pending;
+        while ((pending = broadcastOrder.peek()) != null && pending.persisted) {
+            broadcastOrder.poll();
+            try {
+                telemetryService.broadcastTelemetryFrame(pending.frame);
+            } catch (Exception e) {
+                pending.failed = true;
+                log.error("Failed to broadcast telemetry frame source={} seq={}", pending.frame.sourceId, pending.frame.seq, e);
+            } finally {
+                (pending.failed ? failed : processed).increment();
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private static ThreadFactory namedThreadFactory(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * A frame admitted in async mode, tracked until all of its shards are persisted and it is broadcast
+     */
+    private static final class PendingFrame {
+
+        private final TelemetryFrame frame;
+        private final AtomicInteger remaining;
+        private volatile boolean failed;
+        private volatile boolean persisted;
+
+        PendingFrame(TelemetryFrame frame, int parts) {
+            this.frame = frame;
+            this.remaining = new AtomicInteger(parts);
+        }
+    }
+}
@@ -1,22 +1,60 @@
 package com.ucs.service.impl;
 
+import com.ucs.dto.AreaPassDTO;
+import com.ucs.dto.TelemetryRollupSeriesDTO;
 import com.ucs.dto.UavTelemetryBatchDTO;
-import com.ucs.dto.UavTelemetryDTO;
+import com.ucs.dto.UavTrailDTO;
+import com.ucs.entity.UavCellVisit;
+import com.ucs.entity.UavFlight;
+import com.ucs.entity.UavFlightStats;
 import com.ucs.entity.UavLatestState;
 import com.ucs.entity.UavTelemetry;
+import com.ucs.entity.UavTelemetryRollup;
+import com.ucs.repository.RetentionDeleter;
+import com.ucs.repository.UavCellVisitRepository;
+import com.ucs.repository.UavFlightRepository;
+import com.ucs.repository.UavFlightStatsRepository;
 import com.ucs.repository.UavLatestStateRepository;
+import com.ucs.repository.UavTelemetryBatchWriter;
 import com.ucs.repository.UavTelemetryRepository;
+import com.ucs.repository.UavTelemetryRollupRepository;
 import com.ucs.service.ITelemetryService;
+import com.ucs.telemetry.FlightSegmenter;
+import com.ucs.telemetry.FlightStatsStore;
+import com.ucs.telemetry.HistoryCursor;
+import com.ucs.telemetry.HistoryDecimator;
+import com.ucs.telemetry.LatestStateStore;
+import com.ucs.telemetry.RecentHistoryBuffer;
+import com.ucs.telemetry.SpatialIndexStore;
+import com.ucs.telemetry.TelemetryFrame;
+import com.ucs.telemetry.TelemetryRollupStore;
+import com.ucs.telemetry.TrajectorySimplifier;
+import com.ucs.websocket.ScopedTelemetryFanout;
+import com.ucs.websocket.SharedPayloadBroadcaster;
+import com.ucs.websocket.ViewportFanout;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * Service implementation for UAV telemetry data
@@ -26,9 +64,37 @@ import java.util.List;
 @RequiredArgsConstructor
 public class TelemetryServiceImpl implements ITelemetryService {
     
+    private static final int CLEANUP_CHUNK_SIZE = 5000;
+    private static final int AREA_CELLS_PER_QUERY = 1000;
+    
     private final UavTelemetryRepository telemetryRepository;
     private final UavLatestStateRepository latestStateRepository;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final UavTelemetryRollupRepository rollupRepository;
+    private final UavTelemetryBatchWriter telemetryBatchWriter;
+    private final RetentionDeleter retentionDeleter;
+    private final HistoryDecimator historyDecimator;
+    private final LatestStateStore latestStateStore;
+    private final TelemetryRollupStore rollupStore;
+    private final RecentHistoryBuffer recentHistory;
+    private final FlightStatsStore flightStatsStore;
+    private final UavFlightStatsRepository flightStatsRepository;
+    private final FlightSegmenter flightSegmenter;
+    private final UavFlightRepository flightRepository;
+    private final SpatialIndexStore spatialIndexStore;
+    private final SharedPayloadBroadcaster sharedPayloadBroadcaster;
+    private final ScopedTelemetryFanout scopedTelemetryFanout;
+    private final ViewportFanout viewportFanout;
+    private final UavCellVisitRepository cellVisitRepository;
+    private final EntityManager entityManager;
+    
+    @Value("${telemetry.history.simplify.window:5000}")
+    private int simplifyWindow;
+    
+    @Value("${telemetry.spatial.max-query-cells:20000}")
+    private int maxQueryCells;
+    
+    @Value("${telemetry.spatial.pass-gap-seconds:60}")
+    private long passGapSeconds;
     
     @Override
     @Transactional
@@ -37,92 +103,445 @@ public class TelemetryServiceImpl implements ITelemetryService {
             log.warn("Received empty telemetry batch");
             return;
         }
+        processTelemetryFrame(TelemetryFrame.fromBatch(batch));
+    }
+    
+    @Override
+    @Transactional
+    public void processTelemetryFrame(TelemetryFrame frame) {
+        if (frame == null || frame.isEmpty()) {
+            log.warn("Received empty telemetry frame");
+            return;
+        }
+        
+        log.debug("Processing telemetry frame with {} UAVs, seq={}", frame.size(), frame.seq);
         
-        log.debug("Processing telemetry batch with {} UAVs, seq={}", 
-                batch.getUavs().size(), batch.getMsgSeqNumber());
-        
-        List<UavTelemetry> telemetryList = new ArrayList<>();
-        List<UavLatestState> latestStates = new ArrayList<>();
-        
-        Instant batchTimestamp = batch.getTimestamp() != null ? batch.getTimestamp() : Instant.now();
-        
-        for (UavTelemetryDTO dto : batch.getUavs()) {
-            // Create telemetry record for history
-            UavTelemetry telemetry = new UavTelemetry();
-            telemetry.setUavId(dto.getUavId());
-            telemetry.setTimestamp(dto.getTimestamp() != null ? dto.getTimestamp() : batchTimestamp);
-            telemetry.setLat(dto.getLat());
-            telemetry.setLon(dto.getLon());
-            telemetry.setAlt(dto.getAlt());
-            telemetry.setHeading(dto.getHeading());
-            telemetry.setGroundSpeed(dto.getGroundSpeed());
-            telemetry.setVerticalSpeed(dto.getVerticalSpeed());
-            telemetry.setNedX(dto.getNedX());
-            telemetry.setNedY(dto.getNedY());
-            telemetry.setNedZ(dto.getNedZ());
-            telemetry.setVx(dto.getVx());
-            telemetry.setVy(dto.getVy());
-            telemetry.setVz(dto.getVz());
-            telemetry.setDataAge(dto.getDataAge());
-            telemetry.setMsgCount(dto.getMsgCount());
-            telemetry.setIsActive(dto.getIsActive());
-            telemetryList.add(telemetry);
-            
-            // Create/update latest state record
-            UavLatestState latestState = new UavLatestState();
-            latestState.setUavId(dto.getUavId());
-            latestState.setLastUpdate(dto.getTimestamp() != null ? dto.getTimestamp() : batchTimestamp);
-            latestState.setLat(dto.getLat());
-            latestState.setLon(dto.getLon());
-            latestState.setAlt(dto.getAlt());
-            latestState.setHeading(dto.getHeading());
-            latestState.setGroundSpeed(dto.getGroundSpeed());
-            latestState.setVerticalSpeed(dto.getVerticalSpeed());
-            latestState.setNedX(dto.getNedX());
-            latestState.setNedY(dto.getNedY());
-            latestState.setNedZ(dto.getNedZ());
-            latestState.setVx(dto.getVx());
-            latestState.setVy(dto.getVy());
-            latestState.setVz(dto.getVz());
-            latestState.setDataAge(dto.getDataAge());
-            latestState.setMsgCount(dto.getMsgCount());
-            latestState.setIsActive(dto.getIsActive());
-            latestStates.add(latestState);
-        }
-        
-        // Batch save telemetry history
-        telemetryRepository.saveAll(telemetryList);
-        
-        // Batch save/update latest states (JPA will handle upsert via @Id)
-        latestStateRepository.saveAll(latestStates);
-        
-        // Broadcast to WebSocket subscribers
-        messagingTemplate.convertAndSend("/topic/telemetry", batch);
-        
-        log.debug("Processed and broadcast {} UAV telemetry records", telemetryList.size());
+        persistTelemetryFrame(frame);
+        broadcastTelemetryFrame(frame);
+        
+        log.debug("Processed and broadcast {} UAV telemetry records", frame.size());
+    }
+    
+    @Override
+    @Transactional
+    public void persistTelemetryFrame(TelemetryFrame frame) {
+        // Batch insert the decimated telemetry history (multi-row INSERT or COPY, bypassing IDENTITY-disabled JPA batching)
+        int[] historyRows = UavTelemetryBatchWriter.positioned(frame, historyDecimator.select(frame));
+        telemetryBatchWriter.write(frame, historyRows);
+        
+        // Keep the same rows compressed in memory for recent history and trail queries, once they are committed
+        afterCommit(() -> recentHistory.append(frame, historyRows));
+        
+        // Fold every sample into the 1 s / 1 min / 1 h rollups; merged into uav_telemetry_rollup in the background
+        rollupStore.update(frame);
+        
+        // Running distance / climb / altitude / active time totals of the day; flushed to uav_flight_stats in the background
+        flightStatsStore.update(frame);
+        
+        // Extend the (grid cell, time bucket) visits of the spatio-temporal index; merged into uav_cell_visit in the background
+        spatialIndexStore.update(frame);
+        
+        // Detect takeoff / landing and keep the summary of the current flight; flushed to uav_flight in the background
+        flightSegmenter.update(frame);
+        
+        // Update the in-memory latest state; it is flushed to uav_latest_state in the background
+        latestStateStore.update(frame);
+    }
+    
+    @Override
+    public void broadcastTelemetryFrame(TelemetryFrame frame) {
+        // Broadcast every sample to WebSocket subscribers (serialized once, in the UavTelemetryBatchDTO shape;
+        // conflated to the newest sample per UAV for sessions that fall behind)
+        sharedPayloadBroadcaster.broadcastTelemetry("/topic/telemetry", frame);
+        
+        // Same rows split once per frame onto /topic/uav/{id}, /topic/team/{teamId}/telemetry and /user/queue/fleet
+        scopedTelemetryFanout.publish(frame);
+        
+        // Latest position per UAV for viewport subscribers; sent on their own schedule by zoom level
+        viewportFanout.track(frame);
+    }
+    
+    /**
+     * Run once the current transaction commits (at once without one), so a rolled-back write is not seen
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
     
     @Override
     public List<UavLatestState> getAllLatestStates() {
-        return latestStateRepository.findAllByOrderByUavIdAsc();
+        return latestStateStore.getAll();
     }
     
     @Override
     public UavLatestState getLatestState(Integer uavId) {
-        return latestStateRepository.findById(uavId).orElse(null);
+        return latestStateStore.get(uavId)
+                .orElseGet(() -> latestStateRepository.findById(uavId).orElse(null));
+    }
+    
+    @Override
+    public UavFlightStats getFlightStats(Integer uavId, LocalDate date) {
+        LocalDate day = date != null ? date : LocalDate.now(flightStatsStore.getZoneId());
+        UavFlightStats live = flightStatsStore.get(uavId, day);
+        return live != null ? live : flightStatsRepository.findByUavIdAndStatsDate(uavId, day).orElse(null);
+    }
+    
+    @Override
+    public List<UavFlightStats> getFleetFlightStats(LocalDate date) {
+        LocalDate day = date != null ? date : LocalDate.now(flightStatsStore.getZoneId());
+        // Stored rows, replaced by the live totals of UAVs still accumulating that day
+        Map<Integer, UavFlightStats> stats = new TreeMap<>();
+        for (UavFlightStats stored : flightStatsRepository.findByStatsDateOrderByUavIdAsc(day)) {
+            stats.put(stored.getUavId(), stored);
+        }
+        for (UavFlightStats live : flightStatsStore.getAll(day)) {
+            stats.put(live.getUavId(), live);
+        }
+        return new ArrayList<>(stats.values());
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<AreaPassDTO> findAreaPasses(double minLat, double minLon, double maxLat, double maxLon,
+                                            Instant startTime, Instant endTime, boolean exact) {
+        List<Long> cells = spatialIndexStore.cellsIn(minLat, minLon, maxLat, maxLon, maxQueryCells);
+        if (cells == null) {
+            throw new IllegalArgumentException("Area covers more than " + maxQueryCells + " grid cells");
+        }
+        Instant firstBucket = spatialIndexStore.bucketOf(startTime);
+        Map<Integer, List<UavCellVisit>> visitsByUav = new TreeMap<>();
+        for (int from = 0; from < cells.size(); from += AREA_CELLS_PER_QUERY) {
+            List<Long> chunk = cells.subList(from, Math.min(cells.size(), from + AREA_CELLS_PER_QUERY));
+            for (UavCellVisit visit : cellVisitRepository.findByCellIdInAndBucketStartBetween(chunk, firstBucket, endTime)) {
+                if (!visit.getLastTime().isBefore(startTime) && !visit.getFirstTime().isAfter(endTime)) {
+                    visitsByUav.computeIfAbsent(visit.getUavId(), id -> new ArrayList<>()).add(visit);
+                }
+            }
+        }
+        
+        long gapMillis = passGapSeconds * 1000;
+        List<AreaPassDTO> passes = new ArrayList<>();
+        for (Map.Entry<Integer, List<UavCellVisit>> entry : visitsByUav.entrySet()) {
+            List<UavCellVisit> visits = entry.getValue();
+            visits.sort(Comparator.comparing(UavCellVisit::getFirstTime));
+            if (exact) {
+                Instant from = visits.get(0).getFirstTime();
+                Instant to = visits.stream().map(UavCellVisit::getLastTime).max(Comparator.naturalOrder()).orElseThrow();
+                exactPasses(entry.getKey(), minLat, minLon, maxLat, maxLon,
+                        from.isBefore(startTime) ? startTime : from, to.isAfter(endTime) ? endTime : to, gapMillis, passes);
+            } else {
+                cellPasses(entry.getKey(), visits, startTime, endTime, gapMillis, passes);
+            }
+        }
+        return passes;
+    }
+    
+    /**
+     * Passes at cell granularity: visits closer than the gap are one pass
+     */
+    private static void cellPasses(Integer uavId, List<UavCellVisit> visits, Instant startTime, Instant endTime,
+                                   long gapMillis, List<AreaPassDTO> passes) {
+        AreaPassDTO pass = null;
+        for (UavCellVisit visit : visits) {
+            Instant entry = visit.getFirstTime().isBefore(startTime) ? startTime : visit.getFirstTime();
+            Instant exit = visit.getLastTime().isAfter(endTime) ? endTime : visit.getLastTime();
+            if (pass == null || entry.toEpochMilli() - pass.getExitTime().toEpochMilli() > gapMillis) {
+                pass = newPass(uavId, entry);
+                passes.add(pass);
+            }
+            if (exit.isAfter(pass.getExitTime())) {
+                pass.setExitTime(exit);
+            }
+            pass.setSampleCount(pass.getSampleCount() + visit.getSampleCount());
+        }
+    }
+    
+    /**
+     * Passes from the stored history of one candidate UAV, restricted to the window its visits span
+     */
+    private void exactPasses(Integer uavId, double minLat, double minLon, double maxLat, double maxLon,
+                             Instant from, Instant to, long gapMillis, List<AreaPassDTO> passes) {
+        AreaPassDTO pass = null;
+        try (Stream<UavTelemetry> rows = telemetryRepository.streamHistoryAfter(uavId, from, -1L, to)) {
+            Iterator<UavTelemetry> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                UavTelemetry row = iterator.next();
+                entityManager.detach(row);
+                if (row.getLat() < minLat || row.getLat() > maxLat || row.getLon() < minLon || row.getLon() > maxLon) {
+                    continue;
+                }
+                if (pass == null || row.getTimestamp().toEpochMilli() - pass.getExitTime().toEpochMilli() > gapMillis) {
+                    pass = newPass(uavId, row.getTimestamp());
+                    passes.add(pass);
+                }
+                pass.setExitTime(row.getTimestamp());
+                pass.setSampleCount(pass.getSampleCount() + 1);
+            }
+        }
+    }
+    
+    private static AreaPassDTO newPass(Integer uavId, Instant entry) {
+        AreaPassDTO pass = new AreaPassDTO();
+        pass.setUavId(uavId);
+        pass.setEntryTime(entry);
+        pass.setExitTime(entry);
+        pass.setSampleCount(0L);
+        return pass;
+    }
+    
+    @Override
+    public List<UavFlight> getFlights(Integer uavId, Instant startTime, Instant endTime, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        List<UavFlight> flights = uavId != null
+                ? flightRepository.findOverlappingByUavId(uavId, startTime, endTime, page)
+                : flightRepository.findOverlapping(startTime, endTime, page);
+        return flights.stream().map(this::withLiveSummary).toList();
+    }
+    
+    @Override
+    public UavFlight getFlight(Long flightId) {
+        return flightRepository.findById(flightId).map(this::withLiveSummary).orElse(null);
+    }
+    
+    @Override
+    public UavFlight getLastFlight(Integer uavId) {
+        UavFlight current = flightSegmenter.getCurrent(uavId);
+        if (current != null) {
+            return current;
+        }
+        return flightRepository.findFirstByUavIdOrderByStartTimeDesc(uavId).orElse(null);
+    }
+    
+    /**
+     * The stored row of a flight in progress lags up to one flush behind the segmenter
+     */
+    private UavFlight withLiveSummary(UavFlight stored) {
+        if (Boolean.TRUE.equals(stored.getInProgress())) {
+            UavFlight current = flightSegmenter.getCurrent(stored.getUavId());
+            if (current != null && stored.getId().equals(current.getId())) {
+                return current;
+            }
+        }
+        return stored;
+    }
+    
+    @Override
+    public List<UavFlightStats> pollChangedFlightStats() {
+        return flightStatsStore.drainChanged();
     }
     
     @Override
     public List<UavTelemetry> getTelemetryHistory(Integer uavId, Instant startTime, Instant endTime) {
-        return telemetryRepository.findByUavIdAndTimestampBetweenOrderByTimestampAsc(
-                uavId, startTime, endTime);
+        List<UavTelemetry> recent = new ArrayList<>();
+        Instant coveredFrom = recentHistory.read(uavId, startTime, endTime, recent::add);
+        if (coveredFrom != null && !startTime.isBefore(coveredFrom)) {
+            return recent;
+        }
+        // Only the part older than the buffer goes to the database
+        Instant dbEnd = coveredFrom != null && coveredFrom.isBefore(endTime) ? coveredFrom.minusNanos(1) : endTime;
+        List<UavTelemetry> history = telemetryRepository.findByUavIdAndTimestampBetweenOrderByTimestampAsc(
+                uavId, startTime, dbEnd);
+        history.addAll(recent);
+        return history;
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<UavTelemetry> getSimplifiedTelemetryHistory(Integer uavId, Instant startTime, Instant endTime,
+                                                            Integer maxPoints, Double toleranceM) {
+        TrajectorySimplifier simplifier = toleranceM != null
+                ? TrajectorySimplifier.douglasPeucker(toleranceM, simplifyWindow)
+                : TrajectorySimplifier.timeBuckets(startTime, endTime, maxPoints);
+        List<UavTelemetry> recent = new ArrayList<>();
+        Instant coveredFrom = recentHistory.read(uavId, startTime, endTime, recent::add);
+        if (coveredFrom == null || startTime.isBefore(coveredFrom)) {
+            Instant dbEnd = coveredFrom != null && coveredFrom.isBefore(endTime) ? coveredFrom.minusNanos(1) : endTime;
+            streamTelemetryHistory(uavId, startTime, dbEnd, null, Integer.MAX_VALUE, simplifier);
+        }
+        recent.forEach(simplifier);
+        return simplifier.finish();
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<UavTrailDTO> getTrails(List<Integer> uavIds, Instant sinceTime) {
+        List<Integer> ids = uavIds != null && !uavIds.isEmpty() ? uavIds : latestStateStore.getUavIds();
+        long since = sinceTime.toEpochMilli();
+        Map<Integer, RecentHistoryBuffer.Trail> buffered = new HashMap<>();
+        List<Integer> fallback = new ArrayList<>();
+        long fallbackEnd = Long.MIN_VALUE;
+        for (Integer uavId : ids) {
+            RecentHistoryBuffer.Trail trail = recentHistory.readTrail(uavId, since);
+            if (trail != null) {
+                buffered.put(uavId, trail);
+            }
+            if (trail == null || trail.coveredFrom > since) {
+                fallback.add(uavId);
+                fallbackEnd = Math.max(fallbackEnd, trail != null ? trail.coveredFrom - 1 : System.currentTimeMillis());
+            }
+        }
+        
+        // One query for every UAV whose trail starts before its buffered rows
+        Map<Integer, List<UavTelemetry>> older = new HashMap<>();
+        if (!fallback.isEmpty() && fallbackEnd >= since) {
+            for (UavTelemetry row : telemetryRepository.findByUavIdInAndTimestampBetweenOrderByTimestampAsc(
+                    fallback, sinceTime, Instant.ofEpochMilli(fallbackEnd))) {
+                RecentHistoryBuffer.Trail trail = buffered.get(row.getUavId());
+                if (trail == null || row.getTimestamp().toEpochMilli() < trail.coveredFrom) {
+                    older.computeIfAbsent(row.getUavId(), id -> new ArrayList<>()).add(row);
+                }
+                entityManager.detach(row);
+            }
+        }
+        
+        List<UavTrailDTO> trails = new ArrayList<>(ids.size());
+        for (Integer uavId : ids) {
+            UavTrailDTO dto = toTrail(uavId, older.getOrDefault(uavId, List.of()), buffered.get(uavId));
+            if (dto.getTimestamps().length > 0) {
+                trails.add(dto);
+            }
+        }
+        return trails;
+    }
+    
+    private static UavTrailDTO toTrail(Integer uavId, List<UavTelemetry> older, RecentHistoryBuffer.Trail trail) {
+        int bufferedCount = trail != null ? trail.time.length : 0;
+        int count = older.size() + bufferedCount;
+        long[] timestamps = new long[count];
+        double[] lat = new double[count];
+        double[] lon = new double[count];
+        double[] alt = new double[count];
+        for (int i = 0; i < older.size(); i++) {
+            UavTelemetry row = older.get(i);
+            timestamps[i] = row.getTimestamp().toEpochMilli();
+            lat[i] = row.getLat();
+            lon[i] = row.getLon();
+            alt[i] = row.getAlt();
+        }
+        if (bufferedCount > 0) {
+            System.arraycopy(trail.time, 0, timestamps, older.size(), bufferedCount);
+            System.arraycopy(trail.lat, 0, lat, older.size(), bufferedCount);
+            System.arraycopy(trail.lon, 0, lon, older.size(), bufferedCount);
+            System.arraycopy(trail.alt, 0, alt, older.size(), bufferedCount);
+        }
+        UavTrailDTO dto = new UavTrailDTO();
+        dto.setUavId(uavId);
+        dto.setTimestamps(timestamps);
+        dto.setLat(lat);
+        dto.setLon(lon);
+        dto.setAlt(alt);
+        return dto;
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public String streamTelemetryHistory(Integer uavId, Instant startTime, Instant endTime,
+                                         String cursor, int limit, Consumer<UavTelemetry> consumer) {
+        HistoryCursor after = cursor != null ? HistoryCursor.decode(cursor) : null;
+        Instant afterTimestamp = after != null ? after.getTimestamp() : startTime;
+        long afterId = after != null ? after.getId() : -1L;
+        
+        int count = 0;
+        UavTelemetry last = null;
+        try (Stream<UavTelemetry> rows = telemetryRepository.streamHistoryAfter(uavId, afterTimestamp, afterId, endTime)) {
+            Iterator<UavTelemetry> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                UavTelemetry row = iterator.next();
+                if (count == limit) {
+                    return new HistoryCursor(last.getTimestamp(), last.getId()).encode();
+                }
+                consumer.accept(row);
+                // Keep the persistence context empty so memory stays flat for any window size
+                entityManager.detach(row);
+                last = row;
+                count++;
+            }
+        }
+        return null;
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public void streamTelemetryRange(List<Integer> uavIds, Instant startTime, Instant endTime,
+                                     HistoryCursor after, Predicate<UavTelemetry> consumer) {
+        Instant afterTimestamp = after != null ? after.getTimestamp() : startTime;
+        long afterId = after != null ? after.getId() : -1L;
+        try (Stream<UavTelemetry> rows = uavIds == null || uavIds.isEmpty()
+                ? telemetryRepository.streamRangeAfter(afterTimestamp, afterId, endTime)
+                : telemetryRepository.streamUavsRangeAfter(uavIds, afterTimestamp, afterId, endTime)) {
+            Iterator<UavTelemetry> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                UavTelemetry row = iterator.next();
+                boolean more = consumer.test(row);
+                entityManager.detach(row);
+                if (!more) {
+                    return;
+                }
+            }
+        }
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public TelemetryRollupSeriesDTO getTelemetryRollups(Integer uavId, Instant startTime, Instant endTime, int maxPoints) {
+        double targetSeconds = (endTime.toEpochMilli() - startTime.toEpochMilli()) / 1000.0 / maxPoints;
+        int resolution = TelemetryRollupStore.RESOLUTIONS[0];
+        for (int candidate : TelemetryRollupStore.RESOLUTIONS) {
+            if (candidate <= targetSeconds) {
+                resolution = candidate;
+            }
+        }
+        int bucketSeconds = resolution * (int) Math.max(1, Math.ceil(targetSeconds / resolution));
+        
+        Instant from = Instant.ofEpochSecond(Math.floorDiv(startTime.getEpochSecond(), resolution) * resolution);
+        List<UavTelemetryRollup> rows = uavId != null
+                ? rollupRepository.findByUavIdAndResolutionAndBucketStartBetweenOrderByBucketStartAsc(uavId, resolution, from, endTime)
+                : rollupRepository.findByResolutionAndBucketStartBetweenOrderByUavIdAscBucketStartAsc(resolution, from, endTime);
+        
+        // Rows come ordered by UAV and bucket, so merging into wider buckets is a single pass
+        List<UavTelemetryRollup> merged = new ArrayList<>();
+        UavTelemetryRollup current = null;
+        for (UavTelemetryRollup row : rows) {
+            entityManager.detach(row);
+            long start = Math.floorDiv(row.getBucketStart().getEpochSecond(), bucketSeconds) * bucketSeconds;
+            if (current != null && current.getUavId().equals(row.getUavId())
+                    && current.getBucketStart().getEpochSecond() == start) {
+                current.merge(row);
+                continue;
+            }
+            current = row;
+            current.setId(null);
+            current.setResolution(bucketSeconds);
+            current.setBucketStart(Instant.ofEpochSecond(start));
+            merged.add(current);
+        }
+        
+        TelemetryRollupSeriesDTO series = new TelemetryRollupSeriesDTO();
+        series.setResolution(resolution);
+        series.setBucketSeconds(bucketSeconds);
+        series.setRollups(merged);
+        return series;
     }
     
     @Override
-    @Transactional
     public void cleanupOldTelemetry(int retentionDays) {
+        // Chunked deletes, each committed on its own, instead of one long DELETE over the whole table
         Instant cutoffTime = Instant.now().minus(retentionDays, ChronoUnit.DAYS);
-        telemetryRepository.deleteByTimestampBefore(cutoffTime);
-        log.info("Cleaned up telemetry data older than {} days", retentionDays);
+        long deleted = 0;
+        int rows;
+        do {
+            rows = retentionDeleter.deleteChunk("uav_telemetry", "timestamp", cutoffTime, null, null, CLEANUP_CHUNK_SIZE);
+            deleted += rows;
+        } while (rows == CLEANUP_CHUNK_SIZE);
+        log.info("Cleaned up {} telemetry rows older than {} days", deleted, retentionDays);
     }
 }
@@ -0,0 +1,331 @@
+package com.ucs.telemetry;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-capacity block of one UAV's telemetry samples, compressed column by column (Gorilla-style)
+ *
+ * Every column is its own bit stream so readers decode only the columns they need:
+ * - long columns (sample time, msgCount, isActive) store the delta of deltas in a zigzag
+ *   prefix code, so a steady sample rate or a constant value costs one bit per sample;
+ * - double columns XOR each value with the previous one and store only the meaningful bits,
+ *   reusing the previous leading/trailing zero window when it fits.
+ * Samples must be appended in time order. Not thread-safe; RecentHistoryBuffer locks per UAV.
+ */
+final class CompressedTelemetryBlock {
+
+    static final int TIME = 0;
+    static final int MSG_COUNT = 1;
+    static final int ACTIVE = 2;
+    private static final int LONG_COLUMNS = 3;
+
+    static final int LAT = 0;
+    static final int LON = 1;
+    static final int ALT = 2;
+    static final int HEADING = 3;
+    static final int GROUND_SPEED = 4;
+    static final int VERTICAL_SPEED = 5;
+    static final int NED_X = 6;
+    static final int NED_Y = 7;
+    static final int NED_Z = 8;
+    static final int VX = 9;
+    static final int VY = 10;
+    static final int VZ = 11;
+    static final int DATA_AGE = 12;
+    private static final int DOUBLE_COLUMNS = 13;
+
+    private final int capacity;
+    private final LongColumn[] longColumns = new LongColumn[LONG_COLUMNS];
+    private final DoubleColumn[] doubleColumns = new DoubleColumn[DOUBLE_COLUMNS];
+    private int size;
+    private long firstTime;
+    private long lastTime;
+
+    CompressedTelemetryBlock(int capacity) {
+        this.capacity = capacity;
+        for (int c = 0; c < LONG_COLUMNS; c++) {
+            longColumns[c] = new LongColumn();
+        }
+        for (int c = 0; c < DOUBLE_COLUMNS; c++) {
+            doubleColumns[c] = new DoubleColumn();
+        }
+    }
+
+    boolean isFull() {
+        return size == capacity;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long firstTime() {
+        return firstTime;
+    }
+
+    long lastTime() {
+        return lastTime;
+    }
+
+    /**
+     * Append row i of the frame; the caller checks isFull and time order first
+     */
+    void append(TelemetryFrame frame, int i) {
+        long time = frame.sampleTime[i];
+        if (size == 0) {
+            firstTime = time;
+        }
+        lastTime = time;
+        longColumns[TIME].append(time);
+        longColumns[MSG_COUNT].append(frame.msgCount[i]);
+        longColumns[ACTIVE].append(frame.active[i]);
+        doubleColumns[LAT].append(frame.lat[i]);
+        doubleColumns[LON].append(frame.lon[i]);
+        doubleColumns[ALT].append(frame.alt[i]);
+        doubleColumns[HEADING].append(frame.heading[i]);
+        doubleColumns[GROUND_SPEED].append(frame.groundSpeed[i]);
+        doubleColumns[VERTICAL_SPEED].append(frame.verticalSpeed[i]);
+        doubleColumns[NED_X].append(frame.nedX[i]);
+        doubleColumns[NED_Y].append(frame.nedY[i]);
+        doubleColumns[NED_Z].append(frame.nedZ[i]);
+        doubleColumns[VX].append(frame.vx[i]);
+        doubleColumns[VY].append(frame.vy[i]);
+        doubleColumns[VZ].append(frame.vz[i]);
+        doubleColumns[DATA_AGE].append(frame.dataAge[i]);
+        size++;
+        if (size == capacity) {
+            for (LongColumn column : longColumns) {
+                column.bits.trim();
+            }
+            for (DoubleColumn column : doubleColumns) {
+                column.bits.trim();
+            }
+        }
+    }
+
+    long[] decodeLong(int column) {
+        return longColumns[column].decode(size);
+    }
+
+    double[] decodeDouble(int column) {
+        return doubleColumns[column].decode(size);
+    }
+
+    /**
+     * Compressed size in bytes, for sizing the buffer
+     */
+    long compressedBytes() {
+        long bits = 0;
+        for (LongColumn column : longColumns) {
+            bits += column.bits.length;
+        }
+        for (DoubleColumn column : doubleColumns) {
+            bits += column.bits.length;
+        }
+        return (bits + 7) / 8;
+    }
+
+    /**
+     * Delta-of-delta encoding: '0' | '10'+7 | '110'+9 | '1110'+12 | '1111'+64 bits of the zigzag value
+     */
+    private static final class LongColumn {
+
+        private final BitStream bits = new BitStream();
+        private long previous;
+        private long previousDelta;
+        private boolean started;
+
+        void append(long value) {
+            if (!started) {
+                bits.write(value, 64);
+                started = true;
+            } else {
+                long delta = value - previous;
+                long zigzag = zigzag(delta - previousDelta);
+                if (zigzag == 0) {
+                    bits.write(0, 1);
+                } else if (zigzag < (1L << 7)) {
+                    bits.write(0b10, 2);
+                    bits.write(zigzag, 7);
+                } else if (zigzag < (1L << 9)) {
+                    bits.write(0b110, 3);
+                    bits.write(zigzag, 9);
+                } else if (zigzag < (1L << 12)) {
+                    bits.write(0b1110, 4);
+                    bits.write(zigzag, 12);
+                } else {
+                    bits.write(0b1111, 4);
+                    bits.write(zigzag, 64);
+                }
+                previousDelta = delta;
+            }
+            previous = value;
+        }
+
+        long[] decode(int count) {
+            long[] values = new long[count];
+            BitReader reader = new BitReader(bits);
+            long value = 0;
+            long delta = 0;
+            for (int i = 0; i < count; i++) {
+                if (i == 0) {
+                    value = reader.read(64);
+                } else {
+                    int width;
+                    if (reader.read(1) == 0) {
+                        width = 0;
+                    } else if (reader.read(1) == 0) {
+                        width = 7;
+                    } else if (reader.read(1) == 0) {
+                        width = 9;
+                    } else if (reader.read(1) == 0) {
+                        width = 12;
+                    } else {
+                        width = 64;
+                    }
+                    delta += unzigzag(reader.read(width));
+                    value += delta;
+                }
+                values[i] = value;
+            }
+            return values;
+        }
+
+        private static long zigzag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+
+        private static long unzigzag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+
+    /**
+     * XOR encoding: '0' for a repeated value, '10' + bits inside the previous window,
+     * '11' + 5 bits leading zeros + 6 bits (length - 1) + meaningful bits otherwise
+     */
+    private static final class DoubleColumn {
+
+        private final BitStream bits = new BitStream();
+        private long previous;
+        private int leading = -1;
+        private int trailing;
+        private boolean started;
+
+        void append(double value) {
+            long current = Double.doubleToLongBits(value);
+            if (!started) {
+                bits.write(current, 64);
+                started = true;
+                previous = current;
+                return;
+            }
+            long xor = current ^ previous;
+            previous = current;
+            if (xor == 0) {
+                bits.write(0, 1);
+                return;
+            }
+            int newLeading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int newTrailing = Long.numberOfTrailingZeros(xor);
+            if (leading >= 0 && newLeading >= leading && newTrailing >= trailing) {
+                bits.write(0b10, 2);
+                bits.write(xor >>> trailing, 64 - leading - trailing);
+            } else {
+                int significant = 64 - newLeading - newTrailing;
+                bits.write(0b11, 2);
+                bits.write(newLeading, 5);
+                bits.write(significant - 1, 6);
+                bits.write(xor >>> newTrailing, significant);
+                leading = newLeading;
+                trailing = newTrailing;
+            }
+        }
+
+        double[] decode(int count) {
+            double[] values = new double[count];
+            BitReader reader = new BitReader(bits);
+            long value = 0;
+            int windowLeading = 0;
+            int windowTrailing = 0;
+            for (int i = 0; i < count; i++) {
+                if (i == 0) {
+                    value = reader.read(64);
+                } else if (reader.read(1) == 1) {
+                    if (reader.read(1) == 1) {
+                        windowLeading = (int) reader.read(5);
+                        int significant = (int) reader.read(6) + 1;
+                        windowTrailing = 64 - windowLeading - significant;
+                    }
+                    value ^= reader.read(64 - windowLeading - windowTrailing) << windowTrailing;
+                }
+                values[i] = Double.longBitsToDouble(value);
+            }
+            return values;
+        }
+    }
+
+    /**
+     * Append-only bit stream, most significant bit first
+     */
+    private static final class BitStream {
+
+        private long[] words = new long[4];
+        private int length;
+
+        void write(long value, int count) {
+            if (count == 0) {
+                return;
+            }
+            int word = length >>> 6;
+            if (word + 1 >= words.length) {
+                words = Arrays.copyOf(words, words.length * 2);
+            }
+            long masked = value & mask(count);
+            int free = 64 - (length & 63);
+            if (count <= free) {
+                words[word] |= masked << (free - count);
+            } else {
+                int rest = count - free;
+                words[word] |= masked >>> rest;
+                words[word + 1] |= masked << (64 - rest);
+            }
+            length += count;
+        }
+
+        void trim() {
+            words = Arrays.copyOf(words, (length + 63) >>> 6);
+        }
+    }
+
+    private static final class BitReader {
+
+        private final long[] words;
+        private int position;
+
+        BitReader(BitStream stream) {
+            this.words = stream.words;
+        }
+
+        long read(int count) {
+            if (count == 0) {
+                return 0;
+            }
+            int word = position >>> 6;
+            int free = 64 - (position & 63);
+            long value;
+            if (count <= free) {
+                value = (words[word] >>> (free - count)) & mask(count);
+            } else {
+                int rest = count - free;
+                value = ((words[word] & mask(free)) << rest) | (words[word + 1] >>> (64 - rest));
+            }
+            position += count;
+            return value;
+        }
+    }
+
+    private static long mask(int count) {
+        return count == 64 ? -1L : (1L << count) - 1;
+    }
+}
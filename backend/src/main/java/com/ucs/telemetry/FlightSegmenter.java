@@ -0,0 +1,497 @@
+package com.ucs.telemetry;
+
+import com.ucs.entity.UavFlight;
+import com.ucs.repository.UavFlightRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Detects flights (takeoff to landing) in the ingested telemetry and records them in uav_flight
+ *
+ * Every sample with a position, before history decimation, drives a per-UAV state machine:
+ * - a sample is airborne when isActive is not false and the UAV is at least takeoff-alt-m above
+ *   its ground altitude or moving at takeoff-speed or more; takeoff-samples airborne samples in a
+ *   row start a flight at the first of them. On the ground the ground altitude follows the UAV
+ *   down at once but up by at most ground-drift-mps (sensor drift), so a slow vertical climb
+ *   still gets takeoff-alt-m above it;
+ * - during a flight a sample is on the ground when isActive is false, or when the UAV is within
+ *   land-alt-m of the takeoff ground altitude and slower than land-speed (or reports no speed);
+ *   isActive false lands at once, otherwise landing-seconds on the ground end the flight at the
+ *   first ground sample, with the flight's statistics as of that sample;
+ * - a flight without samples for timeout-seconds ends at its last sample.
+ * Flights are inserted/updated by the background flush, so a new flight becomes visible within
+ * one flush interval. Flights left in progress by a shutdown are continued when their UAV
+ * reports again within timeout-seconds and closed otherwise.
+ */
+@Slf4j
+@Component
+public class FlightSegmenter {
+
+    private final UavFlightRepository flightRepository;
+
+    @Value("${telemetry.flight.enabled:true}")
+    private boolean enabled;
+
+    @Value("${telemetry.flight.takeoff-alt-m:2.0}")
+    private double takeoffAltM;
+
+    @Value("${telemetry.flight.takeoff-speed:1.0}")
+    private double takeoffSpeed;
+
+    @Value("${telemetry.flight.takeoff-samples:3}")
+    private int takeoffSamples;
+
+    @Value("${telemetry.flight.ground-drift-mps:0.05}")
+    private double groundDriftMps;
+
+    @Value("${telemetry.flight.land-alt-m:1.0}")
+    private double landAltM;
+
+    @Value("${telemetry.flight.land-speed:0.5}")
+    private double landSpeed;
+
+    @Value("${telemetry.flight.landing-seconds:10}")
+    private long landingSeconds;
+
+    @Value("${telemetry.flight.timeout-seconds:60}")
+    private long timeoutSeconds;
+
+    private final ConcurrentHashMap<Integer, UavSegmentState> states = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<FlightRecord> finished = new ConcurrentLinkedQueue<>();
+
+    public FlightSegmenter(UavFlightRepository flightRepository) {
+        this.flightRepository = flightRepository;
+    }
+
+    /**
+     * Feed every sample with a position to the state machine of its UAV
+     */
+    public void update(TelemetryFrame frame) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < frame.size(); i++) {
+            if (Double.isNaN(frame.lat[i]) || Double.isNaN(frame.lon[i]) || Double.isNaN(frame.alt[i])) {
+                continue;
+            }
+            states.computeIfAbsent(frame.uavId[i], UavSegmentState::new).add(frame, i, now);
+        }
+    }
+
+    /**
+     * Live state of the flight in progress of a UAV, or null when it is on the ground
+     * (a flight not flushed yet has no id)
+     */
+    public UavFlight getCurrent(Integer uavId) {
+        UavSegmentState state = states.get(uavId);
+        FlightRecord record = state != null ? state.current() : null;
+        return record != null ? record.toEntity() : null;
+    }
+
+    /**
+     * Insert or update the flights changed since the last flush, end flights that timed out
+     * and close flights of other UAVs left in progress by an earlier run
+     */
+    @Scheduled(fixedDelayString = "${telemetry.flight.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        long now = System.currentTimeMillis();
+        for (UavSegmentState state : states.values()) {
+            state.expire(now);
+        }
+        List<FlightRecord> pending = new ArrayList<>();
+        for (FlightRecord record; (record = finished.poll()) != null; ) {
+            pending.add(record);
+        }
+        List<FlightRecord> ended = new ArrayList<>(pending);
+        for (UavSegmentState state : states.values()) {
+            FlightRecord record = state.current();
+            if (record != null && record.isDirty()) {
+                pending.add(record);
+            }
+        }
+        if (!pending.isEmpty()) {
+            List<UavFlight> entities = new ArrayList<>(pending.size());
+            for (FlightRecord record : pending) {
+                entities.add(record.drain());
+            }
+            try {
+                List<UavFlight> saved = flightRepository.saveAll(entities);
+                for (int k = 0; k < saved.size(); k++) {
+                    pending.get(k).saved(saved.get(k).getId());
+                }
+                log.debug("Flushed {} flights", saved.size());
+            } catch (Exception e) {
+                finished.addAll(ended);
+                pending.forEach(FlightRecord::markDirty);
+                log.error("Failed to flush {} flights, will retry", pending.size(), e);
+            }
+        }
+        closeAbandoned(now);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Flights in progress in the database whose UAV has not reported since timeout-seconds
+     */
+    private void closeAbandoned(long now) {
+        try {
+            List<UavFlight> abandoned = new ArrayList<>();
+            for (UavFlight flight : flightRepository.findByInProgressTrue()) {
+                UavSegmentState state = states.get(flight.getUavId());
+                FlightRecord current = state != null ? state.current() : null;
+                boolean live = current != null && flight.getId().equals(current.id);
+                if (!live && flight.getUpdatedAt().toEpochMilli() < now - timeoutSeconds * 1000) {
+                    flight.setInProgress(false);
+                    flight.setUpdatedAt(Instant.ofEpochMilli(now));
+                    abandoned.add(flight);
+                }
+            }
+            if (!abandoned.isEmpty()) {
+                flightRepository.saveAll(abandoned);
+                log.info("Closed {} flights left in progress", abandoned.size());
+            }
+        } catch (Exception e) {
+            log.error("Failed to close abandoned flights", e);
+        }
+    }
+
+    /**
+     * State machine of one UAV; only its ingest shard thread calls add
+     */
+    private final class UavSegmentState {
+
+        private final int uavId;
+        private boolean resumeChecked;
+        private double groundAlt = Double.NaN;
+        private long groundTime;
+        private long lastTime = Long.MIN_VALUE;
+        private long lastSeen;
+
+        // On the ground: airborne samples seen in a row, accumulated as a candidate flight
+        private int airborneRun;
+        private FlightRecord candidate;
+
+        // In flight
+        private volatile FlightRecord flight;
+        private long groundSince = -1;
+        /** Copy of the flight at groundSince, what a landing keeps */
+        private FlightRecord touchdown;
+
+        UavSegmentState(Integer uavId) {
+            this.uavId = uavId;
+        }
+
+        FlightRecord current() {
+            return flight;
+        }
+
+        synchronized void add(TelemetryFrame frame, int i, long now) {
+            if (!resumeChecked) {
+                resumeChecked = true;
+                resume(frame.sampleTime[i]);
+            }
+            long time = frame.sampleTime[i];
+            if (time <= lastTime) {
+                // Out of order; the segments only follow time-ordered samples
+                return;
+            }
+            lastTime = time;
+            lastSeen = now;
+            double alt = frame.alt[i];
+            double speed = frame.groundSpeed[i];
+            boolean inactive = frame.active[i] == 0;
+            if (Double.isNaN(groundAlt)) {
+                groundAlt = alt;
+                groundTime = time;
+            }
+
+            if (flight == null) {
+                boolean airborne = !inactive && (alt - groundAlt >= takeoffAltM || speed >= takeoffSpeed);
+                if (!airborne) {
+                    groundAlt = Math.min(alt, groundAlt + groundDriftMps * (time - groundTime) / 1000.0);
+                    groundTime = time;
+                    airborneRun = 0;
+                    candidate = null;
+                    return;
+                }
+                if (candidate == null) {
+                    candidate = new FlightRecord(uavId, groundAlt, frame, i);
+                } else {
+                    candidate.add(frame, i);
+                }
+                if (++airborneRun >= takeoffSamples) {
+                    flight = candidate;
+                    candidate = null;
+                    airborneRun = 0;
+                    groundSince = -1;
+                    log.info("UAV {} took off at {}", uavId, Instant.ofEpochMilli(flight.startTime));
+                }
+                return;
+            }
+
+            flight.add(frame, i);
+            boolean onGround = inactive || (alt - flight.groundAlt < landAltM && !(speed >= landSpeed));
+            if (!onGround) {
+                groundSince = -1;
+                touchdown = null;
+                return;
+            }
+            if (groundSince < 0) {
+                groundSince = time;
+                touchdown = flight.copy();
+            }
+            if (inactive) {
+                land(time);
+            } else if (time - groundSince >= landingSeconds * 1000) {
+                flight.rollback(touchdown);
+                land(groundSince);
+            } else {
+                return;
+            }
+            groundAlt = alt;
+            groundTime = time;
+        }
+
+        synchronized void expire(long now) {
+            if (flight != null && now - lastSeen >= timeoutSeconds * 1000) {
+                log.info("UAV {} flight timed out without landing", uavId);
+                land(flight.lastTime());
+            }
+        }
+
+        private void land(long endTime) {
+            flight.end(endTime);
+            finished.add(flight);
+            log.info("UAV {} landed at {}", uavId, Instant.ofEpochMilli(endTime));
+            flight = null;
+            groundSince = -1;
+            touchdown = null;
+        }
+
+        /**
+         * Continue the flight an earlier run left in progress, or close it when it is too old
+         */
+        private void resume(long time) {
+            try {
+                flightRepository.findFirstByUavIdAndInProgressTrueOrderByStartTimeDesc(uavId).ifPresent(open -> {
+                    FlightRecord record = FlightRecord.restore(open);
+                    if (time - open.getEndTime().toEpochMilli() <= timeoutSeconds * 1000) {
+                        flight = record;
+                        groundAlt = record.groundAlt;
+                        lastTime = open.getEndTime().toEpochMilli();
+                    } else {
+                        record.end(open.getEndTime().toEpochMilli());
+                        finished.add(record);
+                    }
+                });
+            } catch (Exception e) {
+                log.warn("Failed to load the open flight of UAV {}", uavId, e);
+            }
+        }
+    }
+
+    /**
+     * Running summary of one flight in primitive form
+     */
+    private static final class FlightRecord {
+
+        private final int uavId;
+        private final double groundAlt;
+        private Long id;
+        private boolean dirty = true;
+        private boolean inProgress = true;
+
+        private final long startTime;
+        private long endTime;
+        private final double takeoffLat;
+        private final double takeoffLon;
+        private final double takeoffAlt;
+        private double lastLat;
+        private double lastLon;
+        private double lastAlt;
+        private double minLat;
+        private double maxLat;
+        private double minLon;
+        private double maxLon;
+        private double minAlt;
+        private double maxAlt;
+        private long sampleCount;
+        private double distance;
+        private double maxSpeed = Double.NaN;
+
+        FlightRecord(int uavId, double groundAlt, TelemetryFrame frame, int i) {
+            this(uavId, groundAlt, frame.sampleTime[i], frame.lat[i], frame.lon[i], frame.alt[i]);
+            add(frame, i);
+        }
+
+        private FlightRecord(int uavId, double groundAlt, long startTime, double lat, double lon, double alt) {
+            this.uavId = uavId;
+            this.groundAlt = groundAlt;
+            this.startTime = startTime;
+            this.endTime = startTime;
+            this.takeoffLat = lat;
+            this.takeoffLon = lon;
+            this.takeoffAlt = alt;
+            this.lastLat = lat;
+            this.lastLon = lon;
+            this.lastAlt = alt;
+            this.minLat = lat;
+            this.maxLat = lat;
+            this.minLon = lon;
+            this.maxLon = lon;
+            this.minAlt = alt;
+            this.maxAlt = alt;
+        }
+
+        static FlightRecord restore(UavFlight flight) {
+            // The takeoff altitude is the closest known ground altitude
+            FlightRecord record = new FlightRecord(flight.getUavId(), flight.getTakeoffAlt(),
+                    flight.getStartTime().toEpochMilli(), flight.getTakeoffLat(), flight.getTakeoffLon(),
+                    flight.getTakeoffAlt());
+            record.id = flight.getId();
+            record.endTime = flight.getEndTime().toEpochMilli();
+            record.lastLat = flight.getLandingLat();
+            record.lastLon = flight.getLandingLon();
+            record.lastAlt = flight.getLandingAlt();
+            record.minLat = flight.getMinLat();
+            record.maxLat = flight.getMaxLat();
+            record.minLon = flight.getMinLon();
+            record.maxLon = flight.getMaxLon();
+            record.minAlt = flight.getMinAlt();
+            record.maxAlt = flight.getMaxAlt();
+            record.sampleCount = flight.getSampleCount();
+            record.distance = flight.getDistanceM();
+            record.maxSpeed = flight.getMaxGroundSpeed() != null ? flight.getMaxGroundSpeed() : Double.NaN;
+            return record;
+        }
+
+        synchronized void add(TelemetryFrame frame, int i) {
+            double lat = frame.lat[i];
+            double lon = frame.lon[i];
+            double alt = frame.alt[i];
+            if (sampleCount > 0) {
+                distance += FlightStatsStore.haversine(lastLat, lastLon, lat, lon);
+            }
+            sampleCount++;
+            endTime = frame.sampleTime[i];
+            lastLat = lat;
+            lastLon = lon;
+            lastAlt = alt;
+            minLat = Math.min(minLat, lat);
+            maxLat = Math.max(maxLat, lat);
+            minLon = Math.min(minLon, lon);
+            maxLon = Math.max(maxLon, lon);
+            minAlt = Math.min(minAlt, alt);
+            maxAlt = Math.max(maxAlt, alt);
+            double speed = frame.groundSpeed[i];
+            if (!Double.isNaN(speed) && !(speed <= maxSpeed)) {
+                maxSpeed = speed;
+            }
+            dirty = true;
+        }
+
+        /**
+         * Detached copy of the statistics so far
+         */
+        synchronized FlightRecord copy() {
+            FlightRecord copy = new FlightRecord(uavId, groundAlt, startTime, takeoffLat, takeoffLon, takeoffAlt);
+            copy.copyStats(this);
+            return copy;
+        }
+
+        /**
+         * Return the statistics to those of an earlier copy, dropping the samples added since
+         */
+        synchronized void rollback(FlightRecord earlier) {
+            copyStats(earlier);
+            dirty = true;
+        }
+
+        private void copyStats(FlightRecord from) {
+            endTime = from.endTime;
+            lastLat = from.lastLat;
+            lastLon = from.lastLon;
+            lastAlt = from.lastAlt;
+            minLat = from.minLat;
+            maxLat = from.maxLat;
+            minLon = from.minLon;
+            maxLon = from.maxLon;
+            minAlt = from.minAlt;
+            maxAlt = from.maxAlt;
+            sampleCount = from.sampleCount;
+            distance = from.distance;
+            maxSpeed = from.maxSpeed;
+        }
+
+        synchronized void end(long time) {
+            endTime = Math.min(endTime, Math.max(startTime, time));
+            inProgress = false;
+            dirty = true;
+        }
+
+        synchronized long lastTime() {
+            return endTime;
+        }
+
+        synchronized boolean isDirty() {
+            return dirty;
+        }
+
+        synchronized void markDirty() {
+            dirty = true;
+        }
+
+        synchronized void saved(Long savedId) {
+            id = savedId;
+        }
+
+        /**
+         * Entity of the current state; clears the dirty flag
+         */
+        synchronized UavFlight drain() {
+            dirty = false;
+            return toEntity();
+        }
+
+        synchronized UavFlight toEntity() {
+            UavFlight flight = new UavFlight();
+            flight.setId(id);
+            flight.setUavId(uavId);
+            flight.setStartTime(Instant.ofEpochMilli(startTime));
+            flight.setEndTime(Instant.ofEpochMilli(endTime));
+            flight.setInProgress(inProgress);
+            flight.setTakeoffLat(takeoffLat);
+            flight.setTakeoffLon(takeoffLon);
+            flight.setTakeoffAlt(takeoffAlt);
+            flight.setLandingLat(lastLat);
+            flight.setLandingLon(lastLon);
+            flight.setLandingAlt(lastAlt);
+            flight.setMinLat(minLat);
+            flight.setMaxLat(maxLat);
+            flight.setMinLon(minLon);
+            flight.setMaxLon(maxLon);
+            flight.setMinAlt(minAlt);
+            flight.setMaxAlt(maxAlt);
+            flight.setSampleCount(sampleCount);
+            flight.setDistanceM(distance);
+            flight.setDurationSeconds((endTime - startTime) / 1000.0);
+            flight.setMaxGroundSpeed(Double.isNaN(maxSpeed) ? null : maxSpeed);
+            flight.setUpdatedAt(Instant.now());
+            return flight;
+        }
+    }
+}
@@ -0,0 +1,479 @@
+package com.ucs.telemetry;
+
+import com.ucs.entity.UavFlightStats;
+import com.ucs.repository.UavFlightStatsRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Running per-UAV flight statistics of the current day (uav_flight_stats)
+ *
+ * Every ingested sample with a position, before history decimation, updates the accumulators of
+ * its UAV: haversine distance and altitude gain/loss between successive samples, min/max altitude,
+ * active time and ground speed. Samples older than the previous one only count towards the
+ * totals that do not depend on order. The segment crossing midnight belongs to the new day.
+ * Changed totals are upserted by a background flush, which first merges in the rows already
+ * stored for the days UAVs have started since (one query per day, so restarts keep the totals
+ * without the ingest path touching the database); until then those UAVs show the new samples only.
+ */
+@Slf4j
+@Component
+public class FlightStatsStore {
+
+    private static final double EARTH_RADIUS_M = 6_371_000.0;
+    private static final int RESTORE_UAVS_PER_QUERY = 1000;
+
+    private final UavFlightStatsRepository flightStatsRepository;
+
+    @Value("${telemetry.stats.enabled:true}")
+    private boolean enabled;
+
+    @Value("${telemetry.stats.zone:UTC}")
+    private String zone;
+
+    @Value("${telemetry.stats.max-gap-seconds:10}")
+    private long maxGapSeconds;
+
+    private ZoneId zoneId;
+    private final ConcurrentHashMap<Integer, UavStats> states = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<UavFlightStats> closedDays = new ConcurrentLinkedQueue<>();
+
+    public FlightStatsStore(UavFlightStatsRepository flightStatsRepository) {
+        this.flightStatsRepository = flightStatsRepository;
+    }
+
+    @PostConstruct
+    public void init() {
+        zoneId = ZoneId.of(zone);
+    }
+
+    public ZoneId getZoneId() {
+        return zoneId;
+    }
+
+    /**
+     * Fold every sample with a position into the statistics of its UAV
+     */
+    public void update(TelemetryFrame frame) {
+        if (!enabled) {
+            return;
+        }
+        for (int i = 0; i < frame.size(); i++) {
+            if (Double.isNaN(frame.lat[i]) || Double.isNaN(frame.lon[i]) || Double.isNaN(frame.alt[i])) {
+                continue;
+            }
+            states.computeIfAbsent(frame.uavId[i], UavStats::new).add(frame, i);
+        }
+    }
+
+    /**
+     * Live statistics of one UAV for a day, or null unless the UAV is accumulating that day
+     */
+    public UavFlightStats get(Integer uavId, LocalDate day) {
+        UavStats state = states.get(uavId);
+        return state != null ? state.snapshot(day) : null;
+    }
+
+    /**
+     * Live statistics of every UAV accumulating a day
+     */
+    public List<UavFlightStats> getAll(LocalDate day) {
+        List<UavFlightStats> all = new ArrayList<>();
+        for (UavStats state : states.values()) {
+            UavFlightStats stats = state.snapshot(day);
+            if (stats != null) {
+                all.add(stats);
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Statistics changed since the previous call, for pushing to subscribers
+     */
+    public List<UavFlightStats> drainChanged() {
+        List<UavFlightStats> changed = new ArrayList<>();
+        for (UavStats state : states.values()) {
+            UavFlightStats stats = state.drainChanged();
+            if (stats != null) {
+                changed.add(stats);
+            }
+        }
+        changed.sort(Comparator.comparing(UavFlightStats::getUavId));
+        return changed;
+    }
+
+    /**
+     * Upsert the statistics changed since the last flush into uav_flight_stats
+     */
+    @Scheduled(fixedDelayString = "${telemetry.stats.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        restoreStarted();
+        List<UavFlightStats> closed = new ArrayList<>();
+        for (UavFlightStats stats; (stats = closedDays.poll()) != null; ) {
+            closed.add(stats);
+        }
+        if (!restoreClosed(closed)) {
+            closedDays.addAll(closed);
+            closed.clear();
+        }
+        List<UavFlightStats> pending = new ArrayList<>(closed);
+        List<UavStats> flushed = new ArrayList<>();
+        for (UavStats state : states.values()) {
+            UavFlightStats stats = state.drainUnflushed();
+            if (stats != null) {
+                pending.add(stats);
+                flushed.add(state);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            List<UavFlightStats> saved = flightStatsRepository.saveAll(pending);
+            for (UavFlightStats stats : saved) {
+                UavStats state = states.get(stats.getUavId());
+                if (state != null) {
+                    state.saved(stats);
+                }
+            }
+            log.debug("Flushed flight statistics of {} UAV days", saved.size());
+        } catch (Exception e) {
+            // Retry the same days with the next flush
+            closedDays.addAll(closed);
+            flushed.forEach(UavStats::markUnflushed);
+            log.error("Failed to flush flight statistics of {} UAV days, will retry", pending.size(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Merge the stored rows into closed days that were never saved, which happens when a day closes
+     * before its stored row was merged (right after a restart); false if they could not be loaded
+     */
+    private boolean restoreClosed(List<UavFlightStats> closed) {
+        Map<LocalDate, Map<Integer, UavFlightStats>> unsaved = new HashMap<>();
+        for (UavFlightStats stats : closed) {
+            if (stats.getId() == null) {
+                unsaved.computeIfAbsent(stats.getStatsDate(), d -> new HashMap<>()).put(stats.getUavId(), stats);
+            }
+        }
+        try {
+            unsaved.forEach((day, byUav) -> flightStatsRepository.findByStatsDateAndUavIdIn(day, byUav.keySet())
+                    .forEach(stored -> addStored(byUav.get(stored.getUavId()), stored)));
+            return true;
+        } catch (Exception e) {
+            log.warn("Failed to load flight statistics of closed days, will retry", e);
+            return false;
+        }
+    }
+
+    /**
+     * Merge the stored rows of the days UAVs have started since the last flush
+     * A failed load is retried with the next flush; nothing of those UAVs is flushed until it succeeds.
+     */
+    private void restoreStarted() {
+        Map<LocalDate, List<UavStats>> byDay = new HashMap<>();
+        for (UavStats state : states.values()) {
+            LocalDate day = state.pendingRestore();
+            if (day != null) {
+                byDay.computeIfAbsent(day, d -> new ArrayList<>()).add(state);
+            }
+        }
+        byDay.forEach((day, pending) -> {
+            for (int from = 0; from < pending.size(); from += RESTORE_UAVS_PER_QUERY) {
+                List<UavStats> chunk = pending.subList(from, Math.min(pending.size(), from + RESTORE_UAVS_PER_QUERY));
+                List<Integer> uavIds = new ArrayList<>(chunk.size());
+                chunk.forEach(state -> uavIds.add(state.uavId));
+                Map<Integer, UavFlightStats> stored = new HashMap<>();
+                try {
+                    flightStatsRepository.findByStatsDateAndUavIdIn(day, uavIds)
+                            .forEach(stats -> stored.put(stats.getUavId(), stats));
+                } catch (Exception e) {
+                    log.warn("Failed to load flight statistics of {} UAVs for {}, will retry", uavIds.size(), day, e);
+                    continue;
+                }
+                chunk.forEach(state -> state.restore(day, stored.get(state.uavId)));
+            }
+        });
+    }
+
+    /**
+     * Add a stored row of the same UAV and day to totals accumulated separately (after a restart)
+     * The segment between the stored last sample and the first one accumulated here is not counted.
+     */
+    private static void addStored(UavFlightStats stats, UavFlightStats stored) {
+        stats.setId(stored.getId());
+        stats.setSampleCount(stats.getSampleCount() + stored.getSampleCount());
+        if (stored.getFirstTime().isBefore(stats.getFirstTime())) {
+            stats.setFirstTime(stored.getFirstTime());
+        }
+        if (stored.getLastTime().isAfter(stats.getLastTime())) {
+            stats.setLastTime(stored.getLastTime());
+            stats.setLastLat(stored.getLastLat());
+            stats.setLastLon(stored.getLastLon());
+            stats.setLastAlt(stored.getLastAlt());
+            stats.setLastActive(stored.getLastActive());
+        }
+        stats.setDistanceM(stats.getDistanceM() + stored.getDistanceM());
+        stats.setClimbM(stats.getClimbM() + stored.getClimbM());
+        stats.setDescentM(stats.getDescentM() + stored.getDescentM());
+        stats.setMinAlt(Math.min(stats.getMinAlt(), stored.getMinAlt()));
+        stats.setMaxAlt(Math.max(stats.getMaxAlt(), stored.getMaxAlt()));
+        stats.setActiveSeconds(stats.getActiveSeconds() + stored.getActiveSeconds());
+        stats.setAvgSpeed(stats.getActiveSeconds() > 0 ? stats.getDistanceM() / stats.getActiveSeconds() : null);
+        if (stored.getSpeedCount() > 0 && stored.getAvgGroundSpeed() != null) {
+            long speedCount = stats.getSpeedCount() + stored.getSpeedCount();
+            double sum = (stats.getAvgGroundSpeed() != null ? stats.getAvgGroundSpeed() * stats.getSpeedCount() : 0)
+                    + stored.getAvgGroundSpeed() * stored.getSpeedCount();
+            stats.setAvgGroundSpeed(sum / speedCount);
+            stats.setMaxGroundSpeed(stats.getMaxGroundSpeed() != null
+                    ? Math.max(stats.getMaxGroundSpeed(), stored.getMaxGroundSpeed())
+                    : stored.getMaxGroundSpeed());
+            stats.setSpeedCount(speedCount);
+        }
+    }
+
+    /**
+     * Great-circle distance in metres
+     */
+    static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_M * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Accumulators of one UAV for its current day in primitive form
+     */
+    private final class UavStats {
+
+        private final int uavId;
+        private LocalDate day;
+        private long dayStart;
+        private long dayEnd;
+        private Long id;
+
+        private long sampleCount;
+        private long firstTime;
+        private boolean hasLast;
+        private long lastTime;
+        private double lastLat;
+        private double lastLon;
+        private double lastAlt;
+        private byte lastActive;
+        private double distance;
+        private double climb;
+        private double descent;
+        private double minAlt;
+        private double maxAlt;
+        private long activeMillis;
+        private long speedCount;
+        private double sumSpeed;
+        private double maxSpeed;
+
+        private boolean unflushed;
+        private boolean unpushed;
+        /** The stored row of the day (if any) is not merged in yet */
+        private boolean restorePending;
+
+        UavStats(Integer uavId) {
+            this.uavId = uavId;
+        }
+
+        synchronized void add(TelemetryFrame frame, int i) {
+            long time = frame.sampleTime[i];
+            if (day == null || time >= dayEnd) {
+                startDay(Instant.ofEpochMilli(time).atZone(zoneId).toLocalDate());
+            } else if (time < dayStart) {
+                // Late sample of a day that is already closed
+                return;
+            }
+            double lat = frame.lat[i];
+            double lon = frame.lon[i];
+            double alt = frame.alt[i];
+            if (sampleCount == 0) {
+                firstTime = time;
+                minAlt = alt;
+                maxAlt = alt;
+            }
+            sampleCount++;
+            firstTime = Math.min(firstTime, time);
+            minAlt = Math.min(minAlt, alt);
+            maxAlt = Math.max(maxAlt, alt);
+            double speed = frame.groundSpeed[i];
+            if (!Double.isNaN(speed)) {
+                speedCount++;
+                sumSpeed += speed;
+                maxSpeed = speedCount == 1 ? speed : Math.max(maxSpeed, speed);
+            }
+            if (!hasLast || time > lastTime) {
+                if (hasLast) {
+                    distance += haversine(lastLat, lastLon, lat, lon);
+                    double climbed = alt - lastAlt;
+                    if (climbed > 0) {
+                        climb += climbed;
+                    } else {
+                        descent -= climbed;
+                    }
+                    long gap = time - lastTime;
+                    if (lastActive != 0 && gap <= maxGapSeconds * 1000) {
+                        activeMillis += gap;
+                    }
+                }
+                hasLast = true;
+                lastTime = time;
+                lastLat = lat;
+                lastLon = lon;
+                lastAlt = alt;
+                lastActive = frame.active[i];
+            }
+            unflushed = true;
+            unpushed = true;
+        }
+
+        /**
+         * Close the current day and start the new one from zero; the flush merges its stored row, if any
+         */
+        private void startDay(LocalDate newDay) {
+            if (day != null && sampleCount > 0) {
+                closedDays.add(toEntity());
+            }
+            day = newDay;
+            dayStart = newDay.atStartOfDay(zoneId).toInstant().toEpochMilli();
+            dayEnd = newDay.plusDays(1).atStartOfDay(zoneId).toInstant().toEpochMilli();
+            id = null;
+            sampleCount = 0;
+            distance = 0;
+            climb = 0;
+            descent = 0;
+            activeMillis = 0;
+            speedCount = 0;
+            sumSpeed = 0;
+            maxSpeed = 0;
+            restorePending = true;
+        }
+
+        synchronized LocalDate pendingRestore() {
+            return restorePending ? day : null;
+        }
+
+        /**
+         * Add the stored totals of the day to the ones accumulated since it started here
+         */
+        synchronized void restore(LocalDate restoredDay, UavFlightStats stored) {
+            if (!restorePending || !restoredDay.equals(day)) {
+                return;
+            }
+            restorePending = false;
+            if (stored == null) {
+                return;
+            }
+            UavFlightStats merged = toEntity();
+            addStored(merged, stored);
+            load(merged);
+            unflushed = true;
+            unpushed = true;
+        }
+
+        private void load(UavFlightStats stats) {
+            id = stats.getId();
+            sampleCount = stats.getSampleCount();
+            firstTime = stats.getFirstTime().toEpochMilli();
+            hasLast = true;
+            lastTime = stats.getLastTime().toEpochMilli();
+            lastLat = stats.getLastLat();
+            lastLon = stats.getLastLon();
+            lastAlt = stats.getLastAlt();
+            lastActive = stats.getLastActive() == null ? TelemetryFrame.ACTIVE_UNKNOWN : (byte) (stats.getLastActive() ? 1 : 0);
+            distance = stats.getDistanceM();
+            climb = stats.getClimbM();
+            descent = stats.getDescentM();
+            minAlt = stats.getMinAlt();
+            maxAlt = stats.getMaxAlt();
+            activeMillis = Math.round(stats.getActiveSeconds() * 1000);
+            speedCount = stats.getSpeedCount();
+            sumSpeed = stats.getAvgGroundSpeed() != null ? stats.getAvgGroundSpeed() * speedCount : 0;
+            maxSpeed = stats.getMaxGroundSpeed() != null ? stats.getMaxGroundSpeed() : 0;
+        }
+
+        synchronized UavFlightStats snapshot(LocalDate requested) {
+            return day != null && day.equals(requested) && sampleCount > 0 ? toEntity() : null;
+        }
+
+        synchronized UavFlightStats drainChanged() {
+            if (!unpushed || sampleCount == 0) {
+                return null;
+            }
+            unpushed = false;
+            return toEntity();
+        }
+
+        synchronized UavFlightStats drainUnflushed() {
+            // Saving before the stored row is merged would write a second row for the day
+            if (!unflushed || sampleCount == 0 || restorePending) {
+                return null;
+            }
+            unflushed = false;
+            return toEntity();
+        }
+
+        synchronized void markUnflushed() {
+            unflushed = true;
+        }
+
+        synchronized void saved(UavFlightStats stats) {
+            if (id == null && stats.getStatsDate().equals(day)) {
+                id = stats.getId();
+            }
+        }
+
+        private UavFlightStats toEntity() {
+            UavFlightStats stats = new UavFlightStats();
+            stats.setId(id);
+            stats.setUavId(uavId);
+            stats.setStatsDate(day);
+            stats.setSampleCount(sampleCount);
+            stats.setFirstTime(Instant.ofEpochMilli(firstTime));
+            stats.setLastTime(Instant.ofEpochMilli(lastTime));
+            stats.setLastLat(lastLat);
+            stats.setLastLon(lastLon);
+            stats.setLastAlt(lastAlt);
+            stats.setLastActive(lastActive == TelemetryFrame.ACTIVE_UNKNOWN ? null : lastActive == 1);
+            stats.setDistanceM(distance);
+            stats.setClimbM(climb);
+            stats.setDescentM(descent);
+            stats.setMinAlt(minAlt);
+            stats.setMaxAlt(maxAlt);
+            stats.setActiveSeconds(activeMillis / 1000.0);
+            stats.setAvgSpeed(activeMillis > 0 ? distance / (activeMillis / 1000.0) : null);
+            stats.setSpeedCount(speedCount);
+            if (speedCount > 0) {
+                stats.setAvgGroundSpeed(sumSpeed / speedCount);
+                stats.setMaxGroundSpeed(maxSpeed);
+            }
+            return stats;
+        }
+    }
+}
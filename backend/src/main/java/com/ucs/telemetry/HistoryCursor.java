@@ -0,0 +1,47 @@
+package com.ucs.telemetry;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset continuation token for history queries: the (timestamp, id) of the last row returned
+ * Encoded as opaque URL-safe base64 so clients pass it back unchanged.
+ */
+public final class HistoryCursor {
+
+    private final Instant timestamp;
+    private final long id;
+
+    public HistoryCursor(Instant timestamp, long id) {
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String encode() {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by encode()
+     */
+    public static HistoryCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new HistoryCursor(Instant.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid history cursor");
+        }
+    }
+}
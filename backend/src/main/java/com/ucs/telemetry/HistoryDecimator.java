@@ -0,0 +1,188 @@
+package com.ucs.telemetry;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides which telemetry samples are persisted to uav_telemetry history
+ *
+ * Live broadcast and the latest state always see every sample; history only keeps a sample
+ * when at least min-interval-ms has passed since the last stored row of that UAV and it moved
+ * past one of the deadbands (horizontal distance, altitude or heading), or its isActive flag
+ * changed. A UAV that does not move writes one heartbeat row every heartbeat-interval-ms.
+ *
+ * Defaults come from telemetry.history.decimation.*; a single UAV can override any of them
+ * with telemetry.history.uav.{uavId}.* (e.g. telemetry.history.uav.7.min-interval-ms=200).
+ */
+@Slf4j
+@Component
+public class HistoryDecimator {
+
+    private static final String UAV_PREFIX = "telemetry.history.uav.";
+    private static final double EARTH_RADIUS_M = 6_371_000.0;
+
+    private final Environment environment;
+
+    @Value("${telemetry.history.decimation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${telemetry.history.decimation.min-interval-ms:1000}")
+    private long minIntervalMs;
+
+    @Value("${telemetry.history.decimation.heartbeat-interval-ms:30000}")
+    private long heartbeatIntervalMs;
+
+    @Value("${telemetry.history.decimation.position-deadband-m:1.0}")
+    private double positionDeadbandM;
+
+    @Value("${telemetry.history.decimation.altitude-deadband-m:0.5}")
+    private double altitudeDeadbandM;
+
+    @Value("${telemetry.history.decimation.heading-deadband-deg:5.0}")
+    private double headingDeadbandDeg;
+
+    private final ConcurrentHashMap<Integer, UavHistoryState> states = new ConcurrentHashMap<>();
+    private final LongAdder kept = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public HistoryDecimator(Environment environment) {
+        this.environment = environment;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            log.info("History decimation enabled: minInterval={}ms, heartbeat={}ms, deadband={}m/{}m/{}deg",
+                    minIntervalMs, heartbeatIntervalMs, positionDeadbandM, altitudeDeadbandM, headingDeadbandDeg);
+        } else {
+            log.info("History decimation disabled, every telemetry sample is persisted");
+        }
+    }
+
+    /**
+     * Rows of the frame that should be written to history, in frame order
+     */
+    public int[] select(TelemetryFrame frame) {
+        int[] rows = new int[frame.size()];
+        int count = 0;
+        for (int i = 0; i < frame.size(); i++) {
+            if (!enabled || states.computeIfAbsent(frame.uavId[i], this::newState).accept(frame, i)) {
+                rows[count++] = i;
+            }
+        }
+        kept.add(count);
+        dropped.add(frame.size() - count);
+        return count == rows.length ? rows : Arrays.copyOf(rows, count);
+    }
+
+    public long getKeptCount() {
+        return kept.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    private UavHistoryState newState(Integer uavId) {
+        String prefix = UAV_PREFIX + uavId + ".";
+        return new UavHistoryState(
+                environment.getProperty(prefix + "min-interval-ms", Long.class, minIntervalMs),
+                environment.getProperty(prefix + "heartbeat-interval-ms", Long.class, heartbeatIntervalMs),
+                environment.getProperty(prefix + "position-deadband-m", Double.class, positionDeadbandM),
+                environment.getProperty(prefix + "altitude-deadband-m", Double.class, altitudeDeadbandM),
+                environment.getProperty(prefix + "heading-deadband-deg", Double.class, headingDeadbandDeg));
+    }
+
+    /**
+     * Policy of one UAV plus the last sample written to history
+     */
+    private static final class UavHistoryState {
+
+        private final long minIntervalMs;
+        private final long heartbeatIntervalMs;
+        private final double positionDeadbandM;
+        private final double altitudeDeadbandM;
+        private final double headingDeadbandDeg;
+
+        private boolean stored;
+        private long time;
+        private double lat;
+        private double lon;
+        private double alt;
+        private double heading;
+        private byte active;
+
+        UavHistoryState(long minIntervalMs, long heartbeatIntervalMs,
+                        double positionDeadbandM, double altitudeDeadbandM, double headingDeadbandDeg) {
+            this.minIntervalMs = minIntervalMs;
+            this.heartbeatIntervalMs = heartbeatIntervalMs;
+            this.positionDeadbandM = positionDeadbandM;
+            this.altitudeDeadbandM = altitudeDeadbandM;
+            this.headingDeadbandDeg = headingDeadbandDeg;
+        }
+
+        synchronized boolean accept(TelemetryFrame frame, int i) {
+            long sampleTime = frame.sampleTime[i];
+            if (stored) {
+                long elapsed = sampleTime - time;
+                if (elapsed < 0) {
+                    return false;
+                }
+                boolean keep = frame.active[i] != active
+                        || elapsed >= heartbeatIntervalMs
+                        || (elapsed >= minIntervalMs && moved(frame, i));
+                if (!keep) {
+                    return false;
+                }
+            }
+            stored = true;
+            time = sampleTime;
+            lat = frame.lat[i];
+            lon = frame.lon[i];
+            alt = frame.alt[i];
+            heading = frame.heading[i];
+            active = frame.active[i];
+            return true;
+        }
+
+        private boolean moved(TelemetryFrame frame, int i) {
+            if (positionDeadbandM <= 0 && altitudeDeadbandM <= 0 && headingDeadbandDeg <= 0) {
+                return true;
+            }
+            return exceeds(lat, frame.lat[i], distanceM(lat, lon, frame.lat[i], frame.lon[i]), positionDeadbandM)
+                    || exceeds(alt, frame.alt[i], Math.abs(frame.alt[i] - alt), altitudeDeadbandM)
+                    || exceeds(heading, frame.heading[i], headingDelta(heading, frame.heading[i]), headingDeadbandDeg);
+        }
+
+        /**
+         * A field that appeared or disappeared (NaN delta) counts as a change; one absent in both does not
+         */
+        private static boolean exceeds(double from, double to, double delta, double deadband) {
+            if (deadband <= 0 || (Double.isNaN(from) && Double.isNaN(to))) {
+                return false;
+            }
+            return !(delta < deadband);
+        }
+
+        private static double headingDelta(double from, double to) {
+            double delta = Math.abs(to - from) % 360.0;
+            return delta > 180.0 ? 360.0 - delta : delta;
+        }
+
+        /**
+         * Equirectangular approximation, accurate to well under a metre over deadband distances
+         */
+        private static double distanceM(double lat1, double lon1, double lat2, double lon2) {
+            double x = Math.toRadians(lon2 - lon1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+            double y = Math.toRadians(lat2 - lat1);
+            return Math.sqrt(x * x + y * y) * EARTH_RADIUS_M;
+        }
+    }
+}
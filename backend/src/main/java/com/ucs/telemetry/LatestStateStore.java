@@ -0,0 +1,376 @@
+package com.ucs.telemetry;
+
+import com.ucs.entity.UavLatestState;
+import com.ucs.repository.UavLatestStateRepository;
+import com.ucs.repository.UavLatestStateUpsertWriter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Authoritative in-JVM latest state of every UAV, keyed by uavId
+ *
+ * Values live in primitive struct-of-arrays columns indexed by a slot per UAV.
+ * Each slot is guarded by a sequence lock: writers move the slot version to an odd
+ * value with a CAS, write the columns and release it as the next even value; readers
+ * retry until they observe the same even version before and after copying a slot.
+ * Dirty slots are flushed to uav_latest_state in the background (write-behind).
+ */
+@Slf4j
+@Component
+public class LatestStateStore {
+
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    private static final byte NULL_BOOLEAN = TelemetryFrame.ACTIVE_UNKNOWN;
+
+    private final UavLatestStateRepository latestStateRepository;
+    private final UavLatestStateUpsertWriter latestStateUpsertWriter;
+
+    @Value("${telemetry.latest-store.capacity:4096}")
+    private int capacity;
+
+    @Value("${telemetry.latest-state.only-if-newer:true}")
+    private boolean onlyIfNewer;
+
+    private final ConcurrentHashMap<Integer, Integer> slotByUavId = new ConcurrentHashMap<>();
+    private final AtomicInteger slotCount = new AtomicInteger();
+
+    private AtomicLongArray versions;
+    private long[] flushedVersions;
+    private int[] uavIds;
+    private long[] lastUpdate;
+    private double[] lat;
+    private double[] lon;
+    private double[] alt;
+    private double[] heading;
+    private double[] groundSpeed;
+    private double[] verticalSpeed;
+    private double[] nedX;
+    private double[] nedY;
+    private double[] nedZ;
+    private double[] vx;
+    private double[] vy;
+    private double[] vz;
+    private double[] dataAge;
+    private long[] msgCount;
+    private byte[] isActive;
+
+    private volatile boolean capacityWarned;
+
+    public LatestStateStore(UavLatestStateRepository latestStateRepository,
+                            UavLatestStateUpsertWriter latestStateUpsertWriter) {
+        this.latestStateRepository = latestStateRepository;
+        this.latestStateUpsertWriter = latestStateUpsertWriter;
+    }
+
+    @PostConstruct
+    public void init() {
+        versions = new AtomicLongArray(capacity);
+        flushedVersions = new long[capacity];
+        uavIds = new int[capacity];
+        lastUpdate = new long[capacity];
+        lat = new double[capacity];
+        lon = new double[capacity];
+        alt = new double[capacity];
+        heading = new double[capacity];
+        groundSpeed = new double[capacity];
+        verticalSpeed = new double[capacity];
+        nedX = new double[capacity];
+        nedY = new double[capacity];
+        nedZ = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        vz = new double[capacity];
+        dataAge = new double[capacity];
+        msgCount = new long[capacity];
+        isActive = new byte[capacity];
+
+        // Warm up from the database so reads are complete right after a restart
+        int loaded = 0;
+        for (UavLatestState state : latestStateRepository.findAll()) {
+            int slot = slotFor(state.getUavId());
+            if (slot < 0) {
+                break;
+            }
+            write(slot, state);
+            flushedVersions[slot] = versions.get(slot);
+            loaded++;
+        }
+        log.info("Latest state store initialised: capacity={}, loaded={}", capacity, loaded);
+    }
+
+    /**
+     * Apply every sample of a frame to the store
+     * With telemetry.latest-state.only-if-newer, samples older than the stored state are ignored
+     * so out-of-order batches cannot move a UAV backwards. UAVs beyond the store capacity are
+     * written through to uav_latest_state directly.
+     */
+    public void update(TelemetryFrame frame) {
+        List<UavLatestState> overflow = null;
+        for (int i = 0; i < frame.size(); i++) {
+            int slot = slotFor(frame.uavId[i]);
+            if (slot >= 0) {
+                write(slot, frame, i);
+            } else {
+                if (overflow == null) {
+                    overflow = new ArrayList<>();
+                }
+                overflow.add(toLatestState(frame, i));
+            }
+        }
+        if (overflow != null) {
+            latestStateUpsertWriter.upsertAll(overflow, onlyIfNewer);
+        }
+    }
+
+    /**
+     * Latest state of all UAVs ordered by uavId
+     */
+    public List<UavLatestState> getAll() {
+        int count = slotCount.get();
+        List<UavLatestState> states = new ArrayList<>(Math.min(count, capacity));
+        for (int slot = 0; slot < count && slot < capacity; slot++) {
+            UavLatestState state = read(slot);
+            if (state != null) {
+                states.add(state);
+            }
+        }
+        states.sort(Comparator.comparing(UavLatestState::getUavId));
+        return states;
+    }
+
+    /**
+     * Latest state of one UAV
+     */
+    public Optional<UavLatestState> get(Integer uavId) {
+        Integer slot = slotByUavId.get(uavId);
+        if (slot == null || slot < 0) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(read(slot));
+    }
+
+    /**
+     * Ids of all UAVs with a known state
+     */
+    public List<Integer> getUavIds() {
+        int count = size();
+        List<Integer> ids = new ArrayList<>(count);
+        for (int slot = 0; slot < count; slot++) {
+            if (versions.get(slot) != 0) {
+                ids.add(uavIds[slot]);
+            }
+        }
+        return ids;
+    }
+
+    public int size() {
+        return Math.min(slotCount.get(), capacity);
+    }
+
+    /**
+     * Write-behind: upsert slots that changed since the last flush
+     */
+    @Scheduled(fixedDelayString = "${telemetry.latest-store.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        int count = size();
+        List<UavLatestState> dirty = new ArrayList<>();
+        List<Integer> dirtySlots = new ArrayList<>();
+        List<Long> dirtyVersions = new ArrayList<>();
+        for (int slot = 0; slot < count; slot++) {
+            long version = versions.get(slot);
+            if (version == flushedVersions[slot] || (version & 1L) != 0) {
+                continue;
+            }
+            UavLatestState state = read(slot);
+            if (state != null) {
+                dirty.add(state);
+                dirtySlots.add(slot);
+                dirtyVersions.add(version);
+            }
+        }
+        if (dirty.isEmpty()) {
+            return;
+        }
+        try {
+            latestStateUpsertWriter.upsertAll(dirty, onlyIfNewer);
+            for (int i = 0; i < dirtySlots.size(); i++) {
+                flushedVersions[dirtySlots.get(i)] = dirtyVersions.get(i);
+            }
+            log.debug("Flushed {} latest states to uav_latest_state", dirty.size());
+        } catch (Exception e) {
+            log.error("Failed to flush {} latest states, will retry", dirty.size(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private int slotFor(Integer uavId) {
+        Integer slot = slotByUavId.get(uavId);
+        if (slot != null) {
+            return slot;
+        }
+        slot = slotByUavId.computeIfAbsent(uavId, id -> {
+            int next = slotCount.getAndIncrement();
+            if (next >= capacity) {
+                return -1;
+            }
+            uavIds[next] = id;
+            return next;
+        });
+        if (slot < 0 && !capacityWarned) {
+            capacityWarned = true;
+            log.warn("Latest state store full (capacity={}), UAV {} is not tracked", capacity, uavId);
+        }
+        return slot;
+    }
+
+    private void write(int slot, TelemetryFrame frame, int i) {
+        long version = acquire(slot);
+        try {
+            if (onlyIfNewer && version != 0 && frame.sampleTime[i] < lastUpdate[slot]) {
+                return;
+            }
+            uavIds[slot] = frame.uavId[i];
+            lastUpdate[slot] = frame.sampleTime[i];
+            lat[slot] = frame.lat[i];
+            lon[slot] = frame.lon[i];
+            alt[slot] = frame.alt[i];
+            heading[slot] = frame.heading[i];
+            groundSpeed[slot] = frame.groundSpeed[i];
+            verticalSpeed[slot] = frame.verticalSpeed[i];
+            nedX[slot] = frame.nedX[i];
+            nedY[slot] = frame.nedY[i];
+            nedZ[slot] = frame.nedZ[i];
+            vx[slot] = frame.vx[i];
+            vy[slot] = frame.vy[i];
+            vz[slot] = frame.vz[i];
+            dataAge[slot] = frame.dataAge[i];
+            msgCount[slot] = frame.msgCount[i] != TelemetryFrame.NO_MSG_COUNT ? frame.msgCount[i] : NULL_LONG;
+            isActive[slot] = frame.active[i];
+            version += 2;
+        } finally {
+            versions.setRelease(slot, version);
+        }
+    }
+
+    private void write(int slot, UavLatestState state) {
+        long version = acquire(slot);
+        try {
+            uavIds[slot] = state.getUavId();
+            lastUpdate[slot] = state.getLastUpdate().toEpochMilli();
+            lat[slot] = toDouble(state.getLat());
+            lon[slot] = toDouble(state.getLon());
+            alt[slot] = toDouble(state.getAlt());
+            heading[slot] = toDouble(state.getHeading());
+            groundSpeed[slot] = toDouble(state.getGroundSpeed());
+            verticalSpeed[slot] = toDouble(state.getVerticalSpeed());
+            nedX[slot] = toDouble(state.getNedX());
+            nedY[slot] = toDouble(state.getNedY());
+            nedZ[slot] = toDouble(state.getNedZ());
+            vx[slot] = toDouble(state.getVx());
+            vy[slot] = toDouble(state.getVy());
+            vz[slot] = toDouble(state.getVz());
+            dataAge[slot] = toDouble(state.getDataAge());
+            msgCount[slot] = state.getMsgCount() != null ? state.getMsgCount() : NULL_LONG;
+            isActive[slot] = state.getIsActive() == null ? NULL_BOOLEAN : (byte) (state.getIsActive() ? 1 : 0);
+            version += 2;
+        } finally {
+            versions.setRelease(slot, version);
+        }
+    }
+
+    /**
+     * Move the slot version from even to odd; returns the even version that was held before
+     */
+    private long acquire(int slot) {
+        while (true) {
+            long version = versions.get(slot);
+            if ((version & 1L) == 0 && versions.compareAndSet(slot, version, version + 1)) {
+                return version;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private UavLatestState read(int slot) {
+        while (true) {
+            long before = versions.getAcquire(slot);
+            if (before == 0) {
+                return null;
+            }
+            if ((before & 1L) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            UavLatestState state = new UavLatestState();
+            state.setUavId(uavIds[slot]);
+            state.setLastUpdate(Instant.ofEpochMilli(lastUpdate[slot]));
+            state.setLat(toBoxed(lat[slot]));
+            state.setLon(toBoxed(lon[slot]));
+            state.setAlt(toBoxed(alt[slot]));
+            state.setHeading(toBoxed(heading[slot]));
+            state.setGroundSpeed(toBoxed(groundSpeed[slot]));
+            state.setVerticalSpeed(toBoxed(verticalSpeed[slot]));
+            state.setNedX(toBoxed(nedX[slot]));
+            state.setNedY(toBoxed(nedY[slot]));
+            state.setNedZ(toBoxed(nedZ[slot]));
+            state.setVx(toBoxed(vx[slot]));
+            state.setVy(toBoxed(vy[slot]));
+            state.setVz(toBoxed(vz[slot]));
+            state.setDataAge(toBoxed(dataAge[slot]));
+            state.setMsgCount(msgCount[slot] != NULL_LONG ? msgCount[slot] : null);
+            state.setIsActive(isActive[slot] == NULL_BOOLEAN ? null : isActive[slot] == 1);
+            VarHandle.acquireFence();
+            if (versions.get(slot) == before) {
+                return state;
+            }
+        }
+    }
+
+    private static UavLatestState toLatestState(TelemetryFrame frame, int i) {
+        UavLatestState state = new UavLatestState();
+        state.setUavId(frame.uavId[i]);
+        state.setLastUpdate(frame.sampleInstant(i));
+        state.setLat(toBoxed(frame.lat[i]));
+        state.setLon(toBoxed(frame.lon[i]));
+        state.setAlt(toBoxed(frame.alt[i]));
+        state.setHeading(toBoxed(frame.heading[i]));
+        state.setGroundSpeed(toBoxed(frame.groundSpeed[i]));
+        state.setVerticalSpeed(toBoxed(frame.verticalSpeed[i]));
+        state.setNedX(toBoxed(frame.nedX[i]));
+        state.setNedY(toBoxed(frame.nedY[i]));
+        state.setNedZ(toBoxed(frame.nedZ[i]));
+        state.setVx(toBoxed(frame.vx[i]));
+        state.setVy(toBoxed(frame.vy[i]));
+        state.setVz(toBoxed(frame.vz[i]));
+        state.setDataAge(toBoxed(frame.dataAge[i]));
+        state.setMsgCount(frame.msgCountOrNull(i));
+        state.setIsActive(frame.isActive(i));
+        return state;
+    }
+
+    private static double toDouble(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+
+    private static Double toBoxed(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+}
@@ -0,0 +1,251 @@
+package com.ucs.telemetry;
+
+import com.ucs.entity.UavTelemetry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Per-UAV ring buffer of the most recent history rows, kept compressed in memory
+ *
+ * Receives exactly the rows written to uav_telemetry (after decimation, with a position), once their
+ * transaction has committed, so a range it covers returns the same rows as the database. Each UAV holds up to blocks-per-uav blocks of
+ * block-samples rows (CompressedTelemetryBlock); when the ring is full the oldest block is
+ * dropped. coveredFrom is the time from which the buffer holds every stored row of the UAV:
+ * the first row since startup, the end of the last evicted block, or just after a row that
+ * arrived out of order, whichever is latest. Older parts of a query go to the database.
+ */
+@Slf4j
+@Component
+public class RecentHistoryBuffer {
+
+    @Value("${telemetry.recent.enabled:true}")
+    private boolean enabled;
+
+    @Value("${telemetry.recent.block-samples:128}")
+    private int blockSamples;
+
+    @Value("${telemetry.recent.blocks-per-uav:8}")
+    private int blocksPerUav;
+
+    private final ConcurrentHashMap<Integer, UavRing> rings = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            log.info("Recent history buffer enabled: {} rows per UAV", blockSamples * blocksPerUav);
+        }
+    }
+
+    /**
+     * Append the given rows of a frame (the ones just written to history)
+     */
+    public void append(TelemetryFrame frame, int[] rows) {
+        if (!enabled) {
+            return;
+        }
+        for (int i : rows) {
+            rings.computeIfAbsent(frame.uavId[i], id -> new UavRing()).append(frame, i);
+        }
+    }
+
+    /**
+     * Pass the buffered rows of [startTime, endTime] to the consumer in time order
+     * @return the time from which the buffer is complete (rows before it were not passed),
+     *         or null when nothing is buffered for the UAV
+     */
+    public Instant read(Integer uavId, Instant startTime, Instant endTime, Consumer<UavTelemetry> consumer) {
+        UavRing ring = enabled ? rings.get(uavId) : null;
+        if (ring == null) {
+            return null;
+        }
+        return ring.read(uavId, startTime.toEpochMilli(), endTime.toEpochMilli(), consumer);
+    }
+
+    /**
+     * Positions (time, lat, lon, alt) of one UAV since sinceMillis, or null when nothing is buffered
+     */
+    public Trail readTrail(Integer uavId, long sinceMillis) {
+        UavRing ring = enabled ? rings.get(uavId) : null;
+        return ring != null ? ring.readTrail(sinceMillis) : null;
+    }
+
+    public List<Integer> getUavIds() {
+        return new ArrayList<>(rings.keySet());
+    }
+
+    public long getCompressedBytes() {
+        long bytes = 0;
+        for (UavRing ring : rings.values()) {
+            bytes += ring.compressedBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Buffered positions of one UAV in columnar form
+     */
+    public static final class Trail {
+
+        /** Buffer is complete from this time (epoch ms) */
+        public final long coveredFrom;
+        public final long[] time;
+        public final double[] lat;
+        public final double[] lon;
+        public final double[] alt;
+
+        Trail(long coveredFrom, long[] time, double[] lat, double[] lon, double[] alt) {
+            this.coveredFrom = coveredFrom;
+            this.time = time;
+            this.lat = lat;
+            this.lon = lon;
+            this.alt = alt;
+        }
+    }
+
+    private final class UavRing {
+
+        private final ArrayDeque<CompressedTelemetryBlock> blocks = new ArrayDeque<>();
+        private long coveredFrom = Long.MIN_VALUE;
+        private long lastTime = Long.MIN_VALUE;
+
+        synchronized void append(TelemetryFrame frame, int i) {
+            long time = frame.sampleTime[i];
+            if (blocks.isEmpty()) {
+                coveredFrom = time;
+            } else if (time < lastTime) {
+                // Kept in the database only; the buffer is complete again just after it
+                coveredFrom = Math.max(coveredFrom, time + 1);
+                return;
+            }
+            CompressedTelemetryBlock block = blocks.peekLast();
+            if (block == null || block.isFull()) {
+                if (blocks.size() == blocksPerUav) {
+                    coveredFrom = Math.max(coveredFrom, blocks.pollFirst().lastTime() + 1);
+                }
+                block = new CompressedTelemetryBlock(blockSamples);
+                blocks.addLast(block);
+            }
+            block.append(frame, i);
+            lastTime = time;
+        }
+
+        synchronized Instant read(Integer uavId, long startMillis, long endMillis, Consumer<UavTelemetry> consumer) {
+            long from = Math.max(startMillis, coveredFrom);
+            for (CompressedTelemetryBlock block : blocks) {
+                if (block.lastTime() < from || block.firstTime() > endMillis) {
+                    continue;
+                }
+                long[] time = block.decodeLong(CompressedTelemetryBlock.TIME);
+                int first = lowerBound(time, from);
+                int last = lowerBound(time, endMillis + 1);
+                if (first >= last) {
+                    continue;
+                }
+                long[] msgCount = block.decodeLong(CompressedTelemetryBlock.MSG_COUNT);
+                long[] active = block.decodeLong(CompressedTelemetryBlock.ACTIVE);
+                double[][] values = new double[CompressedTelemetryBlock.DATA_AGE + 1][];
+                for (int c = 0; c < values.length; c++) {
+                    values[c] = block.decodeDouble(c);
+                }
+                for (int k = first; k < last; k++) {
+                    consumer.accept(toTelemetry(uavId, time[k], values, msgCount[k], active[k], k));
+                }
+            }
+            return Instant.ofEpochMilli(coveredFrom);
+        }
+
+        synchronized Trail readTrail(long sinceMillis) {
+            long from = Math.max(sinceMillis, coveredFrom);
+            int total = 0;
+            List<long[]> times = new ArrayList<>(blocks.size());
+            List<CompressedTelemetryBlock> used = new ArrayList<>(blocks.size());
+            List<Integer> starts = new ArrayList<>(blocks.size());
+            for (CompressedTelemetryBlock block : blocks) {
+                if (block.lastTime() < from) {
+                    continue;
+                }
+                long[] time = block.decodeLong(CompressedTelemetryBlock.TIME);
+                int first = lowerBound(time, from);
+                times.add(time);
+                used.add(block);
+                starts.add(first);
+                total += time.length - first;
+            }
+            long[] time = new long[total];
+            double[] lat = new double[total];
+            double[] lon = new double[total];
+            double[] alt = new double[total];
+            int offset = 0;
+            for (int b = 0; b < used.size(); b++) {
+                CompressedTelemetryBlock block = used.get(b);
+                int first = starts.get(b);
+                int count = times.get(b).length - first;
+                System.arraycopy(times.get(b), first, time, offset, count);
+                System.arraycopy(block.decodeDouble(CompressedTelemetryBlock.LAT), first, lat, offset, count);
+                System.arraycopy(block.decodeDouble(CompressedTelemetryBlock.LON), first, lon, offset, count);
+                System.arraycopy(block.decodeDouble(CompressedTelemetryBlock.ALT), first, alt, offset, count);
+                offset += count;
+            }
+            return new Trail(coveredFrom, time, lat, lon, alt);
+        }
+
+        synchronized long compressedBytes() {
+            long bytes = 0;
+            for (CompressedTelemetryBlock block : blocks) {
+                bytes += block.compressedBytes();
+            }
+            return bytes;
+        }
+    }
+
+    private static UavTelemetry toTelemetry(Integer uavId, long time, double[][] values,
+                                            long msgCount, long active, int k) {
+        UavTelemetry row = new UavTelemetry();
+        row.setUavId(uavId);
+        row.setTimestamp(Instant.ofEpochMilli(time));
+        row.setLat(toBoxed(values[CompressedTelemetryBlock.LAT][k]));
+        row.setLon(toBoxed(values[CompressedTelemetryBlock.LON][k]));
+        row.setAlt(toBoxed(values[CompressedTelemetryBlock.ALT][k]));
+        row.setHeading(toBoxed(values[CompressedTelemetryBlock.HEADING][k]));
+        row.setGroundSpeed(toBoxed(values[CompressedTelemetryBlock.GROUND_SPEED][k]));
+        row.setVerticalSpeed(toBoxed(values[CompressedTelemetryBlock.VERTICAL_SPEED][k]));
+        row.setNedX(toBoxed(values[CompressedTelemetryBlock.NED_X][k]));
+        row.setNedY(toBoxed(values[CompressedTelemetryBlock.NED_Y][k]));
+        row.setNedZ(toBoxed(values[CompressedTelemetryBlock.NED_Z][k]));
+        row.setVx(toBoxed(values[CompressedTelemetryBlock.VX][k]));
+        row.setVy(toBoxed(values[CompressedTelemetryBlock.VY][k]));
+        row.setVz(toBoxed(values[CompressedTelemetryBlock.VZ][k]));
+        row.setDataAge(toBoxed(values[CompressedTelemetryBlock.DATA_AGE][k]));
+        row.setMsgCount(msgCount != TelemetryFrame.NO_MSG_COUNT ? msgCount : null);
+        row.setIsActive(active == TelemetryFrame.ACTIVE_UNKNOWN ? null : active == 1);
+        return row;
+    }
+
+    /**
+     * First index whose time is at least value (times are sorted)
+     */
+    private static int lowerBound(long[] times, long value) {
+        int index = Arrays.binarySearch(times, value);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index > 0 && times[index - 1] == value) {
+            index--;
+        }
+        return index;
+    }
+
+    private static Double toBoxed(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+}
@@ -0,0 +1,187 @@
+package com.ucs.telemetry;
+
+import com.ucs.dto.IngestSourceStatsDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks msgSeqNumber per gateway source to drop retried duplicates and count link loss
+ *
+ * Each source keeps the highest sequence seen plus a sliding bitmap of the preceding
+ * sequences (anti-replay window). A sequence inside the window that was already seen is a
+ * duplicate; one that was not is a late (reordered) frame filling an earlier gap. Frames
+ * older than the window are dropped as stale, unless the sequence is small enough to
+ * indicate the gateway restarted its counter.
+ */
+@Component
+public class SequenceTracker {
+
+    public enum Verdict { ACCEPTED, DUPLICATE, STALE, UNSEQUENCED }
+
+    @Value("${telemetry.ingest.sequence-window:1024}")
+    private int window;
+
+    private final ConcurrentHashMap<String, SourceState> sources = new ConcurrentHashMap<>();
+    private final AtomicLong unsequenced = new AtomicLong();
+
+    /**
+     * Record a frame's sequence and decide whether it should be ingested
+     * Frames without a positive sequence number are not tracked (the gateway sends 0 when unknown).
+     */
+    public Verdict track(String sourceId, long seq) {
+        if (seq <= 0) {
+            unsequenced.incrementAndGet();
+            return Verdict.UNSEQUENCED;
+        }
+        return sources.computeIfAbsent(sourceId, id -> new SourceState(id, window)).track(seq);
+    }
+
+    /**
+     * Undo track() for a frame that was accepted but could not be queued, so its retry is not a duplicate
+     */
+    public void forget(String sourceId, long seq) {
+        SourceState state = sources.get(sourceId);
+        if (state != null && seq > 0) {
+            state.forget(seq);
+        }
+    }
+
+    public long getUnsequencedCount() {
+        return unsequenced.get();
+    }
+
+    public List<IngestSourceStatsDTO> getSourceStats() {
+        List<IngestSourceStatsDTO> stats = new ArrayList<>();
+        for (SourceState state : sources.values()) {
+            stats.add(state.toStats());
+        }
+        stats.sort(Comparator.comparing(IngestSourceStatsDTO::getSourceId));
+        return stats;
+    }
+
+    private static final class SourceState {
+
+        private final String sourceId;
+        private final int window;
+        private final long[] seen;
+
+        private long highest;
+        private long received;
+        private long accepted;
+        private long duplicates;
+        private long stale;
+        private long gaps;
+        private long missing;
+        private long reordered;
+        private long resets;
+        private long lastSeen;
+
+        SourceState(String sourceId, int window) {
+            this.sourceId = sourceId;
+            this.window = window;
+            this.seen = new long[(window + 63) / 64];
+        }
+
+        synchronized Verdict track(long seq) {
+            received++;
+            lastSeen = System.currentTimeMillis();
+            if (highest == 0) {
+                highest = seq;
+                mark(seq);
+                accepted++;
+                return Verdict.ACCEPTED;
+            }
+            if (seq > highest) {
+                long jump = seq - highest;
+                if (jump > 1) {
+                    gaps++;
+                    missing += jump - 1;
+                }
+                if (jump >= window) {
+                    Arrays.fill(seen, 0L);
+                } else {
+                    for (long s = highest + 1; s < seq; s++) {
+                        clear(s);
+                    }
+                }
+                highest = seq;
+                mark(seq);
+                accepted++;
+                return Verdict.ACCEPTED;
+            }
+            long behind = highest - seq;
+            if (behind < window) {
+                if (isMarked(seq)) {
+                    duplicates++;
+                    return Verdict.DUPLICATE;
+                }
+                mark(seq);
+                reordered++;
+                missing = Math.max(0, missing - 1);
+                accepted++;
+                return Verdict.ACCEPTED;
+            }
+            if (seq < window) {
+                // Counter restarted on the gateway side
+                resets++;
+                Arrays.fill(seen, 0L);
+                highest = seq;
+                mark(seq);
+                accepted++;
+                return Verdict.ACCEPTED;
+            }
+            stale++;
+            return Verdict.STALE;
+        }
+
+        synchronized void forget(long seq) {
+            if (seq <= highest && highest - seq < window && isMarked(seq)) {
+                clear(seq);
+                accepted--;
+            }
+        }
+
+        synchronized IngestSourceStatsDTO toStats() {
+            IngestSourceStatsDTO dto = new IngestSourceStatsDTO();
+            dto.setSourceId(sourceId);
+            dto.setLastSeq(highest);
+            dto.setReceived(received);
+            dto.setAccepted(accepted);
+            dto.setDuplicates(duplicates);
+            dto.setStale(stale);
+            dto.setGaps(gaps);
+            dto.setMissing(missing);
+            dto.setReordered(reordered);
+            dto.setResets(resets);
+            dto.setLastSeen(lastSeen > 0 ? Instant.ofEpochMilli(lastSeen) : null);
+            return dto;
+        }
+
+        private int bit(long seq) {
+            return (int) Math.floorMod(seq, (long) seen.length * 64);
+        }
+
+        private boolean isMarked(long seq) {
+            int bit = bit(seq);
+            return (seen[bit >>> 6] & (1L << (bit & 63))) != 0;
+        }
+
+        private void mark(long seq) {
+            int bit = bit(seq);
+            seen[bit >>> 6] |= 1L << (bit & 63);
+        }
+
+        private void clear(long seq) {
+            int bit = bit(seq);
+            seen[bit >>> 6] &= ~(1L << (bit & 63));
+        }
+    }
+}
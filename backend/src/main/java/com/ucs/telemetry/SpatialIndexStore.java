@@ -0,0 +1,233 @@
+package com.ucs.telemetry;
+
+import com.ucs.entity.UavCellVisit;
+import com.ucs.repository.UavCellVisitWriter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Spatio-temporal index over telemetry (uav_cell_visit)
+ *
+ * The world is cut into a fixed lat/lon grid of cell-deg degrees and time into buckets of
+ * bucket-seconds. Every ingested sample, before history decimation, extends the visit of its UAV
+ * to its (cell, bucket); a UAV usually stays in one cell for many samples, so only a handful of
+ * pending visits per UAV are kept and merged into the table by the background flush. An area
+ * query then reads the visits of the cells covering the area instead of scanning history.
+ */
+@Slf4j
+@Component
+public class SpatialIndexStore {
+
+    private final UavCellVisitWriter cellVisitWriter;
+
+    @Value("${telemetry.spatial.enabled:true}")
+    private boolean enabled;
+
+    @Value("${telemetry.spatial.cell-deg:0.01}")
+    private double cellDeg;
+
+    @Value("${telemetry.spatial.bucket-seconds:600}")
+    private long bucketSeconds;
+
+    private final ConcurrentHashMap<Integer, UavVisits> states = new ConcurrentHashMap<>();
+
+    public SpatialIndexStore(UavCellVisitWriter cellVisitWriter) {
+        this.cellVisitWriter = cellVisitWriter;
+    }
+
+    public long getBucketMillis() {
+        return bucketSeconds * 1000;
+    }
+
+    /**
+     * Grid cell of a position
+     */
+    public long cellOf(double lat, double lon) {
+        return (long) row(lat) * columns() + column(lon);
+    }
+
+    /**
+     * Cells covering a lat/lon box, or null when there are more than maxCells
+     */
+    public List<Long> cellsIn(double minLat, double minLon, double maxLat, double maxLon, int maxCells) {
+        int firstRow = row(minLat);
+        int lastRow = row(maxLat);
+        int firstColumn = column(minLon);
+        int lastColumn = column(maxLon);
+        long count = (long) (lastRow - firstRow + 1) * (lastColumn - firstColumn + 1);
+        if (count > maxCells) {
+            return null;
+        }
+        List<Long> cells = new ArrayList<>((int) count);
+        long columns = columns();
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstColumn; c <= lastColumn; c++) {
+                cells.add(r * columns + c);
+            }
+        }
+        return cells;
+    }
+
+    public Instant bucketOf(Instant time) {
+        long width = getBucketMillis();
+        return Instant.ofEpochMilli(Math.floorDiv(time.toEpochMilli(), width) * width);
+    }
+
+    private int row(double lat) {
+        return (int) Math.floor((Math.max(-90, Math.min(90, lat)) + 90) / cellDeg);
+    }
+
+    private int column(double lon) {
+        return (int) Math.floor((Math.max(-180, Math.min(180, lon)) + 180) / cellDeg);
+    }
+
+    private long columns() {
+        return (long) Math.ceil(360 / cellDeg) + 1;
+    }
+
+    /**
+     * Extend the visits of every sample with a position
+     */
+    public void update(TelemetryFrame frame) {
+        if (!enabled) {
+            return;
+        }
+        long width = getBucketMillis();
+        for (int i = 0; i < frame.size(); i++) {
+            if (Double.isNaN(frame.lat[i]) || Double.isNaN(frame.lon[i])) {
+                continue;
+            }
+            long time = frame.sampleTime[i];
+            states.computeIfAbsent(frame.uavId[i], UavVisits::new)
+                    .add(cellOf(frame.lat[i], frame.lon[i]), Math.floorDiv(time, width) * width, time);
+        }
+    }
+
+    /**
+     * Merge the pending visits into uav_cell_visit
+     */
+    @Scheduled(fixedDelayString = "${telemetry.spatial.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        List<Visit> pending = new ArrayList<>();
+        for (UavVisits state : states.values()) {
+            state.drainTo(pending);
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<UavCellVisit> visits = new ArrayList<>(pending.size());
+        for (Visit visit : pending) {
+            visits.add(visit.toEntity());
+        }
+        try {
+            cellVisitWriter.mergeAll(visits);
+            log.debug("Flushed {} cell visits", visits.size());
+        } catch (Exception e) {
+            for (Visit visit : pending) {
+                states.computeIfAbsent(visit.uavId, UavVisits::new).restore(visit);
+            }
+            log.error("Failed to flush {} cell visits, will retry", visits.size(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Pending visits of one UAV; usually the current cell only
+     */
+    private static final class UavVisits {
+
+        private final int uavId;
+        private List<Visit> visits = new ArrayList<>();
+
+        UavVisits(Integer uavId) {
+            this.uavId = uavId;
+        }
+
+        synchronized void add(long cell, long bucket, long time) {
+            Visit visit = lookup(cell, bucket);
+            if (visit == null) {
+                visit = new Visit(uavId, cell, bucket);
+                visits.add(visit);
+            }
+            visit.add(time);
+        }
+
+        synchronized void drainTo(List<Visit> pending) {
+            if (!visits.isEmpty()) {
+                pending.addAll(visits);
+                visits = new ArrayList<>();
+            }
+        }
+
+        synchronized void restore(Visit visit) {
+            Visit current = lookup(visit.cell, visit.bucket);
+            if (current == null) {
+                visits.add(visit);
+            } else {
+                current.merge(visit);
+            }
+        }
+
+        private Visit lookup(long cell, long bucket) {
+            // The current cell is almost always the last one
+            for (int k = visits.size() - 1; k >= 0; k--) {
+                Visit visit = visits.get(k);
+                if (visit.cell == cell && visit.bucket == bucket) {
+                    return visit;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class Visit {
+
+        private final int uavId;
+        private final long cell;
+        private final long bucket;
+        private long firstTime = Long.MAX_VALUE;
+        private long lastTime = Long.MIN_VALUE;
+        private long count;
+
+        Visit(int uavId, long cell, long bucket) {
+            this.uavId = uavId;
+            this.cell = cell;
+            this.bucket = bucket;
+        }
+
+        void add(long time) {
+            firstTime = Math.min(firstTime, time);
+            lastTime = Math.max(lastTime, time);
+            count++;
+        }
+
+        void merge(Visit other) {
+            firstTime = Math.min(firstTime, other.firstTime);
+            lastTime = Math.max(lastTime, other.lastTime);
+            count += other.count;
+        }
+
+        UavCellVisit toEntity() {
+            UavCellVisit visit = new UavCellVisit();
+            visit.setCellId(cell);
+            visit.setBucketStart(Instant.ofEpochMilli(bucket));
+            visit.setUavId(uavId);
+            visit.setFirstTime(Instant.ofEpochMilli(firstTime));
+            visit.setLastTime(Instant.ofEpochMilli(lastTime));
+            visit.setSampleCount(count);
+            return visit;
+        }
+    }
+}
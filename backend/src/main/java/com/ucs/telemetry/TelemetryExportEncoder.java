@@ -0,0 +1,246 @@
+package com.ucs.telemetry;
+
+import com.ucs.entity.UavTelemetry;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encodes exported history rows as a sequence of gzip members
+ *
+ * The header, every block of blockRows rows and the trailer are each a complete gzip member, so
+ * the concatenation is one valid gzip file and an export can be regenerated from any block
+ * boundary. The output only depends on the rows, which makes byte ranges repeatable.
+ */
+public abstract class TelemetryExportEncoder {
+
+    private final int blockRows;
+    private OutputStream member;
+    private int rowsInBlock;
+
+    protected TelemetryExportEncoder(int blockRows) {
+        this.blockRows = blockRows;
+    }
+
+    /**
+     * Write the file header as its own member
+     */
+    public void writeHeader(OutputStream out) throws IOException {
+        try (OutputStream header = openMember(out)) {
+            header(header);
+        }
+    }
+
+    /**
+     * Add a row to the current block
+     * @return true when the row completed a block, i.e. the output is now at a block boundary
+     */
+    public boolean writeRow(OutputStream out, UavTelemetry row) throws IOException {
+        if (member == null) {
+            member = openMember(out);
+        }
+        row(member, row);
+        if (++rowsInBlock == blockRows) {
+            finishBlock();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Finish the last (partial) block and write the trailer
+     */
+    public void finish(OutputStream out) throws IOException {
+        finishBlock();
+        try (OutputStream trailer = openMember(out)) {
+            trailer(trailer);
+        }
+    }
+
+    private void finishBlock() throws IOException {
+        if (member != null) {
+            endBlock(member);
+            member.close();
+            member = null;
+            rowsInBlock = 0;
+        }
+    }
+
+    protected abstract void header(OutputStream out) throws IOException;
+
+    protected abstract void row(OutputStream out, UavTelemetry row) throws IOException;
+
+    protected void endBlock(OutputStream out) throws IOException {
+    }
+
+    protected void trailer(OutputStream out) throws IOException {
+    }
+
+    private static OutputStream openMember(OutputStream out) throws IOException {
+        // Closing the member ends its deflater but leaves the response stream open
+        return new GZIPOutputStream(new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                out.write(bytes, offset, length);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        }, 8192);
+    }
+
+    private static double value(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+
+    /**
+     * One line per row, absent values empty, timestamps in ISO-8601 UTC
+     */
+    static final class Csv extends TelemetryExportEncoder {
+
+        private static final String HEADER = "uav_id,timestamp,lat,lon,alt,heading,ground_speed,vertical_speed,"
+                + "ned_x,ned_y,ned_z,vx,vy,vz,data_age,msg_count,is_active\n";
+
+        private final StringBuilder line = new StringBuilder(256);
+
+        Csv(int blockRows) {
+            super(blockRows);
+        }
+
+        @Override
+        protected void header(OutputStream out) throws IOException {
+            out.write(HEADER.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        @Override
+        protected void row(OutputStream out, UavTelemetry row) throws IOException {
+            line.setLength(0);
+            line.append(row.getUavId()).append(',').append(row.getTimestamp());
+            for (Object value : new Object[] {row.getLat(), row.getLon(), row.getAlt(), row.getHeading(),
+                    row.getGroundSpeed(), row.getVerticalSpeed(), row.getNedX(), row.getNedY(), row.getNedZ(),
+                    row.getVx(), row.getVy(), row.getVz(), row.getDataAge(), row.getMsgCount(), row.getIsActive()}) {
+                line.append(',');
+                if (value != null) {
+                    line.append(value);
+                }
+            }
+            line.append('\n');
+            out.write(line.toString().getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    /**
+     * Little-endian column blocks
+     *
+     * <pre>
+     * Header
+     *   int32   magic "UCSX"
+     *   uint8   version (1)
+     *   3 bytes reserved
+     * Block (rowCount = 0 ends the file)
+     *   int32   rowCount
+     *   int32   uavId[rowCount]
+     *   int64   timestamp[rowCount], epoch ms
+     *   float64 lat, lon, alt, heading, groundSpeed, verticalSpeed, nedX, nedY, nedZ, vx, vy, vz,
+     *           dataAge [rowCount] each, NaN = absent
+     *   int64   msgCount[rowCount], -1 = absent
+     *   int8    isActive[rowCount], 1 / 0, -1 = absent
+     * </pre>
+     */
+    static final class Columnar extends TelemetryExportEncoder {
+
+        static final int MAGIC = 0x58534355; // "UCSX" read little-endian
+        static final int VERSION = 1;
+        private static final int DOUBLE_COLUMNS = 13;
+
+        private final int[] uavId;
+        private final long[] time;
+        private final double[][] values;
+        private final long[] msgCount;
+        private final byte[] active;
+        private final ByteBuffer buffer = ByteBuffer.allocate(8192).order(ByteOrder.LITTLE_ENDIAN);
+        private int size;
+
+        Columnar(int blockRows) {
+            super(blockRows);
+            uavId = new int[blockRows];
+            time = new long[blockRows];
+            values = new double[DOUBLE_COLUMNS][blockRows];
+            msgCount = new long[blockRows];
+            active = new byte[blockRows];
+        }
+
+        @Override
+        protected void header(OutputStream out) throws IOException {
+            buffer.clear();
+            buffer.putInt(MAGIC).put((byte) VERSION).put(new byte[3]);
+            drain(out);
+        }
+
+        @Override
+        protected void row(OutputStream out, UavTelemetry row) {
+            uavId[size] = row.getUavId();
+            time[size] = row.getTimestamp().toEpochMilli();
+            Double[] columns = {row.getLat(), row.getLon(), row.getAlt(), row.getHeading(), row.getGroundSpeed(),
+                    row.getVerticalSpeed(), row.getNedX(), row.getNedY(), row.getNedZ(), row.getVx(), row.getVy(),
+                    row.getVz(), row.getDataAge()};
+            for (int c = 0; c < DOUBLE_COLUMNS; c++) {
+                values[c][size] = value(columns[c]);
+            }
+            msgCount[size] = row.getMsgCount() != null ? row.getMsgCount() : TelemetryFrame.NO_MSG_COUNT;
+            active[size] = row.getIsActive() == null ? TelemetryFrame.ACTIVE_UNKNOWN : (byte) (row.getIsActive() ? 1 : 0);
+            size++;
+        }
+
+        @Override
+        protected void endBlock(OutputStream out) throws IOException {
+            buffer.clear();
+            buffer.putInt(size);
+            for (int i = 0; i < size; i++) {
+                ensure(out, 4).putInt(uavId[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                ensure(out, 8).putLong(time[i]);
+            }
+            for (double[] column : values) {
+                for (int i = 0; i < size; i++) {
+                    ensure(out, 8).putDouble(column[i]);
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                ensure(out, 8).putLong(msgCount[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                ensure(out, 1).put(active[i]);
+            }
+            drain(out);
+            size = 0;
+        }
+
+        @Override
+        protected void trailer(OutputStream out) throws IOException {
+            buffer.clear();
+            buffer.putInt(0);
+            drain(out);
+        }
+
+        private ByteBuffer ensure(OutputStream out, int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                drain(out);
+                buffer.clear();
+            }
+            return buffer;
+        }
+
+        private void drain(OutputStream out) throws IOException {
+            out.write(buffer.array(), 0, buffer.position());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.ucs.telemetry;
+
+/**
+ * File formats of the bulk telemetry export; both are delivered as gzip files
+ */
+public enum TelemetryExportFormat {
+
+    CSV(".csv.gz"),
+    COLUMNAR(".ucsx.gz");
+
+    private final String fileExtension;
+
+    TelemetryExportFormat(String fileExtension) {
+        this.fileExtension = fileExtension;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    public TelemetryExportEncoder newEncoder(int blockRows) {
+        return this == CSV ? new TelemetryExportEncoder.Csv(blockRows) : new TelemetryExportEncoder.Columnar(blockRows);
+    }
+
+    /**
+     * @throws IllegalArgumentException for an unknown format name
+     */
+    public static TelemetryExportFormat parse(String name) {
+        for (TelemetryExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown export format: " + name);
+    }
+}
@@ -0,0 +1,299 @@
+package com.ucs.telemetry;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.ucs.dto.UavTelemetryBatchDTO;
+import com.ucs.dto.UavTelemetryDTO;
+import com.ucs.entity.UavTelemetry;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * One telemetry batch from the gateway in columnar form
+ *
+ * The ingest pipeline works on this instead of UavTelemetryBatchDTO so a binary frame can be
+ * decoded straight into primitive columns without a boxed object per UAV. Column arrays are
+ * indexed by sample row; absent values are NaN for doubles, -1 for msgCount and
+ * ACTIVE_UNKNOWN for isActive. Serialized to JSON in the same shape as UavTelemetryBatchDTO.
+ */
+@JsonSerialize(using = TelemetryFrameJsonSerializer.class)
+public final class TelemetryFrame {
+
+    public static final long NO_SEQUENCE = -1L;
+    public static final long NO_MSG_COUNT = -1L;
+    public static final byte ACTIVE_UNKNOWN = -1;
+
+    private final int size;
+
+    /** Gateway that sent the frame, used for per-source sequence tracking */
+    public String sourceId = "";
+    public long seq = NO_SEQUENCE;
+    public long timestamp;
+    public double homeLat = Double.NaN;
+    public double homeLon = Double.NaN;
+    public double homeAlt = Double.NaN;
+    public int numUavsTotal;
+    public int numUavsActive;
+
+    public final int[] uavId;
+    /** Epoch milliseconds of each sample */
+    public final long[] sampleTime;
+    public final double[] lat;
+    public final double[] lon;
+    public final double[] alt;
+    public final double[] heading;
+    public final double[] groundSpeed;
+    public final double[] verticalSpeed;
+    public final double[] nedX;
+    public final double[] nedY;
+    public final double[] nedZ;
+    public final double[] vx;
+    public final double[] vy;
+    public final double[] vz;
+    public final double[] dataAge;
+    public final long[] msgCount;
+    public final byte[] active;
+
+    public TelemetryFrame(int size) {
+        this.size = size;
+        this.uavId = new int[size];
+        this.sampleTime = new long[size];
+        this.lat = new double[size];
+        this.lon = new double[size];
+        this.alt = new double[size];
+        this.heading = new double[size];
+        this.groundSpeed = new double[size];
+        this.verticalSpeed = new double[size];
+        this.nedX = new double[size];
+        this.nedY = new double[size];
+        this.nedZ = new double[size];
+        this.vx = new double[size];
+        this.vy = new double[size];
+        this.vz = new double[size];
+        this.dataAge = new double[size];
+        this.msgCount = new long[size];
+        this.active = new byte[size];
+    }
+
+    /**
+     * Convert a JSON batch (compatibility path) into a frame
+     * @throws IllegalArgumentException if an entry or its uavId is missing
+     */
+    public static TelemetryFrame fromBatch(UavTelemetryBatchDTO batch) {
+        int size = batch.getUavs() != null ? batch.getUavs().size() : 0;
+        TelemetryFrame frame = new TelemetryFrame(size);
+        frame.seq = batch.getMsgSeqNumber() != null ? batch.getMsgSeqNumber() : NO_SEQUENCE;
+        frame.timestamp = batch.getTimestamp() != null
+                ? batch.getTimestamp().toEpochMilli() : System.currentTimeMillis();
+        frame.homeLat = toDouble(batch.getHomeLat());
+        frame.homeLon = toDouble(batch.getHomeLon());
+        frame.homeAlt = toDouble(batch.getHomeAlt());
+        frame.numUavsTotal = batch.getNumUavsTotal() != null ? batch.getNumUavsTotal() : size;
+        frame.numUavsActive = batch.getNumUavsActive() != null ? batch.getNumUavsActive() : 0;
+        for (int i = 0; i < size; i++) {
+            UavTelemetryDTO dto = batch.getUavs().get(i);
+            if (dto == null || dto.getUavId() == null) {
+                throw new IllegalArgumentException("uavs[" + i + "].uavId is required");
+            }
+            frame.uavId[i] = dto.getUavId();
+            frame.sampleTime[i] = dto.getTimestamp() != null ? dto.getTimestamp().toEpochMilli() : frame.timestamp;
+            frame.lat[i] = toDouble(dto.getLat());
+            frame.lon[i] = toDouble(dto.getLon());
+            frame.alt[i] = toDouble(dto.getAlt());
+            frame.heading[i] = toDouble(dto.getHeading());
+            frame.groundSpeed[i] = toDouble(dto.getGroundSpeed());
+            frame.verticalSpeed[i] = toDouble(dto.getVerticalSpeed());
+            frame.nedX[i] = toDouble(dto.getNedX());
+            frame.nedY[i] = toDouble(dto.getNedY());
+            frame.nedZ[i] = toDouble(dto.getNedZ());
+            frame.vx[i] = toDouble(dto.getVx());
+            frame.vy[i] = toDouble(dto.getVy());
+            frame.vz[i] = toDouble(dto.getVz());
+            frame.dataAge[i] = toDouble(dto.getDataAge());
+            frame.msgCount[i] = dto.getMsgCount() != null ? dto.getMsgCount() : NO_MSG_COUNT;
+            frame.active[i] = dto.getIsActive() == null ? ACTIVE_UNKNOWN : (byte) (dto.getIsActive() ? 1 : 0);
+        }
+        return frame;
+    }
+
+    /**
+     * Build a frame from stored history rows (replay, export)
+     */
+    public static TelemetryFrame fromHistory(List<UavTelemetry> rows, long timestamp) {
+        TelemetryFrame frame = new TelemetryFrame(rows.size());
+        frame.timestamp = timestamp;
+        frame.numUavsTotal = rows.size();
+        for (int i = 0; i < rows.size(); i++) {
+            UavTelemetry row = rows.get(i);
+            frame.uavId[i] = row.getUavId();
+            frame.sampleTime[i] = row.getTimestamp().toEpochMilli();
+            frame.lat[i] = toDouble(row.getLat());
+            frame.lon[i] = toDouble(row.getLon());
+            frame.alt[i] = toDouble(row.getAlt());
+            frame.heading[i] = toDouble(row.getHeading());
+            frame.groundSpeed[i] = toDouble(row.getGroundSpeed());
+            frame.verticalSpeed[i] = toDouble(row.getVerticalSpeed());
+            frame.nedX[i] = toDouble(row.getNedX());
+            frame.nedY[i] = toDouble(row.getNedY());
+            frame.nedZ[i] = toDouble(row.getNedZ());
+            frame.vx[i] = toDouble(row.getVx());
+            frame.vy[i] = toDouble(row.getVy());
+            frame.vz[i] = toDouble(row.getVz());
+            frame.dataAge[i] = toDouble(row.getDataAge());
+            frame.msgCount[i] = row.getMsgCount() != null ? row.getMsgCount() : NO_MSG_COUNT;
+            frame.active[i] = row.getIsActive() == null ? ACTIVE_UNKNOWN : (byte) (row.getIsActive() ? 1 : 0);
+            if (frame.active[i] == 1) {
+                frame.numUavsActive++;
+            }
+        }
+        return frame;
+    }
+
+    /**
+     * Split the frame by uavId into shards (uavId mod shards); empty shards are null
+     * A frame whose rows all fall into one shard is returned as is, without copying.
+     */
+    public TelemetryFrame[] partition(int shards) {
+        TelemetryFrame[] parts = new TelemetryFrame[shards];
+        int[] shardOf = new int[size];
+        int[] counts = new int[shards];
+        for (int i = 0; i < size; i++) {
+            shardOf[i] = shardOf(uavId[i], shards);
+            counts[shardOf[i]]++;
+        }
+        for (int s = 0; s < shards; s++) {
+            if (counts[s] == size && size > 0) {
+                parts[s] = this;
+                return parts;
+            }
+            if (counts[s] > 0) {
+                parts[s] = new TelemetryFrame(counts[s]);
+                parts[s].copyHeader(this);
+            }
+        }
+        int[] next = new int[shards];
+        for (int i = 0; i < size; i++) {
+            int s = shardOf[i];
+            parts[s].copyRow(next[s]++, this, i);
+        }
+        return parts;
+    }
+    
+    /**
+     * Copy the given rows (in that order) into a new frame with this frame's header
+     * Returns this frame when rows selects every row in order.
+     */
+    public TelemetryFrame select(int[] rows, int count) {
+        if (count == size) {
+            boolean all = true;
+            for (int k = 0; k < count && all; k++) {
+                all = rows[k] == k;
+            }
+            if (all) {
+                return this;
+            }
+        }
+        TelemetryFrame part = new TelemetryFrame(count);
+        part.copyHeader(this);
+        for (int k = 0; k < count; k++) {
+            part.copyRow(k, this, rows[k]);
+        }
+        return part;
+    }
+    
+    /**
+     * Build a frame from one row of each source frame (row rows[k] of frames[k]), stamped with timestamp
+     */
+    public static TelemetryFrame gather(TelemetryFrame[] frames, int[] rows, int count, long timestamp) {
+        TelemetryFrame frame = new TelemetryFrame(count);
+        frame.timestamp = timestamp;
+        frame.numUavsTotal = count;
+        for (int k = 0; k < count; k++) {
+            frame.copyRow(k, frames[k], rows[k]);
+            if (frame.active[k] == 1) {
+                frame.numUavsActive++;
+            }
+        }
+        return frame;
+    }
+    
+    public static int shardOf(int uavId, int shards) {
+        return Math.floorMod(uavId, shards);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean hasSequence() {
+        return seq != NO_SEQUENCE;
+    }
+
+    public Instant timestampInstant() {
+        return Instant.ofEpochMilli(timestamp);
+    }
+
+    public Instant sampleInstant(int row) {
+        return Instant.ofEpochMilli(sampleTime[row]);
+    }
+
+    /**
+     * isActive of a row, null when the gateway did not report it
+     */
+    public Boolean isActive(int row) {
+        return active[row] == ACTIVE_UNKNOWN ? null : active[row] == 1;
+    }
+
+    /**
+     * msgCount of a row, null when the gateway did not report it
+     */
+    public Long msgCountOrNull(int row) {
+        return msgCount[row] == NO_MSG_COUNT ? null : msgCount[row];
+    }
+
+    public static Double toBoxed(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    private void copyHeader(TelemetryFrame from) {
+        sourceId = from.sourceId;
+        seq = from.seq;
+        timestamp = from.timestamp;
+        homeLat = from.homeLat;
+        homeLon = from.homeLon;
+        homeAlt = from.homeAlt;
+        numUavsTotal = from.numUavsTotal;
+        numUavsActive = from.numUavsActive;
+    }
+
+    /**
+     * Overwrite row row of this frame with row i of another frame
+     */
+    public void copyRow(int row, TelemetryFrame from, int i) {
+        uavId[row] = from.uavId[i];
+        sampleTime[row] = from.sampleTime[i];
+        lat[row] = from.lat[i];
+        lon[row] = from.lon[i];
+        alt[row] = from.alt[i];
+        heading[row] = from.heading[i];
+        groundSpeed[row] = from.groundSpeed[i];
+        verticalSpeed[row] = from.verticalSpeed[i];
+        nedX[row] = from.nedX[i];
+        nedY[row] = from.nedY[i];
+        nedZ[row] = from.nedZ[i];
+        vx[row] = from.vx[i];
+        vy[row] = from.vy[i];
+        vz[row] = from.vz[i];
+        dataAge[row] = from.dataAge[i];
+        msgCount[row] = from.msgCount[i];
+        active[row] = from.active[i];
+    }
+
+    private static double toDouble(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+}
@@ -0,0 +1,157 @@
+package com.ucs.telemetry;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Fixed-layout binary encoding of a telemetry frame (little-endian)
+ *
+ * <pre>
+ * Header (56 bytes)
+ *   0  int32   magic "UCST"
+ *   4  uint8   version (1)
+ *   5  uint8   flags (reserved)
+ *   6  uint16  header length
+ *   8  int64   msgSeqNumber (-1 = none)
+ *  16  int64   timestamp, epoch ms
+ *  24  float64 homeLat
+ *  32  float64 homeLon
+ *  40  float64 homeAlt
+ *  48  uint16  numUavsTotal
+ *  50  uint16  numUavsActive
+ *  52  uint16  record count
+ *  54  uint16  record length
+ * Record (80 bytes)
+ *   0  int32   uavId
+ *   4  int64   timestamp, epoch ms (0 = frame timestamp)
+ *  12  float64 lat
+ *  20  float64 lon
+ *  28  float32 alt, heading, groundSpeed, verticalSpeed, nedX, nedY, nedZ, vx, vy, vz, dataAge
+ *  72  uint32  msgCount (0xFFFFFFFF = absent)
+ *  76  uint8   flags (bit0 isActive, bit1 isActive reported)
+ *  77  3 bytes reserved
+ * </pre>
+ * Decoders honour the header and record lengths so fields can be appended in later versions.
+ * Absent float values are encoded as NaN.
+ */
+public final class TelemetryFrameCodec {
+
+    public static final int MAGIC = 0x54534355; // "UCST" read little-endian
+    public static final int VERSION = 1;
+    public static final int HEADER_LENGTH = 56;
+    public static final int RECORD_LENGTH = 80;
+
+    private static final long ABSENT_MSG_COUNT = 0xFFFFFFFFL;
+    private static final int FLAG_ACTIVE = 1;
+    private static final int FLAG_ACTIVE_KNOWN = 2;
+
+    private TelemetryFrameCodec() {
+    }
+
+    /**
+     * Decode a binary frame
+     * @throws IllegalArgumentException if the frame is malformed
+     */
+    public static TelemetryFrame decode(ByteBuffer buffer) {
+        ByteBuffer in = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (in.remaining() < HEADER_LENGTH) {
+            throw new IllegalArgumentException("Telemetry frame shorter than header: " + in.remaining() + " bytes");
+        }
+        if (in.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Bad telemetry frame magic");
+        }
+        int version = in.get(4) & 0xFF;
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported telemetry frame version " + version);
+        }
+        int headerLength = in.getShort(6) & 0xFFFF;
+        int count = in.getShort(52) & 0xFFFF;
+        int recordLength = in.getShort(54) & 0xFFFF;
+        if (headerLength < HEADER_LENGTH || recordLength < RECORD_LENGTH) {
+            throw new IllegalArgumentException("Telemetry frame header/record length too small");
+        }
+        long expected = headerLength + (long) count * recordLength;
+        if (in.remaining() < expected) {
+            throw new IllegalArgumentException("Telemetry frame truncated: expected " + expected
+                    + " bytes, got " + in.remaining());
+        }
+
+        TelemetryFrame frame = new TelemetryFrame(count);
+        frame.seq = in.getLong(8);
+        frame.timestamp = in.getLong(16);
+        frame.homeLat = in.getDouble(24);
+        frame.homeLon = in.getDouble(32);
+        frame.homeAlt = in.getDouble(40);
+        frame.numUavsTotal = in.getShort(48) & 0xFFFF;
+        frame.numUavsActive = in.getShort(50) & 0xFFFF;
+
+        for (int i = 0, pos = headerLength; i < count; i++, pos += recordLength) {
+            frame.uavId[i] = in.getInt(pos);
+            long sampleTime = in.getLong(pos + 4);
+            frame.sampleTime[i] = sampleTime != 0 ? sampleTime : frame.timestamp;
+            frame.lat[i] = in.getDouble(pos + 12);
+            frame.lon[i] = in.getDouble(pos + 20);
+            frame.alt[i] = in.getFloat(pos + 28);
+            frame.heading[i] = in.getFloat(pos + 32);
+            frame.groundSpeed[i] = in.getFloat(pos + 36);
+            frame.verticalSpeed[i] = in.getFloat(pos + 40);
+            frame.nedX[i] = in.getFloat(pos + 44);
+            frame.nedY[i] = in.getFloat(pos + 48);
+            frame.nedZ[i] = in.getFloat(pos + 52);
+            frame.vx[i] = in.getFloat(pos + 56);
+            frame.vy[i] = in.getFloat(pos + 60);
+            frame.vz[i] = in.getFloat(pos + 64);
+            frame.dataAge[i] = in.getFloat(pos + 68);
+            long msgCount = in.getInt(pos + 72) & 0xFFFFFFFFL;
+            frame.msgCount[i] = msgCount != ABSENT_MSG_COUNT ? msgCount : TelemetryFrame.NO_MSG_COUNT;
+            int flags = in.get(pos + 76);
+            frame.active[i] = (flags & FLAG_ACTIVE_KNOWN) == 0
+                    ? TelemetryFrame.ACTIVE_UNKNOWN
+                    : (byte) (flags & FLAG_ACTIVE);
+        }
+        return frame;
+    }
+
+    /**
+     * Encode a frame; used by load generators and gateway tooling
+     */
+    public static byte[] encode(TelemetryFrame frame) {
+        ByteBuffer out = ByteBuffer.allocate(HEADER_LENGTH + frame.size() * RECORD_LENGTH)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC)
+                .put((byte) VERSION)
+                .put((byte) 0)
+                .putShort((short) HEADER_LENGTH)
+                .putLong(frame.seq)
+                .putLong(frame.timestamp)
+                .putDouble(frame.homeLat)
+                .putDouble(frame.homeLon)
+                .putDouble(frame.homeAlt)
+                .putShort((short) frame.numUavsTotal)
+                .putShort((short) frame.numUavsActive)
+                .putShort((short) frame.size())
+                .putShort((short) RECORD_LENGTH);
+        for (int i = 0; i < frame.size(); i++) {
+            out.putInt(frame.uavId[i])
+                    .putLong(frame.sampleTime[i])
+                    .putDouble(frame.lat[i])
+                    .putDouble(frame.lon[i])
+                    .putFloat((float) frame.alt[i])
+                    .putFloat((float) frame.heading[i])
+                    .putFloat((float) frame.groundSpeed[i])
+                    .putFloat((float) frame.verticalSpeed[i])
+                    .putFloat((float) frame.nedX[i])
+                    .putFloat((float) frame.nedY[i])
+                    .putFloat((float) frame.nedZ[i])
+                    .putFloat((float) frame.vx[i])
+                    .putFloat((float) frame.vy[i])
+                    .putFloat((float) frame.vz[i])
+                    .putFloat((float) frame.dataAge[i])
+                    .putInt(frame.msgCount[i] != TelemetryFrame.NO_MSG_COUNT ? (int) frame.msgCount[i] : -1);
+            int flags = frame.active[i] == TelemetryFrame.ACTIVE_UNKNOWN
+                    ? 0 : FLAG_ACTIVE_KNOWN | (frame.active[i] == 1 ? FLAG_ACTIVE : 0);
+            out.put((byte) flags).put((byte) 0).put((byte) 0).put((byte) 0);
+        }
+        return out.array();
+    }
+}
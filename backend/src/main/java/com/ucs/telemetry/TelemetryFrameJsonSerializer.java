@@ -0,0 +1,81 @@
+package com.ucs.telemetry;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Writes a TelemetryFrame in the UavTelemetryBatchDTO JSON shape expected by /topic/telemetry subscribers
+ */
+public class TelemetryFrameJsonSerializer extends StdSerializer<TelemetryFrame> {
+
+    public TelemetryFrameJsonSerializer() {
+        super(TelemetryFrame.class);
+    }
+
+    @Override
+    public void serialize(TelemetryFrame frame, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("timestamp", Instant.ofEpochMilli(frame.timestamp).toString());
+        if (frame.hasSequence()) {
+            gen.writeNumberField("msgSeqNumber", frame.seq);
+        } else {
+            gen.writeNullField("msgSeqNumber");
+        }
+        writeDouble(gen, "homeLat", frame.homeLat);
+        writeDouble(gen, "homeLon", frame.homeLon);
+        writeDouble(gen, "homeAlt", frame.homeAlt);
+        gen.writeNumberField("numUavsTotal", frame.numUavsTotal);
+        gen.writeNumberField("numUavsActive", frame.numUavsActive);
+        gen.writeArrayFieldStart("uavs");
+        for (int i = 0; i < frame.size(); i++) {
+            writeSample(gen, frame, i);
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    /**
+     * One UAV sample in the UavTelemetryDTO JSON shape
+     */
+    public static void writeSample(JsonGenerator gen, TelemetryFrame frame, int i) throws IOException {
+        gen.writeStartObject();
+        gen.writeNumberField("uavId", frame.uavId[i]);
+        gen.writeStringField("timestamp", Instant.ofEpochMilli(frame.sampleTime[i]).toString());
+        writeDouble(gen, "lat", frame.lat[i]);
+        writeDouble(gen, "lon", frame.lon[i]);
+        writeDouble(gen, "alt", frame.alt[i]);
+        writeDouble(gen, "heading", frame.heading[i]);
+        writeDouble(gen, "groundSpeed", frame.groundSpeed[i]);
+        writeDouble(gen, "verticalSpeed", frame.verticalSpeed[i]);
+        writeDouble(gen, "nedX", frame.nedX[i]);
+        writeDouble(gen, "nedY", frame.nedY[i]);
+        writeDouble(gen, "nedZ", frame.nedZ[i]);
+        writeDouble(gen, "vx", frame.vx[i]);
+        writeDouble(gen, "vy", frame.vy[i]);
+        writeDouble(gen, "vz", frame.vz[i]);
+        writeDouble(gen, "dataAge", frame.dataAge[i]);
+        if (frame.msgCount[i] != TelemetryFrame.NO_MSG_COUNT) {
+            gen.writeNumberField("msgCount", frame.msgCount[i]);
+        } else {
+            gen.writeNullField("msgCount");
+        }
+        if (frame.active[i] != TelemetryFrame.ACTIVE_UNKNOWN) {
+            gen.writeBooleanField("isActive", frame.active[i] == 1);
+        } else {
+            gen.writeNullField("isActive");
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeDouble(JsonGenerator gen, String name, double value) throws IOException {
+        if (Double.isNaN(value)) {
+            gen.writeNullField(name);
+        } else {
+            gen.writeNumberField(name, value);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.ucs.telemetry;
+
+import com.ucs.entity.UavTelemetryRollup;
+import com.ucs.repository.UavTelemetryRollupWriter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Incrementally maintained telemetry rollups (uav_telemetry_rollup)
+ *
+ * Every ingested sample, before history decimation, is folded into the 1 s, 1 min and 1 h bucket
+ * of its UAV. Only the partial aggregates of buckets touched since the last flush are kept in
+ * memory; the background flush merges them into the stored buckets, so open buckets, late
+ * samples and restarts are all handled by the same additive merge.
+ */
+@Slf4j
+@Component
+public class TelemetryRollupStore {
+
+    /** Supported bucket widths in seconds, finest first */
+    public static final int[] RESOLUTIONS = {1, 60, 3600};
+
+    private final UavTelemetryRollupWriter rollupWriter;
+
+    @Value("${telemetry.rollup.enabled:true}")
+    private boolean enabled;
+
+    private final ConcurrentHashMap<Integer, UavRollupState> states = new ConcurrentHashMap<>();
+
+    public TelemetryRollupStore(UavTelemetryRollupWriter rollupWriter) {
+        this.rollupWriter = rollupWriter;
+    }
+
+    /**
+     * Fold every sample with a position into the rollup buckets of its UAV
+     */
+    public void update(TelemetryFrame frame) {
+        if (!enabled) {
+            return;
+        }
+        for (int i = 0; i < frame.size(); i++) {
+            if (Double.isNaN(frame.lat[i]) || Double.isNaN(frame.lon[i]) || Double.isNaN(frame.alt[i])) {
+                continue;
+            }
+            states.computeIfAbsent(frame.uavId[i], UavRollupState::new).add(frame, i);
+        }
+    }
+
+    /**
+     * Merge the pending partial aggregates into uav_telemetry_rollup
+     */
+    @Scheduled(fixedDelayString = "${telemetry.rollup.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        List<Bucket> pending = new ArrayList<>();
+        for (UavRollupState state : states.values()) {
+            state.drainTo(pending);
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<UavTelemetryRollup> deltas = new ArrayList<>(pending.size());
+        for (Bucket bucket : pending) {
+            deltas.add(bucket.toRollup());
+        }
+        try {
+            rollupWriter.mergeAll(deltas);
+            log.debug("Flushed {} telemetry rollup buckets", deltas.size());
+        } catch (Exception e) {
+            // Put the deltas back so the next flush retries them together with newer samples
+            for (Bucket bucket : pending) {
+                states.computeIfAbsent(bucket.uavId, UavRollupState::new).restore(bucket);
+            }
+            log.error("Failed to flush {} telemetry rollup buckets, will retry", deltas.size(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Pending buckets of one UAV; usually one open bucket per resolution
+     */
+    private static final class UavRollupState {
+
+        private final int uavId;
+        private List<Bucket> buckets = new ArrayList<>();
+
+        UavRollupState(Integer uavId) {
+            this.uavId = uavId;
+        }
+
+        synchronized void add(TelemetryFrame frame, int i) {
+            long time = frame.sampleTime[i];
+            for (int resolution : RESOLUTIONS) {
+                long widthMillis = resolution * 1000L;
+                find(resolution, Math.floorDiv(time, widthMillis) * widthMillis).add(frame, i);
+            }
+        }
+
+        synchronized void drainTo(List<Bucket> pending) {
+            if (!buckets.isEmpty()) {
+                pending.addAll(buckets);
+                buckets = new ArrayList<>();
+            }
+        }
+
+        synchronized void restore(Bucket bucket) {
+            Bucket current = lookup(bucket.resolution, bucket.start);
+            if (current == null) {
+                buckets.add(bucket);
+            } else {
+                current.merge(bucket);
+            }
+        }
+
+        private Bucket find(int resolution, long start) {
+            Bucket bucket = lookup(resolution, start);
+            if (bucket == null) {
+                bucket = new Bucket(uavId, resolution, start);
+                buckets.add(bucket);
+            }
+            return bucket;
+        }
+
+        private Bucket lookup(int resolution, long start) {
+            // Samples arrive mostly in order, so the match is near the end
+            for (int k = buckets.size() - 1; k >= 0; k--) {
+                Bucket bucket = buckets.get(k);
+                if (bucket.resolution == resolution && bucket.start == start) {
+                    return bucket;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Partial aggregate of one bucket in primitive form
+     */
+    private static final class Bucket {
+
+        private final int uavId;
+        private final int resolution;
+        private final long start;
+
+        private long count;
+        private long firstTime = Long.MAX_VALUE;
+        private double firstLat;
+        private double firstLon;
+        private double firstAlt;
+        private long lastTime = Long.MIN_VALUE;
+        private double lastLat;
+        private double lastLon;
+        private double lastAlt;
+        private double minLat = Double.POSITIVE_INFINITY;
+        private double maxLat = Double.NEGATIVE_INFINITY;
+        private double minLon = Double.POSITIVE_INFINITY;
+        private double maxLon = Double.NEGATIVE_INFINITY;
+        private double sumLat;
+        private double sumLon;
+        private double minAlt = Double.POSITIVE_INFINITY;
+        private double maxAlt = Double.NEGATIVE_INFINITY;
+        private double sumAlt;
+        private long speedCount;
+        private double minSpeed = Double.POSITIVE_INFINITY;
+        private double maxSpeed = Double.NEGATIVE_INFINITY;
+        private double sumSpeed;
+
+        Bucket(int uavId, int resolution, long start) {
+            this.uavId = uavId;
+            this.resolution = resolution;
+            this.start = start;
+        }
+
+        void add(TelemetryFrame frame, int i) {
+            long time = frame.sampleTime[i];
+            double lat = frame.lat[i];
+            double lon = frame.lon[i];
+            double alt = frame.alt[i];
+            count++;
+            if (time < firstTime) {
+                firstTime = time;
+                firstLat = lat;
+                firstLon = lon;
+                firstAlt = alt;
+            }
+            if (time >= lastTime) {
+                lastTime = time;
+                lastLat = lat;
+                lastLon = lon;
+                lastAlt = alt;
+            }
+            minLat = Math.min(minLat, lat);
+            maxLat = Math.max(maxLat, lat);
+            minLon = Math.min(minLon, lon);
+            maxLon = Math.max(maxLon, lon);
+            sumLat += lat;
+            sumLon += lon;
+            minAlt = Math.min(minAlt, alt);
+            maxAlt = Math.max(maxAlt, alt);
+            sumAlt += alt;
+            double speed = frame.groundSpeed[i];
+            if (!Double.isNaN(speed)) {
+                speedCount++;
+                minSpeed = Math.min(minSpeed, speed);
+                maxSpeed = Math.max(maxSpeed, speed);
+                sumSpeed += speed;
+            }
+        }
+
+        void merge(Bucket other) {
+            count += other.count;
+            if (other.firstTime < firstTime) {
+                firstTime = other.firstTime;
+                firstLat = other.firstLat;
+                firstLon = other.firstLon;
+                firstAlt = other.firstAlt;
+            }
+            if (other.lastTime >= lastTime) {
+                lastTime = other.lastTime;
+                lastLat = other.lastLat;
+                lastLon = other.lastLon;
+                lastAlt = other.lastAlt;
+            }
+            minLat = Math.min(minLat, other.minLat);
+            maxLat = Math.max(maxLat, other.maxLat);
+            minLon = Math.min(minLon, other.minLon);
+            maxLon = Math.max(maxLon, other.maxLon);
+            sumLat += other.sumLat;
+            sumLon += other.sumLon;
+            minAlt = Math.min(minAlt, other.minAlt);
+            maxAlt = Math.max(maxAlt, other.maxAlt);
+            sumAlt += other.sumAlt;
+            speedCount += other.speedCount;
+            minSpeed = Math.min(minSpeed, other.minSpeed);
+            maxSpeed = Math.max(maxSpeed, other.maxSpeed);
+            sumSpeed += other.sumSpeed;
+        }
+
+        UavTelemetryRollup toRollup() {
+            UavTelemetryRollup rollup = new UavTelemetryRollup();
+            rollup.setUavId(uavId);
+            rollup.setResolution(resolution);
+            rollup.setBucketStart(Instant.ofEpochMilli(start));
+            rollup.setSampleCount(count);
+            rollup.setFirstTime(Instant.ofEpochMilli(firstTime));
+            rollup.setFirstLat(firstLat);
+            rollup.setFirstLon(firstLon);
+            rollup.setFirstAlt(firstAlt);
+            rollup.setLastTime(Instant.ofEpochMilli(lastTime));
+            rollup.setLastLat(lastLat);
+            rollup.setLastLon(lastLon);
+            rollup.setLastAlt(lastAlt);
+            rollup.setMinLat(minLat);
+            rollup.setMaxLat(maxLat);
+            rollup.setMinLon(minLon);
+            rollup.setMaxLon(maxLon);
+            rollup.setAvgLat(sumLat / count);
+            rollup.setAvgLon(sumLon / count);
+            rollup.setMinAlt(minAlt);
+            rollup.setMaxAlt(maxAlt);
+            rollup.setAvgAlt(sumAlt / count);
+            rollup.setSpeedCount(speedCount);
+            if (speedCount > 0) {
+                rollup.setMinSpeed(minSpeed);
+                rollup.setMaxSpeed(maxSpeed);
+                rollup.setAvgSpeed(sumSpeed / speedCount);
+            }
+            return rollup;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.ucs.telemetry;
+
+import com.ucs.entity.UavTelemetry;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Streaming trajectory simplification for path replay
+ *
+ * Rows are pushed in timestamp order (straight from the history cursor) and only the kept rows
+ * are retained, so memory is bounded by the output size plus one working window.
+ * - douglasPeucker: 3D Douglas-Peucker on lat/lon/alt with a tolerance in metres, run over
+ *   consecutive windows that share their boundary point (error stays within the tolerance).
+ * - timeBuckets: the requested time range is cut into equal buckets and each bucket keeps its
+ *   lowest, highest and last sample (plus the very first sample), at most maxPoints rows.
+ */
+public abstract class TrajectorySimplifier implements Consumer<UavTelemetry> {
+
+    private static final double EARTH_RADIUS_M = 6_371_000.0;
+
+    protected final List<UavTelemetry> kept = new ArrayList<>();
+
+    public static TrajectorySimplifier douglasPeucker(double toleranceM, int windowSize) {
+        return new DouglasPeucker(toleranceM, Math.max(3, windowSize));
+    }
+
+    public static TrajectorySimplifier timeBuckets(Instant startTime, Instant endTime, int maxPoints) {
+        return new TimeBuckets(startTime, endTime, maxPoints);
+    }
+
+    /**
+     * Flush pending rows and return the simplified trajectory in timestamp order
+     */
+    public List<UavTelemetry> finish() {
+        flush();
+        return kept;
+    }
+
+    protected abstract void flush();
+
+    private static final class DouglasPeucker extends TrajectorySimplifier {
+
+        private final double toleranceM;
+        private final int windowSize;
+        private final List<UavTelemetry> window = new ArrayList<>();
+
+        DouglasPeucker(double toleranceM, int windowSize) {
+            this.toleranceM = toleranceM;
+            this.windowSize = windowSize;
+        }
+
+        @Override
+        public void accept(UavTelemetry row) {
+            window.add(row);
+            if (window.size() == windowSize) {
+                simplifyWindow(false);
+                UavTelemetry boundary = window.get(window.size() - 1);
+                window.clear();
+                window.add(boundary);
+            }
+        }
+
+        @Override
+        protected void flush() {
+            if (!window.isEmpty()) {
+                simplifyWindow(true);
+                window.clear();
+            }
+        }
+
+        /**
+         * Keep the window's significant points; the last one is only emitted with the final window
+         * because it starts the next window
+         */
+        private void simplifyWindow(boolean includeLast) {
+            int n = window.size();
+            double[] x = new double[n];
+            double[] y = new double[n];
+            double[] z = new double[n];
+            UavTelemetry origin = window.get(0);
+            double cosLat = Math.cos(Math.toRadians(origin.getLat()));
+            for (int i = 0; i < n; i++) {
+                UavTelemetry row = window.get(i);
+                x[i] = Math.toRadians(row.getLon() - origin.getLon()) * cosLat * EARTH_RADIUS_M;
+                y[i] = Math.toRadians(row.getLat() - origin.getLat()) * EARTH_RADIUS_M;
+                z[i] = row.getAlt() - origin.getAlt();
+            }
+
+            boolean[] keep = new boolean[n];
+            keep[0] = true;
+            keep[n - 1] = true;
+            int[] stack = new int[2 * n];
+            int top = 0;
+            stack[top++] = 0;
+            stack[top++] = n - 1;
+            while (top > 0) {
+                int last = stack[--top];
+                int first = stack[--top];
+                int farthest = -1;
+                double maxDistance = toleranceM;
+                for (int i = first + 1; i < last; i++) {
+                    double distance = segmentDistance(x, y, z, i, first, last);
+                    if (distance > maxDistance) {
+                        maxDistance = distance;
+                        farthest = i;
+                    }
+                }
+                if (farthest >= 0) {
+                    keep[farthest] = true;
+                    stack[top++] = first;
+                    stack[top++] = farthest;
+                    stack[top++] = farthest;
+                    stack[top++] = last;
+                }
+            }
+
+            int end = includeLast ? n : n - 1;
+            for (int i = 0; i < end; i++) {
+                if (keep[i]) {
+                    kept.add(window.get(i));
+                }
+            }
+        }
+
+        private static double segmentDistance(double[] x, double[] y, double[] z, int p, int a, int b) {
+            double dx = x[b] - x[a];
+            double dy = y[b] - y[a];
+            double dz = z[b] - z[a];
+            double lengthSquared = dx * dx + dy * dy + dz * dz;
+            double t = lengthSquared > 0
+                    ? ((x[p] - x[a]) * dx + (y[p] - y[a]) * dy + (z[p] - z[a]) * dz) / lengthSquared
+                    : 0;
+            t = Math.max(0, Math.min(1, t));
+            double ex = x[a] + t * dx - x[p];
+            double ey = y[a] + t * dy - y[p];
+            double ez = z[a] + t * dz - z[p];
+            return Math.sqrt(ex * ex + ey * ey + ez * ez);
+        }
+    }
+
+    private static final class TimeBuckets extends TrajectorySimplifier {
+
+        private final long startMillis;
+        private final long spanMillis;
+        private final int buckets;
+
+        private long bucket = -1;
+        private boolean first = true;
+        private UavTelemetry lowest;
+        private UavTelemetry highest;
+        private UavTelemetry last;
+
+        TimeBuckets(Instant startTime, Instant endTime, int maxPoints) {
+            this.startMillis = startTime.toEpochMilli();
+            this.spanMillis = Math.max(1, endTime.toEpochMilli() - startMillis + 1);
+            // Up to three rows per bucket plus the first sample
+            this.buckets = Math.max(1, (maxPoints - 1) / 3);
+        }
+
+        @Override
+        public void accept(UavTelemetry row) {
+            if (first) {
+                kept.add(row);
+                first = false;
+                return;
+            }
+            long index = (row.getTimestamp().toEpochMilli() - startMillis) * buckets / spanMillis;
+            if (index != bucket) {
+                flush();
+                bucket = index;
+            }
+            if (lowest == null || row.getAlt() < lowest.getAlt()) {
+                lowest = row;
+            }
+            if (highest == null || row.getAlt() > highest.getAlt()) {
+                highest = row;
+            }
+            last = row;
+        }
+
+        @Override
+        protected void flush() {
+            if (last == null) {
+                return;
+            }
+            // Emit the bucket's rows in timestamp order, each at most once
+            List<UavTelemetry> rows = new ArrayList<>(3);
+            for (UavTelemetry row : new UavTelemetry[] {lowest, highest, last}) {
+                if (!rows.contains(row)) {
+                    rows.add(row);
+                }
+            }
+            rows.sort(Comparator.comparing(UavTelemetry::getTimestamp));
+            kept.addAll(rows);
+            lowest = null;
+            highest = null;
+            last = null;
+        }
+    }
+}
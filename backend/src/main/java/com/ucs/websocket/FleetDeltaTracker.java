@@ -0,0 +1,150 @@
+package com.ucs.websocket;
+
+import com.ucs.dto.DroneStatusDTO;
+import com.ucs.dto.FleetUpdateDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Turns the periodic fleet status into versioned snapshot / delta messages
+ *
+ * Keeps the fleet state as last published; each tick compares the current status field by field
+ * and publishes only what differs, so idle UAVs cost nothing. Every published message advances seq,
+ * and a full snapshot is republished every snapshot-interval-ms so clients also recover without asking.
+ * snapshot() returns the published state, so the deltas that follow apply to it exactly.
+ */
+@Component
+public class FleetDeltaTracker {
+
+    private static final List<Field> FIELDS = List.of(
+            new Field("droneSn", DroneStatusDTO::getDroneSn),
+            new Field("lat", DroneStatusDTO::getLat),
+            new Field("lng", DroneStatusDTO::getLng),
+            new Field("altitude", DroneStatusDTO::getAltitude),
+            new Field("battery", DroneStatusDTO::getBattery),
+            new Field("hardwareStatus", DroneStatusDTO::getHardwareStatus),
+            new Field("flightStatus", DroneStatusDTO::getFlightStatus),
+            new Field("taskStatus", DroneStatusDTO::getTaskStatus),
+            new Field("color", DroneStatusDTO::getColor),
+            new Field("model", DroneStatusDTO::getModel),
+            new Field("owner", DroneStatusDTO::getOwner),
+            new Field("velocity", DroneStatusDTO::getVelocity),
+            new Field("heading", DroneStatusDTO::getHeading),
+            new Field("networkType", DroneStatusDTO::getNetworkType),
+            new Field("signalStrength", DroneStatusDTO::getSignalStrength));
+
+    @Value("${websocket.drones.snapshot-interval-ms:60000}")
+    private long snapshotIntervalMs;
+
+    private final long epoch = System.currentTimeMillis();
+    private final Map<String, DroneStatusDTO> published = new LinkedHashMap<>();
+    private long seq;
+    private long lastSnapshotMillis;
+
+    /**
+     * Record the current fleet status and return the message to publish, or null when nothing changed
+     */
+    public synchronized FleetUpdateDTO next(List<DroneStatusDTO> drones) {
+        long now = System.currentTimeMillis();
+        if (now - lastSnapshotMillis >= snapshotIntervalMs) {
+            published.clear();
+            for (DroneStatusDTO drone : drones) {
+                published.put(drone.getUavId(), drone);
+            }
+            seq++;
+            lastSnapshotMillis = now;
+            return buildSnapshot(now);
+        }
+
+        List<Map<String, Object>> changed = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (DroneStatusDTO drone : drones) {
+            seen.add(drone.getUavId());
+            DroneStatusDTO previous = published.put(drone.getUavId(), drone);
+            Map<String, Object> fields = diff(previous, drone);
+            if (fields != null) {
+                changed.add(fields);
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        published.keySet().removeIf(uavId -> !seen.contains(uavId) && removed.add(uavId));
+        if (changed.isEmpty() && removed.isEmpty()) {
+            return null;
+        }
+
+        FleetUpdateDTO update = newUpdate("delta", ++seq, now);
+        update.setChanged(changed);
+        if (!removed.isEmpty()) {
+            update.setRemoved(removed);
+        }
+        return update;
+    }
+
+    /**
+     * The fleet as last published, for clients that join or lost track of seq
+     */
+    public synchronized FleetUpdateDTO snapshot() {
+        return buildSnapshot(System.currentTimeMillis());
+    }
+
+    private FleetUpdateDTO buildSnapshot(long now) {
+        FleetUpdateDTO update = newUpdate("snapshot", seq, now);
+        update.setDrones(new ArrayList<>(published.values()));
+        return update;
+    }
+
+    private FleetUpdateDTO newUpdate(String type, long seq, long now) {
+        FleetUpdateDTO update = new FleetUpdateDTO();
+        update.setType(type);
+        update.setEpoch(epoch);
+        update.setSeq(seq);
+        update.setTimestamp(now);
+        return update;
+    }
+
+    /**
+     * uavId plus the fields that differ from the previous status (all non-null ones for a new UAV),
+     * or null when nothing changed
+     */
+    private static Map<String, Object> diff(DroneStatusDTO previous, DroneStatusDTO current) {
+        Map<String, Object> fields = null;
+        for (Field field : FIELDS) {
+            Object value = field.getter.apply(current);
+            boolean changed = previous != null
+                    ? !Objects.equals(value, field.getter.apply(previous))
+                    : value != null;
+            if (changed) {
+                if (fields == null) {
+                    fields = new LinkedHashMap<>();
+                    fields.put("uavId", current.getUavId());
+                }
+                fields.put(field.name, value);
+            }
+        }
+        if (fields == null && previous == null) {
+            fields = new LinkedHashMap<>();
+            fields.put("uavId", current.getUavId());
+        }
+        return fields;
+    }
+
+    private static final class Field {
+
+        private final String name;
+        private final Function<DroneStatusDTO, Object> getter;
+
+        Field(String name, Function<DroneStatusDTO, Object> getter) {
+            this.name = name;
+            this.getter = getter;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.ucs.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+
+/**
+ * Authenticates a gateway once when it opens the streaming ingest connection
+ * The token is read from the X-Gateway-Token header or the token query parameter and compared
+ * with telemetry.ingest.gateway-token (no check when that is empty, as for the HTTP endpoints).
+ * The gateway id (X-Gateway-Id header or gatewayId parameter) is kept as a session attribute.
+ */
+@Slf4j
+@Component
+public class GatewayHandshakeInterceptor implements HandshakeInterceptor {
+    
+    public static final String GATEWAY_ID_ATTRIBUTE = "gatewayId";
+    
+    @Value("${telemetry.ingest.gateway-token:}")
+    private String gatewayToken;
+    
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        MultiValueMap<String, String> params = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams();
+        
+        if (!gatewayToken.isEmpty()) {
+            String token = firstNonBlank(request.getHeaders().getFirst("X-Gateway-Token"), params.getFirst("token"));
+            if (!gatewayToken.equals(token)) {
+                log.warn("Rejected telemetry ingest connection from {}: bad gateway token", request.getRemoteAddress());
+                response.setStatusCode(HttpStatus.UNAUTHORIZED);
+                return false;
+            }
+        }
+        
+        String gatewayId = firstNonBlank(request.getHeaders().getFirst("X-Gateway-Id"), params.getFirst("gatewayId"));
+        if (gatewayId == null && request.getRemoteAddress() != null) {
+            gatewayId = request.getRemoteAddress().getAddress().getHostAddress();
+        }
+        attributes.put(GATEWAY_ID_ATTRIBUTE, gatewayId != null ? gatewayId : "unknown");
+        return true;
+    }
+    
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+    
+    private static String firstNonBlank(String first, String second) {
+        if (first != null && !first.isBlank()) {
+            return first;
+        }
+        return second != null && !second.isBlank() ? second : null;
+    }
+}
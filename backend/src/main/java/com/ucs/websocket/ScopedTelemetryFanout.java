@@ -0,0 +1,238 @@
+package com.ucs.websocket;
+
+import com.ucs.security.UserPrincipal;
+import com.ucs.telemetry.TelemetryFrame;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.AbstractSubProtocolEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+
+/**
+ * Routes each ingested frame once to the scoped telemetry destinations
+ *
+ * - /topic/uav/{uavId}: the rows of one UAV
+ * - /topic/team/{teamId}/telemetry: the rows of the UAVs assigned to a team
+ * - /user/queue/fleet: the rows the user is entitled to (see TelemetryAccessPolicy)
+ * Subscriptions are counted from the session events, so a frame is split and serialized only
+ * for destinations that currently have subscribers. Messages keep the /topic/telemetry shape and
+ * go through SharedPayloadBroadcaster, which conflates them for slow sessions.
+ */
+@Component
+public class ScopedTelemetryFanout {
+
+    private static final String FLEET_DESTINATION = "/user/queue/fleet";
+
+    private final SharedPayloadBroadcaster broadcaster;
+    private final TelemetryAccessPolicy accessPolicy;
+
+    /** sessionId -> subscriptionId -> what it subscribed to */
+    private final Map<String, Map<String, Subscription>> sessions = new HashMap<>();
+    private final ConcurrentHashMap<Integer, Integer> uavSubscriptions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Integer> teamSubscriptions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, FleetSubscriber> fleetSubscribers = new ConcurrentHashMap<>();
+
+    public ScopedTelemetryFanout(SharedPayloadBroadcaster broadcaster, TelemetryAccessPolicy accessPolicy) {
+        this.broadcaster = broadcaster;
+        this.accessPolicy = accessPolicy;
+    }
+
+    /**
+     * Send the frame's rows to every scoped destination that has subscribers
+     */
+    public void publish(TelemetryFrame frame) {
+        if (uavSubscriptions.isEmpty() && teamSubscriptions.isEmpty() && fleetSubscribers.isEmpty()) {
+            return;
+        }
+        Map<Integer, RowSet> byUav = new HashMap<>();
+        Map<Long, RowSet> byTeam = new HashMap<>();
+        Map<Long, RowSet> byUser = new HashMap<>();
+        Map<Long, List<Long>> leadersByTeam = new HashMap<>();
+        List<Long> seeAll = new ArrayList<>();
+        for (FleetSubscriber subscriber : fleetSubscribers.values()) {
+            if (subscriber.scope.all) {
+                seeAll.add(subscriber.scope.userId);
+            } else if (subscriber.scope.teamId != null) {
+                leadersByTeam.computeIfAbsent(subscriber.scope.teamId, t -> new ArrayList<>()).add(subscriber.scope.userId);
+            }
+        }
+
+        int size = frame.size();
+        for (int i = 0; i < size; i++) {
+            int uavId = frame.uavId[i];
+            if (uavSubscriptions.containsKey(uavId)) {
+                byUav.computeIfAbsent(uavId, id -> new RowSet()).add(i);
+            }
+            Long owner = accessPolicy.ownerOf(uavId);
+            FleetSubscriber ownerSubscriber = owner != null ? fleetSubscribers.get(owner) : null;
+            if (ownerSubscriber != null && !ownerSubscriber.scope.all) {
+                byUser.computeIfAbsent(owner, id -> new RowSet()).add(i);
+            }
+            long[] teams = accessPolicy.teamsOf(uavId);
+            if (teams != null) {
+                for (long teamId : teams) {
+                    if (teamSubscriptions.containsKey(teamId)) {
+                        byTeam.computeIfAbsent(teamId, id -> new RowSet()).add(i);
+                    }
+                    for (Long leader : leadersByTeam.getOrDefault(teamId, List.of())) {
+                        byUser.computeIfAbsent(leader, id -> new RowSet()).add(i);
+                    }
+                }
+            }
+        }
+
+        byUav.forEach((uavId, rows) ->
+                broadcaster.broadcastTelemetry("/topic/uav/" + uavId, frame.select(rows.rows, rows.count)));
+        byTeam.forEach((teamId, rows) ->
+                broadcaster.broadcastTelemetry("/topic/team/" + teamId + "/telemetry", frame.select(rows.rows, rows.count)));
+        byUser.forEach((userId, rows) ->
+                broadcaster.broadcastTelemetryToUser(userId.toString(), "/queue/fleet", frame.select(rows.rows, rows.count)));
+        for (Long userId : seeAll) {
+            broadcaster.broadcastTelemetryToUser(userId.toString(), "/queue/fleet", frame);
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        if (destination == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        Subscription subscription = null;
+        Matcher uav = TelemetryAccessPolicy.UAV_TOPIC.matcher(destination);
+        Matcher team = TelemetryAccessPolicy.TEAM_TOPIC.matcher(destination);
+        UserPrincipal user = TelemetryAccessPolicy.userOf(event.getUser());
+        if (uav.matches()) {
+            subscription = new Subscription(Integer.valueOf(uav.group(1)), null, null);
+        } else if (team.matches()) {
+            subscription = new Subscription(null, Long.valueOf(team.group(1)), null);
+        } else if (destination.equals(FLEET_DESTINATION) && user != null) {
+            subscription = new Subscription(null, null, accessPolicy.scopeOf(user));
+        }
+        if (subscription != null) {
+            add(accessor.getSessionId(), accessor.getSubscriptionId(), subscription);
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        remove(event, accessor.getSubscriptionId());
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        remove(event, null);
+    }
+
+    private synchronized void add(String sessionId, String subscriptionId, Subscription subscription) {
+        Subscription previous = sessions.computeIfAbsent(sessionId, id -> new HashMap<>()).put(subscriptionId, subscription);
+        if (previous != null) {
+            release(previous);
+        }
+        if (subscription.uavId != null) {
+            uavSubscriptions.merge(subscription.uavId, 1, Integer::sum);
+        } else if (subscription.teamId != null) {
+            teamSubscriptions.merge(subscription.teamId, 1, Integer::sum);
+        } else {
+            fleetSubscribers.compute(subscription.fleet.userId, (id, subscriber) -> subscriber == null
+                    ? new FleetSubscriber(subscription.fleet, 1)
+                    : new FleetSubscriber(subscription.fleet, subscriber.count + 1));
+        }
+    }
+
+    /**
+     * Drop one subscription of the event's session, or all of them when subscriptionId is null
+     */
+    private synchronized void remove(AbstractSubProtocolEvent event, String subscriptionId) {
+        String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
+        Map<String, Subscription> subscriptions = sessions.get(sessionId);
+        if (subscriptions == null) {
+            return;
+        }
+        if (subscriptionId == null) {
+            subscriptions.values().forEach(this::release);
+            sessions.remove(sessionId);
+            return;
+        }
+        Subscription subscription = subscriptions.remove(subscriptionId);
+        if (subscription != null) {
+            release(subscription);
+        }
+        if (subscriptions.isEmpty()) {
+            sessions.remove(sessionId);
+        }
+    }
+
+    private void release(Subscription subscription) {
+        if (subscription.uavId != null) {
+            uavSubscriptions.computeIfPresent(subscription.uavId, (id, count) -> count > 1 ? count - 1 : null);
+        } else if (subscription.teamId != null) {
+            teamSubscriptions.computeIfPresent(subscription.teamId, (id, count) -> count > 1 ? count - 1 : null);
+        } else {
+            fleetSubscribers.computeIfPresent(subscription.fleet.userId, (id, subscriber) -> subscriber.count > 1
+                    ? new FleetSubscriber(subscriber.scope, subscriber.count - 1)
+                    : null);
+        }
+    }
+
+    /**
+     * One scoped subscription: exactly one of uavId, teamId and fleet is set
+     */
+    private static final class Subscription {
+
+        final Integer uavId;
+        final Long teamId;
+        final TelemetryAccessPolicy.FleetScope fleet;
+
+        Subscription(Integer uavId, Long teamId, TelemetryAccessPolicy.FleetScope fleet) {
+            this.uavId = uavId;
+            this.teamId = teamId;
+            this.fleet = fleet;
+        }
+    }
+
+    /**
+     * A user's /user/queue/fleet entitlement and the number of their sessions subscribed to it
+     */
+    private static final class FleetSubscriber {
+
+        final TelemetryAccessPolicy.FleetScope scope;
+        final int count;
+
+        FleetSubscriber(TelemetryAccessPolicy.FleetScope scope, int count) {
+            this.scope = scope;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Ascending row indexes of a frame; a row added twice in a row is kept once
+     */
+    private static final class RowSet {
+
+        int[] rows = new int[8];
+        int count;
+
+        void add(int row) {
+            if (count > 0 && rows[count - 1] == row) {
+                return;
+            }
+            if (count == rows.length) {
+                rows = Arrays.copyOf(rows, count * 2);
+            }
+            rows[count++] = row;
+        }
+    }
+}
@@ -0,0 +1,589 @@
+package com.ucs.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ucs.telemetry.TelemetryFrame;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Broadcast path for high-rate /topic destinations that encodes each payload once for all subscribers
+ *
+ * The simple broker copies a message per subscriber and the STOMP handler re-encodes and re-decodes
+ * the payload for each session. Here the payload is serialized once into a per-thread reusable buffer
+ * (same ObjectMapper as the broker's converter), one STOMP MESSAGE frame is built from those bytes per
+ * distinct subscription id (clients usually share ids such as "sub-0"), and the frame's bytes are
+ * written to every subscribed session as a binary WebSocket message, so nothing is encoded per session
+ * (SockJS sessions, which cannot carry binary, get one shared text copy instead). Sessions are reached through the ConcurrentWebSocketSessionDecorator installed
+ * by decorate(), which every other outbound STOMP frame of the session also passes through, so writes
+ * never interleave. Subscriptions still go to the broker too; destinations sent here must not also be
+ * sent through the messaging template.
+ *
+ * Telemetry (broadcastTelemetry) is written by sender threads, never by the caller, and conflated per
+ * subscription, latest wins: while a frame is still being written to the session, or its max-hz
+ * (SUBSCRIBE header, else websocket.conflation.default-max-hz) is not yet due, the rows are kept as the
+ * newest row per UAV instead of being queued, and go out as one frame once the session is free. A slow
+ * session thus holds at most one frame in flight and one row per UAV per subscription, copied out of
+ * the ingest frames so it does not keep them alive. Other payloads (such as the /topic/drones deltas)
+ * are never dropped.
+ */
+@Slf4j
+@Component
+public class SharedPayloadBroadcaster {
+
+    private static final int MAX_POOLED_BUFFER = 1024 * 1024;
+
+    private final ObjectProvider<CompositeMessageConverter> brokerMessageConverter;
+
+    @Value("${websocket.broadcast.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${websocket.broadcast.buffer-size-limit:524288}")
+    private int bufferSizeLimit;
+
+    @Value("${websocket.conflation.default-max-hz:0}")
+    private double defaultMaxHz;
+
+    @Value("${websocket.conflation.sender-threads:4}")
+    private int senderThreads;
+
+    private final ConcurrentHashMap<String, ConcurrentWebSocketSessionDecorator> sessions = new ConcurrentHashMap<>();
+    /** destination (user destinations as /user/{name}/...) -> sessionId -> subscription */
+    private final ConcurrentHashMap<String, Map<String, Target>> subscribers = new ConcurrentHashMap<>();
+    /** sessionId -> subscriptionId -> destination key */
+    private final Map<String, Map<String, String>> subscriptions = new HashMap<>();
+    private final Set<Target> conflated = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<PooledBuffer> buffers = ThreadLocal.withInitial(PooledBuffer::new);
+    private final AtomicLong messageIds = new AtomicLong();
+    private volatile ObjectMapper objectMapper;
+    private ExecutorService senders;
+
+    public SharedPayloadBroadcaster(ObjectProvider<CompositeMessageConverter> brokerMessageConverter) {
+        this.brokerMessageConverter = brokerMessageConverter;
+    }
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger count = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "ws-broadcast-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+    }
+
+    /**
+     * Wrap the STOMP WebSocket handler so every session is registered with a shared concurrent decorator
+     */
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                ConcurrentWebSocketSessionDecorator shared =
+                        new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, bufferSizeLimit);
+                sessions.put(session.getId(), shared);
+                super.afterConnectionEstablished(shared);
+            }
+
+            @Override
+            public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+                super.handleMessage(shared(session), message);
+            }
+
+            @Override
+            public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
+                super.handleTransportError(shared(session), exception);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                WebSocketSession shared = sessions.remove(session.getId());
+                super.afterConnectionClosed(shared != null ? shared : session, closeStatus);
+            }
+
+            private WebSocketSession shared(WebSocketSession session) {
+                WebSocketSession shared = sessions.get(session.getId());
+                return shared != null ? shared : session;
+            }
+        };
+    }
+
+    public boolean hasSubscribers(String destination) {
+        return subscribers.containsKey(destination);
+    }
+
+    /**
+     * Send the payload to every session subscribed to the destination, serializing it once
+     */
+    public void broadcast(String destination, Object payload) {
+        Map<String, Target> targets = subscribers.get(destination);
+        if (targets == null || targets.isEmpty()) {
+            return;
+        }
+        Encoded body = encode(destination, payload);
+        if (body == null) {
+            return;
+        }
+        String messageId = nextMessageId();
+        Map<String, Frame> frames = new HashMap<>(2);
+        targets.values().forEach(target -> {
+            ConcurrentWebSocketSessionDecorator session = sessions.get(target.sessionId);
+            if (session != null && session.isOpen()) {
+                send(session, frames.computeIfAbsent(target.subscriptionId,
+                        id -> encodeFrame(target.destination, id, messageId, body)));
+            }
+        });
+    }
+
+    /**
+     * Send a telemetry frame to the subscribers of the destination, serialized once for all of them;
+     * for subscriptions that are still writing or not yet due it is conflated instead
+     */
+    public void broadcastTelemetry(String destination, TelemetryFrame frame) {
+        Map<String, Target> targets = subscribers.get(destination);
+        if (targets == null || targets.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        Encoded body = null;
+        String messageId = null;
+        Map<String, Frame> frames = new HashMap<>(2);
+        for (Target target : targets.values()) {
+            ConcurrentWebSocketSessionDecorator session = sessions.get(target.sessionId);
+            if (session == null || !session.isOpen()) {
+                continue;
+            }
+            Frame message;
+            synchronized (target) {
+                if (target.inFlight || target.pending != null || now < target.nextDue || busy(session)) {
+                    conflate(target, frame);
+                    continue;
+                }
+                if (body == null) {
+                    body = encode(destination, frame);
+                    if (body == null) {
+                        return;
+                    }
+                    messageId = nextMessageId();
+                }
+                Encoded encoded = body;
+                String id = messageId;
+                message = frames.computeIfAbsent(target.subscriptionId,
+                        subscriptionId -> encodeFrame(target.destination, subscriptionId, id, encoded));
+                target.inFlight = true;
+                target.nextDue = now + target.minIntervalNanos;
+            }
+            write(target, session, message);
+        }
+    }
+
+    /**
+     * broadcastTelemetry to the sessions of one user subscribed to /user{destination}
+     */
+    public void broadcastTelemetryToUser(String user, String destination, TelemetryFrame frame) {
+        broadcastTelemetry("/user/" + user + destination, frame);
+    }
+
+    /**
+     * Send the rows conflated for a subscription once it is due and its session is free again
+     * after a write that did not go through this class
+     */
+    @Scheduled(fixedDelayString = "${websocket.conflation.drain-ms:50}")
+    public void drain() {
+        if (conflated.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        Iterator<Target> iterator = conflated.iterator();
+        while (iterator.hasNext()) {
+            Target target = iterator.next();
+            ConcurrentWebSocketSessionDecorator session = sessions.get(target.sessionId);
+            Frame message;
+            synchronized (target) {
+                if (target.pending == null || session == null || !session.isOpen()) {
+                    target.pending = null;
+                    iterator.remove();
+                    continue;
+                }
+                if (target.inFlight || now < target.nextDue || busy(session)) {
+                    continue;
+                }
+                message = takePending(target, now);
+                if (message == null) {
+                    continue;
+                }
+                target.inFlight = true;
+            }
+            write(target, session, message);
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        if (destination == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        String key;
+        if (destination.startsWith("/topic/")) {
+            key = destination;
+        } else if (destination.startsWith("/user/") && event.getUser() != null) {
+            key = "/user/" + event.getUser().getName() + destination.substring("/user".length());
+        } else {
+            return;
+        }
+        Target target = new Target(accessor.getSessionId(), accessor.getSubscriptionId(), destination,
+                minIntervalNanos(accessor.getFirstNativeHeader("max-hz")));
+        synchronized (subscriptions) {
+            String previous = subscriptions.computeIfAbsent(accessor.getSessionId(), id -> new HashMap<>())
+                    .put(accessor.getSubscriptionId(), key);
+            if (previous != null) {
+                release(previous, accessor.getSessionId());
+            }
+            subscribers.computeIfAbsent(key, d -> new ConcurrentHashMap<>()).put(accessor.getSessionId(), target);
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        synchronized (subscriptions) {
+            Map<String, String> session = subscriptions.get(accessor.getSessionId());
+            String destination = session != null ? session.remove(accessor.getSubscriptionId()) : null;
+            if (destination != null) {
+                release(destination, accessor.getSessionId());
+            }
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        synchronized (subscriptions) {
+            Map<String, String> session = subscriptions.remove(event.getSessionId());
+            if (session != null) {
+                session.values().forEach(destination -> release(destination, event.getSessionId()));
+            }
+        }
+    }
+
+    private void release(String destination, String sessionId) {
+        subscribers.computeIfPresent(destination, (d, targets) -> {
+            Target target = targets.remove(sessionId);
+            if (target != null) {
+                conflated.remove(target);
+            }
+            return targets.isEmpty() ? null : targets;
+        });
+    }
+
+    /**
+     * Keep the frame's rows as the newest row per UAV of the subscription
+     */
+    private void conflate(Target target, TelemetryFrame frame) {
+        if (target.pending == null) {
+            target.pending = new PendingRows(frame.size());
+            conflated.add(target);
+        }
+        int size = frame.size();
+        for (int i = 0; i < size; i++) {
+            target.pending.offer(frame, i);
+        }
+    }
+
+    /**
+     * Write the frame on a sender thread, then the rows conflated meanwhile while they are due
+     */
+    private void write(Target target, ConcurrentWebSocketSessionDecorator session, Frame message) {
+        try {
+            senders.execute(() -> {
+                Frame next = message;
+                while (next != null) {
+                    send(session, next);
+                    synchronized (target) {
+                        next = null;
+                        if (target.pending != null && session.isOpen() && !busy(session)
+                                && System.nanoTime() >= target.nextDue) {
+                            next = takePending(target, System.nanoTime());
+                        }
+                        target.inFlight = next != null;
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            synchronized (target) {
+                target.inFlight = false;
+            }
+        }
+    }
+
+    /**
+     * Frame of the subscription's conflated rows, which are cleared (caller holds the target's lock)
+     */
+    private Frame takePending(Target target, long now) {
+        TelemetryFrame frame = target.pending.take(System.currentTimeMillis());
+        target.pending = null;
+        conflated.remove(target);
+        target.nextDue = now + target.minIntervalNanos;
+        Encoded body = encode(target.destination, frame);
+        return body != null ? encodeFrame(target.destination, target.subscriptionId, nextMessageId(), body) : null;
+    }
+
+    /**
+     * Whether the session is still writing or has frames waiting behind the current write
+     */
+    private static boolean busy(ConcurrentWebSocketSessionDecorator session) {
+        return session.getTimeSinceSendStarted() > 0 || session.getBufferSize() > 0;
+    }
+
+    private long minIntervalNanos(String maxHz) {
+        double hz = defaultMaxHz;
+        if (maxHz != null) {
+            try {
+                hz = Double.parseDouble(maxHz);
+            } catch (NumberFormatException e) {
+                log.debug("Ignoring max-hz header {}", maxHz);
+            }
+        }
+        return hz > 0 ? (long) (1_000_000_000L / hz) : 0;
+    }
+
+    private void send(ConcurrentWebSocketSessionDecorator session, Frame frame) {
+        try {
+            session.sendMessage(frame.messageFor(session));
+        } catch (Exception e) {
+            log.debug("Broadcast to session {} failed: {}", session.getId(), e.getMessage());
+        }
+    }
+
+    private String nextMessageId() {
+        return "b-" + messageIds.incrementAndGet();
+    }
+
+    /**
+     * Serialize the payload into this thread's buffer, valid until the thread's next encode;
+     * null if it cannot be serialized
+     */
+    private Encoded encode(String destination, Object payload) {
+        PooledBuffer buffer = buffers.get();
+        try {
+            buffer.reset();
+            objectMapper().writeValue(buffer, payload);
+            return new Encoded(buffer.array(), buffer.size());
+        } catch (IOException e) {
+            log.error("Failed to serialize broadcast to {}", destination, e);
+            return null;
+        } finally {
+            if (buffer.capacity() > MAX_POOLED_BUFFER) {
+                buffers.remove();
+            }
+        }
+    }
+
+    private ObjectMapper objectMapper() {
+        ObjectMapper mapper = objectMapper;
+        if (mapper == null) {
+            mapper = brokerMessageConverter.getObject().getConverters().stream()
+                    .filter(MappingJackson2MessageConverter.class::isInstance)
+                    .map(converter -> ((MappingJackson2MessageConverter) converter).getObjectMapper())
+                    .findFirst()
+                    .orElseGet(ObjectMapper::new);
+            objectMapper = mapper;
+        }
+        return mapper;
+    }
+
+    private static Frame encodeFrame(String destination, String subscriptionId, String messageId, Encoded body) {
+        byte[] headers = ("MESSAGE\ndestination:" + escape(destination)
+                + "\ncontent-type:application/json\nsubscription:" + escape(subscriptionId)
+                + "\nmessage-id:" + messageId
+                + "\ncontent-length:" + body.length + "\n\n").getBytes(StandardCharsets.UTF_8);
+        // One more byte for the terminating NUL, already zero
+        byte[] frame = new byte[headers.length + body.length + 1];
+        System.arraycopy(headers, 0, frame, 0, headers.length);
+        System.arraycopy(body.bytes, 0, frame, headers.length, body.length);
+        return new Frame(frame);
+    }
+
+    /**
+     * STOMP 1.2 header value escaping
+     */
+    private static String escape(String value) {
+        if (value.indexOf('\\') < 0 && value.indexOf(':') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return value.replace("\\", "\\\\").replace(":", "\\c").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    /**
+     * One session's subscription to a broadcast destination, with its conflation state
+     * (nextDue, inFlight and pending are guarded by the Target itself)
+     */
+    private static final class Target {
+
+        final String sessionId;
+        final String subscriptionId;
+        /** As subscribed, i.e. /user/queue/... for user destinations */
+        final String destination;
+        final long minIntervalNanos;
+        long nextDue;
+        /** A frame of this subscription is queued on or being written by a sender thread */
+        boolean inFlight;
+        /** Newest conflated row per UAV, null when nothing is waiting */
+        PendingRows pending;
+
+        Target(String sessionId, String subscriptionId, String destination, long minIntervalNanos) {
+            this.sessionId = sessionId;
+            this.subscriptionId = subscriptionId;
+            this.destination = destination;
+            this.minIntervalNanos = minIntervalNanos;
+            this.nextDue = System.nanoTime();
+        }
+    }
+
+    /**
+     * Newest row per UAV, in order of first arrival, copied into a frame of their own
+     */
+    private static final class PendingRows {
+
+        private final Map<Integer, Integer> slots = new HashMap<>();
+        private TelemetryFrame rows;
+
+        PendingRows(int capacity) {
+            rows = new TelemetryFrame(Math.max(16, capacity));
+        }
+
+        void offer(TelemetryFrame frame, int i) {
+            Integer slot = slots.get(frame.uavId[i]);
+            if (slot == null) {
+                slot = slots.size();
+                if (slot == rows.size()) {
+                    grow();
+                }
+                slots.put(frame.uavId[i], slot);
+            } else if (rows.sampleTime[slot] > frame.sampleTime[i]) {
+                return;
+            }
+            rows.copyRow(slot, frame, i);
+        }
+
+        TelemetryFrame take(long timestamp) {
+            int count = slots.size();
+            TelemetryFrame[] frames = new TelemetryFrame[count];
+            Arrays.fill(frames, rows);
+            int[] indexes = new int[count];
+            Arrays.setAll(indexes, k -> k);
+            return TelemetryFrame.gather(frames, indexes, count, timestamp);
+        }
+
+        private void grow() {
+            TelemetryFrame larger = new TelemetryFrame(rows.size() * 2);
+            for (int k = 0; k < rows.size(); k++) {
+                larger.copyRow(k, rows, k);
+            }
+            rows = larger;
+        }
+    }
+
+    /**
+     * A serialized payload: the first length bytes (UTF-8) of a thread's pooled buffer
+     */
+    private static final class Encoded {
+
+        final byte[] bytes;
+        final int length;
+
+        Encoded(byte[] bytes, int length) {
+            this.bytes = bytes;
+            this.length = length;
+        }
+    }
+
+    /**
+     * A STOMP MESSAGE frame in UTF-8, shared by every session of one subscription id
+     */
+    private static final class Frame {
+
+        final byte[] bytes;
+        private TextMessage text;
+
+        Frame(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * The frame as a binary message (a fresh wrapper, since sends consume the buffer's position),
+         * or as text for SockJS sessions
+         */
+        WebSocketMessage<?> messageFor(ConcurrentWebSocketSessionDecorator session) {
+            if (session.getLastSession() instanceof SockJsSession) {
+                synchronized (this) {
+                    if (text == null) {
+                        text = new TextMessage(new String(bytes, StandardCharsets.UTF_8));
+                    }
+                    return text;
+                }
+            }
+            return new BinaryMessage(bytes);
+        }
+    }
+
+    /**
+     * Growable byte buffer reused by one thread across broadcasts
+     */
+    private static final class PooledBuffer extends ByteArrayOutputStream {
+
+        PooledBuffer() {
+            super(8192);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.ucs.websocket;
+
+import com.ucs.security.JwtUtil;
+import com.ucs.security.UserPrincipal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Authenticates STOMP sessions and guards subscriptions to scoped telemetry destinations
+ *
+ * CONNECT may carry "Authorization: Bearer <jwt>" as a STOMP header; the session principal is then the
+ * user (named by user id). Sessions without a token stay anonymous. SUBSCRIBE is refused with an
+ * ERROR frame when TelemetryAccessPolicy does not allow the destination.
+ */
+@Slf4j
+@Component
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+    private final JwtUtil jwtUtil;
+    private final TelemetryAccessPolicy accessPolicy;
+
+    public StompAuthChannelInterceptor(JwtUtil jwtUtil, TelemetryAccessPolicy accessPolicy) {
+        this.jwtUtil = jwtUtil;
+        this.accessPolicy = accessPolicy;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+        if (accessor.getCommand() == StompCommand.CONNECT) {
+            String authHeader = accessor.getFirstNativeHeader("Authorization");
+            if (authHeader != null && authHeader.startsWith("Bearer ")) {
+                accessor.setUser(authenticate(authHeader.substring(7)));
+            }
+        } else if (accessor.getCommand() == StompCommand.SUBSCRIBE) {
+            UserPrincipal user = TelemetryAccessPolicy.userOf(accessor.getUser());
+            if (!accessPolicy.canSubscribe(user, accessor.getDestination())) {
+                throw new MessageDeliveryException("Not allowed to subscribe to " + accessor.getDestination());
+            }
+        }
+        return message;
+    }
+
+    private UsernamePasswordAuthenticationToken authenticate(String jwt) {
+        try {
+            if (!jwtUtil.isTokenExpired(jwt)) {
+                List<String> roles = jwtUtil.extractRoles(jwt);
+                List<SimpleGrantedAuthority> authorities = roles.stream()
+                        .map(role -> new SimpleGrantedAuthority("ROLE_" + role.toUpperCase()))
+                        .collect(Collectors.toList());
+                UserPrincipal principal = new UserPrincipal(jwtUtil.extractUserId(jwt), jwtUtil.extractUsername(jwt), roles);
+                return new UsernamePasswordAuthenticationToken(principal, null, authorities);
+            }
+        } catch (Exception e) {
+            log.warn("STOMP authentication failed: {}", e.getMessage());
+        }
+        throw new MessageDeliveryException("Invalid or expired token");
+    }
+}
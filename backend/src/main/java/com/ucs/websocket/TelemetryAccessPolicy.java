@@ -0,0 +1,214 @@
+package com.ucs.websocket;
+
+import com.ucs.entity.DroneOwnership;
+import com.ucs.entity.TeamDroneMap;
+import com.ucs.entity.User;
+import com.ucs.repository.DroneOwnershipRepository;
+import com.ucs.repository.TeamDroneMapRepository;
+import com.ucs.repository.UserRepository;
+import com.ucs.security.UserPrincipal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Which telemetry a STOMP user may see, from the drone ownership and team mappings
+ *
+ * Observers and commanders see every UAV; a leader sees the UAVs of their team and the ones they own;
+ * anyone else sees the UAVs they own. The mappings and the users' teams are cached and reloaded every
+ * websocket.scoped.refresh-interval-ms, so neither the per-ingest fanout nor SUBSCRIBE touches the database.
+ */
+@Slf4j
+@Component
+public class TelemetryAccessPolicy {
+
+    static final Pattern UAV_TOPIC = Pattern.compile("/topic/uav/(\\d{1,9})");
+    static final Pattern TEAM_TOPIC = Pattern.compile("/topic/team/(\\d{1,18})/telemetry");
+
+    private final DroneOwnershipRepository droneOwnershipRepository;
+    private final TeamDroneMapRepository teamDroneMapRepository;
+    private final UserRepository userRepository;
+
+    @Value("${websocket.scoped.restrict-global-topics:false}")
+    private boolean restrictGlobalTopics;
+
+    private volatile Map<Integer, Long> ownerByUav = Map.of();
+    private volatile Map<Integer, long[]> teamsByUav = Map.of();
+    private volatile Map<Long, Long> teamByUser = Map.of();
+
+    public TelemetryAccessPolicy(DroneOwnershipRepository droneOwnershipRepository,
+                                 TeamDroneMapRepository teamDroneMapRepository,
+                                 UserRepository userRepository) {
+        this.droneOwnershipRepository = droneOwnershipRepository;
+        this.teamDroneMapRepository = teamDroneMapRepository;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * First load once the application (including seed data) is up
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${websocket.scoped.refresh-interval-ms:10000}")
+    public void refresh() {
+        try {
+            Map<Integer, Long> owners = new HashMap<>();
+            for (DroneOwnership ownership : droneOwnershipRepository.findAllActive()) {
+                owners.put(ownership.getDroneId().intValue(), ownership.getUserId());
+            }
+            Map<Integer, long[]> teams = new HashMap<>();
+            for (TeamDroneMap map : teamDroneMapRepository.findAllActive()) {
+                teams.merge(map.getDroneId().intValue(), new long[] {map.getTeamId()}, TelemetryAccessPolicy::concat);
+            }
+            Map<Long, Long> userTeams = new HashMap<>();
+            for (User user : userRepository.findAll()) {
+                if (user.getTeamId() != null) {
+                    userTeams.put(user.getId(), user.getTeamId());
+                }
+            }
+            ownerByUav = owners;
+            teamsByUav = teams;
+            teamByUser = userTeams;
+        } catch (Exception e) {
+            log.error("Failed to reload drone ownership and team mappings", e);
+        }
+    }
+
+    /**
+     * Owner user id of a UAV, or null
+     */
+    public Long ownerOf(int uavId) {
+        return ownerByUav.get(uavId);
+    }
+
+    /**
+     * Team ids a UAV is assigned to (usually one), or null
+     */
+    public long[] teamsOf(int uavId) {
+        return teamsByUav.get(uavId);
+    }
+
+    /**
+     * What a user's /user/queue/fleet carries: everything, or owned UAVs plus (for leaders) their team's
+     */
+    public FleetScope scopeOf(UserPrincipal user) {
+        if (seesAll(user)) {
+            return new FleetScope(user.getUserId(), true, null);
+        }
+        return new FleetScope(user.getUserId(), false, user.isLeader() ? teamIdOf(user) : null);
+    }
+
+    /**
+     * Whether the user (null when the session did not authenticate) may subscribe to a destination
+     * Patterns (the simple broker matches * and {var} in subscriptions) and anything else under
+     * /topic/uav or /topic/team are refused; destinations outside the telemetry topics are not checked here.
+     */
+    public boolean canSubscribe(UserPrincipal user, String destination) {
+        if (destination == null) {
+            return true;
+        }
+        if (destination.indexOf('*') >= 0 || destination.indexOf('{') >= 0) {
+            return false;
+        }
+        if (destination.equals("/topic/telemetry") || destination.equals("/topic/drones")
+                || destination.equals("/user/queue/viewport")) {
+            return !restrictGlobalTopics || (user != null && seesAll(user));
+        }
+        Matcher uav = UAV_TOPIC.matcher(destination);
+        if (uav.matches()) {
+            return user != null && canSee(user, Integer.parseInt(uav.group(1)));
+        }
+        Matcher team = TEAM_TOPIC.matcher(destination);
+        if (team.matches()) {
+            if (user == null) {
+                return false;
+            }
+            return seesAll(user) || (user.isLeader() && Long.valueOf(team.group(1)).equals(teamIdOf(user)));
+        }
+        if (destination.equals("/user/queue/fleet")) {
+            return user != null;
+        }
+        return !destination.startsWith("/topic/uav") && !destination.startsWith("/topic/team");
+    }
+
+    /**
+     * Whether the user may see one UAV's telemetry; an anonymous session (null) sees what the
+     * global topics carry, so everything unless they are restricted
+     */
+    public boolean canSee(UserPrincipal user, int uavId) {
+        if (user == null) {
+            return !restrictGlobalTopics;
+        }
+        if (seesAll(user) || user.getUserId().equals(ownerOf(uavId))) {
+            return true;
+        }
+        long[] teams = teamsOf(uavId);
+        Long teamId = teams != null && user.isLeader() ? teamIdOf(user) : null;
+        if (teamId != null) {
+            for (long team : teams) {
+                if (team == teamId) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The authenticated UserPrincipal behind a STOMP session principal, or null
+     */
+    public static UserPrincipal userOf(Principal principal) {
+        if (principal instanceof UserPrincipal user) {
+            return user;
+        }
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof UserPrincipal user) {
+            return user;
+        }
+        return null;
+    }
+
+    private static boolean seesAll(UserPrincipal user) {
+        return user.isObserver() || user.isCommander();
+    }
+
+    private Long teamIdOf(UserPrincipal user) {
+        return teamByUser.get(user.getUserId());
+    }
+
+    private static long[] concat(long[] a, long[] b) {
+        long[] result = new long[a.length + b.length];
+        System.arraycopy(a, 0, result, 0, a.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    /**
+     * Entitlement of one /user/queue/fleet subscriber, resolved when it subscribes
+     */
+    public static final class FleetScope {
+
+        final Long userId;
+        final boolean all;
+        final Long teamId;
+
+        FleetScope(Long userId, boolean all, Long teamId) {
+            this.userId = userId;
+            this.all = all;
+            this.teamId = teamId;
+        }
+    }
+}
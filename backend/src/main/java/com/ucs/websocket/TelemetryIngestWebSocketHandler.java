@@ -0,0 +1,199 @@
+package com.ucs.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ucs.dto.IngestAckDTO;
+import com.ucs.dto.UavTelemetryBatchDTO;
+import com.ucs.service.ITelemetryIngestService;
+import com.ucs.telemetry.TelemetryFrame;
+import com.ucs.telemetry.TelemetryFrameCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streaming telemetry ingest for gateways (raw WebSocket at /ws-ingest)
+ *
+ * A gateway authenticates once in the handshake (GatewayHandshakeInterceptor) and then streams
+ * frames over the same connection: binary messages use the TelemetryFrameCodec layout, text
+ * messages the UavTelemetryBatchDTO JSON shape. Frames go through the same ingest service as the
+ * HTTP endpoints. The server answers with an ack carrying the highest handled msgSeqNumber every
+ * ack-every frames or ack-interval-ms, and with an immediate nack for a frame that could not be
+ * queued or failed to process so the gateway can resend it.
+ */
+@Slf4j
+@Component
+public class TelemetryIngestWebSocketHandler extends AbstractWebSocketHandler {
+
+    private final ITelemetryIngestService telemetryIngestService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${telemetry.ingest.ws.ack-every:20}")
+    private int ackEvery;
+
+    @Value("${telemetry.ingest.ws.send-time-limit-ms:5000}")
+    private int sendTimeLimitMs;
+
+    @Value("${telemetry.ingest.ws.send-buffer-bytes:65536}")
+    private int sendBufferBytes;
+
+    private final ConcurrentHashMap<String, GatewaySession> sessions = new ConcurrentHashMap<>();
+
+    public TelemetryIngestWebSocketHandler(ITelemetryIngestService telemetryIngestService,
+                                           ObjectMapper objectMapper) {
+        this.telemetryIngestService = telemetryIngestService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        String gatewayId = (String) session.getAttributes().get(GatewayHandshakeInterceptor.GATEWAY_ID_ATTRIBUTE);
+        WebSocketSession concurrent = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, sendBufferBytes);
+        sessions.put(session.getId(), new GatewaySession(gatewayId, concurrent));
+        log.info("Gateway {} opened streaming telemetry ingest connection {}", gatewayId, session.getId());
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+        GatewaySession gateway = sessions.get(session.getId());
+        TelemetryFrame frame;
+        try {
+            frame = TelemetryFrameCodec.decode(message.getPayload());
+        } catch (IllegalArgumentException e) {
+            log.warn("Gateway {} sent malformed binary telemetry frame: {}", gateway.gatewayId, e.getMessage());
+            send(gateway, IngestAckDTO.error(e.getMessage()));
+            return;
+        }
+        ingest(gateway, frame);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        GatewaySession gateway = sessions.get(session.getId());
+        UavTelemetryBatchDTO batch;
+        try {
+            batch = objectMapper.readValue(message.getPayload(), UavTelemetryBatchDTO.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Gateway {} sent malformed telemetry batch: {}", gateway.gatewayId, e.getOriginalMessage());
+            send(gateway, IngestAckDTO.error(e.getOriginalMessage()));
+            return;
+        }
+        if (batch.getUavs() == null || batch.getUavs().isEmpty()) {
+            return;
+        }
+        TelemetryFrame frame;
+        try {
+            frame = TelemetryFrame.fromBatch(batch);
+        } catch (IllegalArgumentException e) {
+            log.warn("Gateway {} sent malformed telemetry batch: {}", gateway.gatewayId, e.getMessage());
+            send(gateway, IngestAckDTO.error(e.getMessage()));
+            return;
+        }
+        ingest(gateway, frame);
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        log.debug("Telemetry ingest connection {} transport error: {}", session.getId(), exception.getMessage());
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        GatewaySession gateway = sessions.remove(session.getId());
+        if (gateway != null) {
+            log.info("Gateway {} closed streaming telemetry ingest connection {} ({}), {} frames received",
+                    gateway.gatewayId, session.getId(), status, gateway.frames);
+        }
+    }
+
+    /**
+     * Acknowledge frames handled since the last ack on idle or slow connections
+     */
+    @Scheduled(fixedDelayString = "${telemetry.ingest.ws.ack-interval-ms:1000}")
+    public void flushAcks() {
+        for (GatewaySession gateway : sessions.values()) {
+            IngestAckDTO ack = gateway.takeAck();
+            if (ack != null) {
+                send(gateway, ack);
+            }
+        }
+    }
+
+    private void ingest(GatewaySession gateway, TelemetryFrame frame) {
+        frame.sourceId = gateway.gatewayId;
+        ITelemetryIngestService.IngestResult result;
+        try {
+            result = telemetryIngestService.ingest(frame);
+        } catch (Exception e) {
+            log.error("Failed to process streamed telemetry frame from gateway {}", gateway.gatewayId, e);
+            String message = "Failed to process telemetry: " + e.getMessage();
+            // A nack keeps the frame pending on the gateway; a later ack for a higher seq would drop it
+            send(gateway, frame.hasSequence()
+                    ? IngestAckDTO.nack(frame.seq, telemetryIngestService.getRetryAfterSeconds() * 1000L, message)
+                    : IngestAckDTO.error(message));
+            return;
+        }
+        if (result == ITelemetryIngestService.IngestResult.QUEUE_FULL) {
+            send(gateway, IngestAckDTO.nack(frame.seq, telemetryIngestService.getRetryAfterSeconds() * 1000L));
+            return;
+        }
+        if (gateway.handled(frame.seq) >= ackEvery) {
+            IngestAckDTO ack = gateway.takeAck();
+            if (ack != null) {
+                send(gateway, ack);
+            }
+        }
+    }
+
+    private void send(GatewaySession gateway, IngestAckDTO message) {
+        try {
+            gateway.session.sendMessage(new TextMessage(objectMapper.writeValueAsString(message)));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to send {} to gateway {}: {}", message.getType(), gateway.gatewayId, e.getMessage());
+        }
+    }
+
+    /**
+     * Per-connection ack state; frames of one connection arrive sequentially, acks may be flushed concurrently
+     */
+    private static final class GatewaySession {
+
+        private final String gatewayId;
+        private final WebSocketSession session;
+
+        private long frames;
+        private long lastSeq = TelemetryFrame.NO_SEQUENCE;
+        private int unacked;
+
+        GatewaySession(String gatewayId, WebSocketSession session) {
+            this.gatewayId = gatewayId;
+            this.session = session;
+        }
+
+        synchronized int handled(long seq) {
+            frames++;
+            if (seq > lastSeq) {
+                lastSeq = seq;
+            }
+            return ++unacked;
+        }
+
+        synchronized IngestAckDTO takeAck() {
+            if (unacked == 0) {
+                return null;
+            }
+            unacked = 0;
+            return IngestAckDTO.ack(lastSeq, frames);
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.ucs.websocket;
+
+import com.ucs.dto.ViewportRequest;
+import com.ucs.dto.ViewportUpdateDTO;
+import com.ucs.security.UserPrincipal;
+import com.ucs.telemetry.TelemetryFrame;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live telemetry filtered to each session's map viewport
+ *
+ * A session subscribes to /user/queue/viewport and sends its bounding box and zoom to /app/viewport
+ * (again on every pan or zoom). The latest sample of every UAV is kept in a grid of cell-deg cells;
+ * every tick each due session gets the UAVs in its box (widened by margin on each side) that changed
+ * since its previous update, plus the ones that came into view, and the ids of the ones that left.
+ * At detail-zoom and above a session is updated every tick; each zoom level below doubles its
+ * interval, up to max-interval-ms. A new viewport is answered at once with just the difference;
+ * requests carrying a seq older than the last applied one are dropped. Only UAVs the session's user
+ * may see (TelemetryAccessPolicy.canSee) are sent.
+ */
+@Component
+public class ViewportFanout {
+
+    private static final String DESTINATION = "/user/queue/viewport";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final TelemetryAccessPolicy accessPolicy;
+
+    @Value("${websocket.viewport.cell-deg:0.05}")
+    private double cellDeg;
+
+    @Value("${websocket.viewport.margin:0.2}")
+    private double margin;
+
+    @Value("${websocket.viewport.tick-ms:250}")
+    private long tickMs;
+
+    @Value("${websocket.viewport.detail-zoom:14}")
+    private int detailZoom;
+
+    @Value("${websocket.viewport.max-interval-ms:4000}")
+    private long maxIntervalMs;
+
+    private final AtomicLong versions = new AtomicLong();
+    private final ConcurrentHashMap<Integer, Latest> latest = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<Integer>> grid = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Viewport> viewports = new ConcurrentHashMap<>();
+    /** Session id to the id of its /user/queue/viewport subscription */
+    private final ConcurrentHashMap<String, String> subscribedSessions = new ConcurrentHashMap<>();
+
+    public ViewportFanout(SimpMessagingTemplate messagingTemplate, TelemetryAccessPolicy accessPolicy) {
+        this.messagingTemplate = messagingTemplate;
+        this.accessPolicy = accessPolicy;
+    }
+
+    /**
+     * Record the frame's samples as the latest ones of their UAVs (older samples are ignored)
+     */
+    public void track(TelemetryFrame frame) {
+        int size = frame.size();
+        for (int i = 0; i < size; i++) {
+            double lat = frame.lat[i];
+            double lon = frame.lon[i];
+            if (Double.isNaN(lat) || Double.isNaN(lon)) {
+                continue;
+            }
+            int row = i;
+            long cell = cellOf(lat, lon);
+            latest.compute(frame.uavId[i], (uavId, previous) -> {
+                if (previous != null && previous.sample.sampleTime[0] > frame.sampleTime[row]) {
+                    return previous;
+                }
+                if (previous == null || previous.cell != cell) {
+                    grid.computeIfAbsent(cell, c -> ConcurrentHashMap.newKeySet()).add(uavId);
+                    if (previous != null) {
+                        grid.computeIfPresent(previous.cell, (c, ids) -> {
+                            ids.remove(uavId);
+                            return ids.isEmpty() ? null : ids;
+                        });
+                    }
+                }
+                TelemetryFrame sample = new TelemetryFrame(1);
+                sample.copyRow(0, frame, row);
+                return new Latest(sample, cell, versions.incrementAndGet());
+            });
+        }
+    }
+
+    /**
+     * Set or move the viewport of a session and send it what changed at once
+     * @throws IllegalArgumentException if the box is incomplete or inverted
+     */
+    public void setViewport(String sessionId, UserPrincipal user, ViewportRequest request) {
+        if (request.getMinLat() == null || request.getMinLon() == null || request.getMaxLat() == null
+                || request.getMaxLon() == null || request.getMinLat() > request.getMaxLat()
+                || request.getMinLon() > request.getMaxLon()) {
+            throw new IllegalArgumentException("Invalid viewport");
+        }
+        int zoom = request.getZoom() != null ? request.getZoom() : detailZoom;
+        double latMargin = (request.getMaxLat() - request.getMinLat()) * margin;
+        double lonMargin = (request.getMaxLon() - request.getMinLon()) * margin;
+        Viewport viewport = viewports.computeIfAbsent(sessionId, id -> new Viewport(id, user));
+        synchronized (viewport) {
+            if (request.getSeq() != null) {
+                if (request.getSeq() <= viewport.lastSeq) {
+                    return;
+                }
+                viewport.lastSeq = request.getSeq();
+            }
+            viewport.minLat = request.getMinLat() - latMargin;
+            viewport.maxLat = request.getMaxLat() + latMargin;
+            viewport.minLon = request.getMinLon() - lonMargin;
+            viewport.maxLon = request.getMaxLon() + lonMargin;
+            viewport.zoom = zoom;
+            viewport.intervalMs = Math.min(maxIntervalMs, tickMs << Math.min(20, Math.max(0, detailZoom - zoom)));
+            viewport.nextDue = System.currentTimeMillis() + viewport.intervalMs;
+            // Only UAVs that came into view: the ones still in view are current already
+            send(viewport, false);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${websocket.viewport.tick-ms:250}")
+    public void tick() {
+        if (viewports.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Viewport viewport : viewports.values()) {
+            synchronized (viewport) {
+                if (now >= viewport.nextDue) {
+                    viewport.nextDue = now + viewport.intervalMs;
+                    send(viewport, true);
+                }
+            }
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        if (DESTINATION.equals(accessor.getDestination())) {
+            subscribedSessions.put(accessor.getSessionId(), Objects.toString(accessor.getSubscriptionId(), ""));
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String sessionId = accessor.getSessionId();
+        if (sessionId != null && subscribedSessions.remove(sessionId, Objects.toString(accessor.getSubscriptionId(), ""))) {
+            viewports.remove(sessionId);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        subscribedSessions.remove(event.getSessionId());
+        viewports.remove(event.getSessionId());
+    }
+
+    /**
+     * Send the UAVs in view that are new to the session (and, with changed, the ones updated since
+     * its last update) plus the ones that left; nothing when there is neither
+     */
+    private void send(Viewport viewport, boolean changed) {
+        if (!subscribedSessions.containsKey(viewport.sessionId)) {
+            return;
+        }
+        Map<Integer, Long> inView = new HashMap<>();
+        List<Latest> rows = new ArrayList<>();
+        for (Integer uavId : candidates(viewport)) {
+            Latest entry = latest.get(uavId);
+            if (entry == null || !viewport.contains(entry) || !accessPolicy.canSee(viewport.user, uavId)) {
+                continue;
+            }
+            Long sent = viewport.visible.get(uavId);
+            if (sent == null || (changed && entry.version > sent)) {
+                rows.add(entry);
+                inView.put(uavId, entry.version);
+            } else {
+                inView.put(uavId, sent);
+            }
+        }
+        List<Integer> left = new ArrayList<>();
+        for (Integer uavId : viewport.visible.keySet()) {
+            if (!inView.containsKey(uavId)) {
+                left.add(uavId);
+            }
+        }
+        viewport.visible = inView;
+        if (rows.isEmpty() && left.isEmpty()) {
+            return;
+        }
+
+        ViewportUpdateDTO update = new ViewportUpdateDTO();
+        update.setZoom(viewport.zoom);
+        update.setIntervalMs(viewport.intervalMs);
+        if (!rows.isEmpty()) {
+            TelemetryFrame[] frames = new TelemetryFrame[rows.size()];
+            // Row 0 of each one-row sample
+            int[] indexes = new int[rows.size()];
+            for (int k = 0; k < rows.size(); k++) {
+                frames[k] = rows.get(k).sample;
+            }
+            update.setTelemetry(TelemetryFrame.gather(frames, indexes, rows.size(), System.currentTimeMillis()));
+        }
+        if (!left.isEmpty()) {
+            update.setLeft(left);
+        }
+        // Addressed by session id, so it reaches only this session, also when anonymous
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(viewport.sessionId);
+        headers.setLeaveMutable(true);
+        messagingTemplate.convertAndSendToUser(viewport.sessionId, "/queue/viewport", update, headers.getMessageHeaders());
+    }
+
+    /**
+     * UAVs in the grid cells the viewport overlaps, or every tracked UAV when that is fewer cells to visit
+     */
+    private Iterable<Integer> candidates(Viewport viewport) {
+        long minRow = (long) Math.floor(viewport.minLat / cellDeg);
+        long maxRow = (long) Math.floor(viewport.maxLat / cellDeg);
+        long minCol = (long) Math.floor(viewport.minLon / cellDeg);
+        long maxCol = (long) Math.floor(viewport.maxLon / cellDeg);
+        long cells = (maxRow - minRow + 1) * (maxCol - minCol + 1);
+        if (cells > grid.size()) {
+            return latest.keySet();
+        }
+        List<Integer> uavIds = new ArrayList<>();
+        for (long row = minRow; row <= maxRow; row++) {
+            for (long col = minCol; col <= maxCol; col++) {
+                Set<Integer> ids = grid.get(cellKey(row, col));
+                if (ids != null) {
+                    uavIds.addAll(ids);
+                }
+            }
+        }
+        return uavIds;
+    }
+
+    private long cellOf(double lat, double lon) {
+        return cellKey((long) Math.floor(lat / cellDeg), (long) Math.floor(lon / cellDeg));
+    }
+
+    private static long cellKey(long row, long col) {
+        return (row << 32) ^ (col & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Latest sample of a UAV, copied into a one-row frame so the ingest frame it arrived in is not kept alive
+     */
+    private static final class Latest {
+
+        final TelemetryFrame sample;
+        final long cell;
+        final long version;
+
+        Latest(TelemetryFrame sample, long cell, long version) {
+            this.sample = sample;
+            this.cell = cell;
+            this.version = version;
+        }
+    }
+
+    private static final class Viewport {
+
+        final String sessionId;
+        /** The session's user, null when it did not authenticate */
+        final UserPrincipal user;
+        double minLat;
+        double minLon;
+        double maxLat;
+        double maxLon;
+        int zoom;
+        long intervalMs;
+        long nextDue;
+        long lastSeq = Long.MIN_VALUE;
+        /** UAVs the session has, with the version of the sample it was sent last */
+        Map<Integer, Long> visible = new HashMap<>();
+
+        Viewport(String sessionId, UserPrincipal user) {
+            this.sessionId = sessionId;
+            this.user = user;
+        }
+
+        boolean contains(Latest entry) {
+            double lat = entry.sample.lat[0];
+            double lon = entry.sample.lon[0];
+            return lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon;
+        }
+    }
+}
@@ -2,12 +2,18 @@ package com.ucs.websocket;
 
 import com.ucs.dto.DroneStatusDTO;
 import com.ucs.dto.EventDTO;
+import com.ucs.dto.FleetUpdateDTO;
+import com.ucs.dto.ViewportRequest;
+import com.ucs.entity.UavFlightStats;
 import com.ucs.service.DroneService;
 import com.ucs.service.EventService;
+import com.ucs.service.ITelemetryService;
 import com.ucs.service.TeamService;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Controller;
 
@@ -22,15 +28,27 @@ public class WebSocketController {
     private final DroneService droneService;
     private final EventService eventService;
     private final TeamService teamService;
+    private final ITelemetryService telemetryService;
+    private final FleetDeltaTracker fleetDeltaTracker;
+    private final SharedPayloadBroadcaster sharedPayloadBroadcaster;
+    private final ViewportFanout viewportFanout;
     
     public WebSocketController(SimpMessagingTemplate messagingTemplate,
                                DroneService droneService,
                                EventService eventService,
-                               TeamService teamService) {
+                               TeamService teamService,
+                               ITelemetryService telemetryService,
+                               FleetDeltaTracker fleetDeltaTracker,
+                               ViewportFanout viewportFanout,
+                               SharedPayloadBroadcaster sharedPayloadBroadcaster) {
         this.messagingTemplate = messagingTemplate;
         this.droneService = droneService;
         this.eventService = eventService;
         this.teamService = teamService;
+        this.telemetryService = telemetryService;
+        this.fleetDeltaTracker = fleetDeltaTracker;
+        this.viewportFanout = viewportFanout;
+        this.sharedPayloadBroadcaster = sharedPayloadBroadcaster;
     }
     
     @MessageMapping("/subscribe")
@@ -49,10 +67,32 @@ public class WebSocketController {
         }
     }
     
+    /**
+     * Set or move the session's map viewport; live telemetry for it arrives on /user/queue/viewport
+     */
+    @MessageMapping("/viewport")
+    public void setViewport(@Payload ViewportRequest request, SimpMessageHeaderAccessor headers) {
+        viewportFanout.setViewport(headers.getSessionId(), TelemetryAccessPolicy.userOf(headers.getUser()), request);
+    }
+    
+    /**
+     * Publish fleet status changes on /topic/drones (periodic snapshot, otherwise changed fields only)
+     */
     @Scheduled(fixedRate = 2000)
     public void broadcastDroneStatus() {
         List<DroneStatusDTO> allDrones = droneService.getAllDrones();
-        messagingTemplate.convertAndSend("/topic/drones", allDrones);
+        FleetUpdateDTO update = fleetDeltaTracker.next(allDrones);
+        if (update != null) {
+            sharedPayloadBroadcaster.broadcast("/topic/drones", update);
+        }
+    }
+    
+    /**
+     * Fleet snapshot for a client joining /topic/drones or resyncing after a gap in seq
+     */
+    @SubscribeMapping("/drones/snapshot")
+    public FleetUpdateDTO droneSnapshot() {
+        return fleetDeltaTracker.snapshot();
     }
     
     @Scheduled(fixedRate = 5000)
@@ -61,6 +101,17 @@ public class WebSocketController {
         messagingTemplate.convertAndSend("/topic/events", events);
     }
     
+    /**
+     * Push today's flight statistics of the UAVs that reported since the previous push
+     */
+    @Scheduled(fixedDelayString = "${telemetry.stats.push-interval-ms:2000}")
+    public void broadcastFlightStats() {
+        List<UavFlightStats> changed = telemetryService.pollChangedFlightStats();
+        if (!changed.isEmpty()) {
+            messagingTemplate.convertAndSend("/topic/flight-stats", changed);
+        }
+    }
+    
     public void sendTaskNotification(Long userId, String taskName, String message) {
         Map<String, Object> notification = Map.of(
                 "type", "TASK_ASSIGNED",
@@ -29,6 +29,24 @@ def generate_launch_description():
         description='ROS 2 message type'
     )
     
+    payload_format_arg = DeclareLaunchArgument(
+        'payload_format',
+        default_value='json',
+        description='Wire format sent to the backend: json or binary'
+    )
+    
+    transport_arg = DeclareLaunchArgument(
+        'transport',
+        default_value='http',
+        description='http (POST per batch) or websocket (long-lived streaming connection)'
+    )
+    
+    gateway_token_arg = DeclareLaunchArgument(
+        'gateway_token',
+        default_value='',
+        description='Token presented when the streaming connection opens'
+    )
+    
     # Gateway node
     gateway_node = Node(
         package='uav_telemetry_gateway',
@@ -39,6 +57,9 @@ def generate_launch_description():
             'backend_url': LaunchConfiguration('backend_url'),
             'topic_name': LaunchConfiguration('topic_name'),
             'message_type': LaunchConfiguration('message_type'),
+            'payload_format': LaunchConfiguration('payload_format'),
+            'transport': LaunchConfiguration('transport'),
+            'gateway_token': LaunchConfiguration('gateway_token'),
             'batch_size': 1,
             'batch_timeout_ms': 100,
             'retry_count': 3,
@@ -50,5 +71,8 @@ def generate_launch_description():
         backend_url_arg,
         topic_name_arg,
         message_type_arg,
+        payload_format_arg,
+        transport_arg,
+        gateway_token_arg,
         gateway_node,
     ])
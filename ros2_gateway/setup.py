@@ -12,7 +12,7 @@ setup(
         ('share/' + package_name, ['package.xml']),
         ('share/' + package_name + '/launch', ['launch/gateway.launch.py']),
     ],
-    install_requires=['setuptools', 'requests'],
+    install_requires=['setuptools', 'requests', 'websocket-client'],
     zip_safe=True,
     maintainer='UCS Team',
     maintainer_email='ucs@example.com',
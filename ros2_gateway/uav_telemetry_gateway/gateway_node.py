@@ -1,7 +1,8 @@
 #!/usr/bin/env python3
 """
 ROS 2 Gateway Node for UAV Telemetry
-Subscribes to UAV GPS topics and forwards data to Java backend via HTTP
+Subscribes to UAV GPS topics and forwards data to Java backend via HTTP,
+or over a long-lived WebSocket connection (transport:=websocket)
 
 This node is designed for ROS 2 Humble and works with custom UAV GPS messages.
 """
@@ -11,17 +12,32 @@ from rclpy.node import Node
 from rclpy.qos import QoSProfile, ReliabilityPolicy, HistoryPolicy, DurabilityPolicy
 import requests
 import json
+import math
+import socket
+import struct
 from datetime import datetime
 from typing import List, Dict, Any
 import threading
 import queue
 import time
 
+try:
+    import websocket  # websocket-client, only needed for transport:=websocket
+except ImportError:
+    websocket = None
+
 # Import the custom message types - these will be generated from .msg files
 # For now, we'll use a generic approach that works with any message type
 from rclpy.serialization import deserialize_message
 from rosidl_runtime_py.utilities import get_message
 
+# Binary frame layout, see com.ucs.telemetry.TelemetryFrameCodec in the backend
+BINARY_MAGIC = b'UCST'
+BINARY_VERSION = 1
+BINARY_HEADER = struct.Struct('<4sBBHqqdddHHHH')
+BINARY_RECORD = struct.Struct('<iqdd11fIB3x')
+BINARY_NO_MSG_COUNT = 0xFFFFFFFF
+
 
 class TelemetryGatewayNode(Node):
     """
@@ -39,6 +55,10 @@ class TelemetryGatewayNode(Node):
         self.declare_parameter('batch_timeout_ms', 100)  # Max wait time for batching
         self.declare_parameter('retry_count', 3)
         self.declare_parameter('retry_delay_ms', 100)
+        self.declare_parameter('payload_format', 'json')  # 'json' or 'binary'
+        self.declare_parameter('gateway_id', socket.gethostname())  # Sequence tracking key on the backend
+        self.declare_parameter('transport', 'http')  # 'http' (POST per batch) or 'websocket' (streaming)
+        self.declare_parameter('gateway_token', '')  # Presented once when the streaming connection opens
         
         # Get parameters
         self.backend_url = self.get_parameter('backend_url').value
@@ -48,9 +68,27 @@ class TelemetryGatewayNode(Node):
         self.batch_timeout_ms = self.get_parameter('batch_timeout_ms').value
         self.retry_count = self.get_parameter('retry_count').value
         self.retry_delay_ms = self.get_parameter('retry_delay_ms').value
+        self.payload_format = self.get_parameter('payload_format').value
+        self.gateway_id = self.get_parameter('gateway_id').value
+        self.transport = self.get_parameter('transport').value
+        self.gateway_token = self.get_parameter('gateway_token').value
         
         # API endpoint
-        self.api_endpoint = f"{self.backend_url}/api/v1/telemetry/batch"
+        if self.payload_format == 'binary':
+            self.api_endpoint = f"{self.backend_url}/api/v1/telemetry/batch/binary"
+        else:
+            self.api_endpoint = f"{self.backend_url}/api/v1/telemetry/batch"
+        self.stream_endpoint = self.backend_url.replace('http', 'ws', 1) + '/ws-ingest'
+        
+        # Streaming connection state: frames sent but not yet acked, keyed by msgSeqNumber
+        self.stream = None
+        self.stream_lock = threading.Lock()
+        # Shared by the sender thread and the stream reader
+        self.unacked_lock = threading.Lock()
+        self.unacked = {}
+        if self.transport == 'websocket' and websocket is None:
+            self.get_logger().error("transport=websocket needs the websocket-client package, using http")
+            self.transport = 'http'
         
         # Message queue for batching
         self.message_queue = queue.Queue()
@@ -100,8 +138,11 @@ class TelemetryGatewayNode(Node):
         self.messages_received += 1
         
         try:
-            # Convert ROS message to dictionary
-            telemetry_batch = self.convert_message_to_dict(msg)
+            # Convert ROS message to the configured wire format
+            if self.payload_format == 'binary':
+                telemetry_batch = self.convert_message_to_binary(msg)
+            else:
+                telemetry_batch = self.convert_message_to_dict(msg)
             
             # Add to queue
             self.message_queue.put(telemetry_batch)
@@ -171,6 +212,67 @@ class TelemetryGatewayNode(Node):
             'isActive': getattr(uav, 'is_active', False)
         }
     
+    def convert_message_to_binary(self, msg) -> bytes:
+        """
+        Encode ROS message as a fixed-layout binary frame (little-endian)
+        """
+        if hasattr(msg, 'timestamp'):
+            timestamp_ms = self.ros_time_to_epoch_ms(msg.timestamp)
+        elif hasattr(msg, 'sec') and hasattr(msg, 'nsec'):
+            timestamp_ms = msg.sec * 1000 + msg.nsec // 1000000
+        else:
+            timestamp_ms = int(time.time() * 1000)
+        
+        uavs = list(getattr(msg, 'uavs', []))
+        parts = [BINARY_HEADER.pack(
+            BINARY_MAGIC, BINARY_VERSION, 0, BINARY_HEADER.size,
+            getattr(msg, 'msg_seq_number', 0),
+            timestamp_ms,
+            getattr(msg, 'home_lat', 0.0),
+            getattr(msg, 'home_lon', 0.0),
+            getattr(msg, 'home_alt', 0.0),
+            getattr(msg, 'num_uavs_total', 0),
+            getattr(msg, 'num_uavs_active', 0),
+            len(uavs),
+            BINARY_RECORD.size
+        )]
+        
+        for uav in uavs:
+            uav_ms = self.ros_time_to_epoch_ms(uav.timestamp) if hasattr(uav, 'timestamp') else 0
+            is_active = getattr(uav, 'is_active', None)
+            flags = 0 if is_active is None else (2 | (1 if is_active else 0))
+            parts.append(BINARY_RECORD.pack(
+                getattr(uav, 'id', 0),
+                uav_ms,
+                getattr(uav, 'lat', 0.0),
+                getattr(uav, 'lon', 0.0),
+                getattr(uav, 'alt', 0.0),
+                getattr(uav, 'heading', math.nan),
+                getattr(uav, 'ground_speed', math.nan),
+                getattr(uav, 'vertical_speed', math.nan),
+                getattr(uav, 'ned_x', math.nan),
+                getattr(uav, 'ned_y', math.nan),
+                getattr(uav, 'ned_z', math.nan),
+                getattr(uav, 'vx', math.nan),
+                getattr(uav, 'vy', math.nan),
+                getattr(uav, 'vz', math.nan),
+                getattr(uav, 'data_age', math.nan),
+                getattr(uav, 'msg_count', BINARY_NO_MSG_COUNT) & 0xFFFFFFFF,
+                flags
+            ))
+        
+        return b''.join(parts)
+    
+    def ros_time_to_epoch_ms(self, ros_time) -> int:
+        """
+        Convert ROS Time to epoch milliseconds (0 when unknown)
+        """
+        if hasattr(ros_time, 'sec') and hasattr(ros_time, 'nanosec'):
+            return ros_time.sec * 1000 + ros_time.nanosec // 1000000
+        if hasattr(ros_time, 'sec') and hasattr(ros_time, 'nsec'):
+            return ros_time.sec * 1000 + ros_time.nsec // 1000000
+        return 0
+    
     def ros_time_to_iso(self, ros_time) -> str:
         """
         Convert ROS Time to ISO format string
@@ -206,28 +308,47 @@ class TelemetryGatewayNode(Node):
                     continue
                 
                 # Send to backend
-                self.send_to_backend(batch)
+                if self.transport == 'websocket':
+                    self.send_streaming(batch)
+                else:
+                    self.send_to_backend(batch)
                 
             except Exception as e:
                 self.get_logger().error(f"Sender loop error: {e}")
                 time.sleep(0.1)
     
-    def send_to_backend(self, batch: Dict[str, Any]):
+    def send_to_backend(self, batch):
         """
-        Send telemetry batch to Java backend via HTTP POST
+        Send telemetry batch (dict for JSON, bytes for binary) to Java backend via HTTP POST
         """
         for attempt in range(self.retry_count):
             try:
-                response = requests.post(
-                    self.api_endpoint,
-                    json=batch,
-                    headers={'Content-Type': 'application/json'},
-                    timeout=5.0
-                )
+                if isinstance(batch, bytes):
+                    response = requests.post(
+                        self.api_endpoint,
+                        data=batch,
+                        headers={'Content-Type': 'application/octet-stream',
+                                 'X-Gateway-Id': self.gateway_id},
+                        timeout=5.0
+                    )
+                else:
+                    response = requests.post(
+                        self.api_endpoint,
+                        json=batch,
+                        headers={'Content-Type': 'application/json',
+                                 'X-Gateway-Id': self.gateway_id},
+                        timeout=5.0
+                    )
                 
                 if response.status_code == 200:
                     self.messages_sent += 1
                     return
+                elif response.status_code == 429:
+                    # Backend ingest queue is full - honour Retry-After before the next attempt
+                    retry_after = float(response.headers.get('Retry-After', 1))
+                    self.get_logger().warn(f"Backend busy, retrying in {retry_after}s")
+                    time.sleep(retry_after)
+                    continue
                 else:
                     self.get_logger().warn(
                         f"Backend returned {response.status_code}: {response.text}"
@@ -242,13 +363,111 @@ class TelemetryGatewayNode(Node):
         self.send_errors += 1
         self.get_logger().error(f"Failed to send batch after {self.retry_count} attempts")
     
+    def send_streaming(self, batch):
+        """
+        Send telemetry batch over the streaming WebSocket connection, reconnecting if needed
+        Frames stay in self.unacked until the backend acks their msgSeqNumber.
+        """
+        seq = self.batch_sequence(batch)
+        for attempt in range(self.retry_count):
+            try:
+                stream = self.open_stream()
+                if seq > 0:
+                    with self.unacked_lock:
+                        self.unacked[seq] = batch
+                if isinstance(batch, bytes):
+                    stream.send(batch, opcode=websocket.ABNF.OPCODE_BINARY)
+                else:
+                    stream.send(json.dumps(batch))
+                self.messages_sent += 1
+                return
+            except Exception as e:
+                self.get_logger().warn(f"Stream send attempt {attempt + 1} failed: {e}")
+                self.close_stream()
+            if attempt < self.retry_count - 1:
+                time.sleep(self.retry_delay_ms / 1000.0)
+        
+        self.send_errors += 1
+        self.get_logger().error(f"Failed to stream batch after {self.retry_count} attempts")
+    
+    def open_stream(self):
+        """
+        Open the streaming connection (authenticating once) and resend frames that were never acked
+        """
+        with self.stream_lock:
+            if self.stream is not None:
+                return self.stream
+            headers = [f"X-Gateway-Id: {self.gateway_id}"]
+            if self.gateway_token:
+                headers.append(f"X-Gateway-Token: {self.gateway_token}")
+            stream = websocket.create_connection(self.stream_endpoint, header=headers, timeout=5.0)
+            self.stream = stream
+            threading.Thread(target=self.stream_reader, args=(stream,), daemon=True).start()
+            self.get_logger().info(f"Streaming telemetry to {self.stream_endpoint}")
+        
+        with self.unacked_lock:
+            pending = [self.unacked.pop(seq) for seq in sorted(self.unacked)]
+        for batch in pending:
+            self.message_queue.put(batch)
+        return stream
+    
+    def close_stream(self):
+        with self.stream_lock:
+            if self.stream is not None:
+                try:
+                    self.stream.close()
+                except Exception:
+                    pass
+                self.stream = None
+    
+    def stream_reader(self, stream):
+        """
+        Handle ack / nack / error messages from the backend
+        """
+        while rclpy.ok():
+            try:
+                stream.settimeout(None)
+                message = json.loads(stream.recv())
+            except Exception:
+                if self.stream is stream:
+                    self.get_logger().warn("Streaming connection lost")
+                    self.close_stream()
+                return
+            
+            kind = message.get('type')
+            if kind == 'ack':
+                acked = message.get('seq', 0)
+                with self.unacked_lock:
+                    for seq in [s for s in self.unacked if s <= acked]:
+                        self.unacked.pop(seq, None)
+            elif kind == 'nack':
+                # Backend queue full or processing failed - resend the frame after the advised delay,
+                # without holding up the acks read here meanwhile
+                with self.unacked_lock:
+                    batch = self.unacked.pop(message.get('seq'), None)
+                if batch is not None:
+                    resend = threading.Timer(message.get('retryAfterMs', 1000) / 1000.0,
+                                             self.message_queue.put, args=(batch,))
+                    resend.daemon = True
+                    resend.start()
+            elif kind == 'error':
+                self.get_logger().warn(f"Backend rejected frame: {message.get('message')}")
+    
+    def batch_sequence(self, batch) -> int:
+        """
+        msgSeqNumber of a JSON or binary batch
+        """
+        if isinstance(batch, bytes):
+            return struct.unpack_from('<q', batch, 8)[0]
+        return batch.get('msgSeqNumber') or 0
+    
     def log_status(self):
         """
         Log gateway status periodically
         """
         self.get_logger().info(
             f"Gateway status: received={self.messages_received}, "
-            f"sent={self.messages_sent}, errors={self.send_errors}"
+            f"sent={self.messages_sent}, errors={self.send_errors}, unacked={len(self.unacked)}"
         )
 
 